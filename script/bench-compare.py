@@ -0,0 +1,64 @@
+#!/usr/bin/env python3
+# Compare two JMH results (JSON) and report regressions
+# Usage: bench-compare.py <baseline.json> <current.json> [threshold%]
+# Exit code is 1 if at least one benchmark is slower than the baseline by more than
+# threshold% (default 10) and than the score error of both runs
+
+import json
+import sys
+
+
+def load(path):
+    results = {}
+    with open(path) as f:
+        for r in json.load(f):
+            params = r.get("params") or {}
+            key = r["benchmark"] + "".join(" %s=%s" % (k, params[k]) for k in sorted(params))
+            m = r["primaryMetric"]
+            error = m.get("scoreError")
+            if not isinstance(error, (int, float)):
+                error = 0.0
+            results[key] = (r["mode"], m["score"], error, m["scoreUnit"])
+    return results
+
+
+def main():
+    if len(sys.argv) not in (3, 4):
+        print("Usage: %s <baseline.json> <current.json> [threshold%%]" % sys.argv[0])
+        return 2
+    baseline = load(sys.argv[1])
+    current = load(sys.argv[2])
+    threshold = float(sys.argv[3]) if len(sys.argv) == 4 else 10.0
+
+    regressions = 0
+    width = max([len(k) for k in current] + [9])
+    print("%-*s %14s %14s %9s" % (width, "Benchmark", "Baseline", "Current", "Change"))
+    for key in sorted(current):
+        mode, score, error, unit = current[key]
+        if key not in baseline:
+            print("%-*s %14s %14.3f %9s  %s (new)" % (width, key, "-", score, "-", unit))
+            continue
+        bmode, bscore, berror, bunit = baseline[key]
+        if bunit != unit or bscore == 0:
+            print("%-*s %14.3f %14.3f %9s  %s / %s (not comparable)" % (width, key, bscore, score, "-", bunit, unit))
+            continue
+        change = (score - bscore) / bscore * 100
+        # Throughput: higher is better, other modes (time): lower is better
+        worse = -change if mode == "thrpt" else change
+        flag = ""
+        if worse > threshold and abs(score - bscore) > error + berror:
+            flag = "  REGRESSION"
+            regressions += 1
+        print("%-*s %14.3f %14.3f %+8.1f%%  %s%s" % (width, key, bscore, score, change, unit, flag))
+    for key in sorted(set(baseline) - set(current)):
+        print("%-*s (removed)" % (width, key))
+
+    if regressions:
+        print("%d regression(s) above %.1f%%" % (regressions, threshold))
+        return 1
+    print("No regression above %.1f%%" % threshold)
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
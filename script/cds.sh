@@ -0,0 +1,79 @@
+#!/bin/sh
+# This script will generate the AppCDS archive of a type of server
+# It starts a copy of the template, waits until it has started and stops it. The classes
+# loaded during this run are saved in the archive
+# Here is a list of given variables:
+# $1 = type of server
+# $2 = free port used by the server
+# $3 = archive to create
+
+if [ "$#" -ne 3 ]; then
+  echo "Usage: $0 <type> <port> <archive>"
+  exit 1
+fi
+
+# Variables
+
+# EDIT THESE VARIABLES
+# The directory where all servers pre-configured are. Do not end this line with a /
+INPUTDIRECTORY="/root/test/servers/all"
+# The directory where the server is started. Do not end this line with a /
+WORKDIRECTORY="/root/test/servers/cds"
+# The minimum amount of ram you want to allocate (same as start.sh)
+MINRAM="-Xms512M"
+# The maximum amount of ram you want to allocate (same as start.sh)
+MAXRAM="-Xmx2G"
+# Maximum time (in seconds) to wait for the server to start
+TIMEOUT=240
+
+# DO NOT EDIT HERE
+JAVACMD=$(which java)
+TYPE=$1
+PORT=$2
+ARCHIVE=$3
+
+INPUT="$INPUTDIRECTORY/$TYPE"
+OUTPUT="$WORKDIRECTORY/$TYPE"
+LOG="$OUTPUT/logs/latest.log"
+
+if [ ! -d "$INPUT" ]; then
+	echo "Input $INPUT is not a correct directory"
+	exit 1
+fi
+
+# copy directory (the jar must keep its timestamp to use the CDS archive)
+rm -rf $OUTPUT
+mkdir -p $WORKDIRECTORY
+cp -r --preserve=timestamps $INPUT $OUTPUT
+
+if [ ! -f "$OUTPUT/spigot.jar" ]; then
+	echo "Spigot file $OUTPUT/spigot.jar doesn't exist"
+	exit 1
+fi
+
+# server-port
+echo "server-port=$PORT" >> $OUTPUT/server.properties
+
+# Start the server and send "stop" once it has started (or after TIMEOUT seconds).
+# The archive keeps the path of the jar: it must be the same as in start.sh (spigot.jar,
+# from the directory of the server) or the JVM of the server will not use the archive
+echo "Generating $ARCHIVE"
+cd $OUTPUT
+(
+	i=0
+	while [ $i -lt $TIMEOUT ] && ! grep -q "Done (" "$LOG" 2>/dev/null; do
+		sleep 1
+		i=$((i + 1))
+	done
+	echo stop
+) | $JAVACMD $MINRAM $MAXRAM -XX:ArchiveClassesAtExit=$ARCHIVE -XX:+UseG1GC -jar spigot.jar nogui
+
+cd /
+rm -rf $OUTPUT
+
+if [ ! -f "$ARCHIVE" ]; then
+	echo "Archive $ARCHIVE has not been created"
+	exit 1
+fi
+
+exit 0
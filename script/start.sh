@@ -5,9 +5,13 @@
 # $2 = server id
 # $3 = client secret
 # $4 = port of server
+# $5 = (optional) cgroup v2 directory of the server
+# $6 = (optional) cpus of the server (ex: 2,3,34,35)
+# $7 = (optional) NUMA node of these cpus
+# $8 = (optional) AppCDS archive of the type
 
-if [ "$#" -ne 4 ]; then
-  echo "Usage: $0 <type> <id> <secret> <port>"
+if [ "$#" -lt 4 ] || [ "$#" -gt 8 ]; then
+  echo "Usage: $0 <type> <id> <secret> <port> [cgroup] [cpus] [numa] [cds]"
   exit 1
 fi
 
@@ -29,6 +33,10 @@ TYPE=$1
 ID=$2
 SECRET=$3
 PORT=$4
+CGROUP=$5
+CPUS=$6
+NUMA=$7
+CDS=$8
 
 OUTPUT="$OUTPUTDIRECTORY/$ID"
 INPUT="$INPUTDIRECTORY/$TYPE"
@@ -40,8 +48,8 @@ if [ ! -d "$INPUT" ]; then
 	exit 1
 fi
 
-# copy directory
-cp -r $INPUT $OUTPUT
+# copy directory (the jar must keep its timestamp to use the CDS archive)
+cp -r --preserve=timestamps $INPUT $OUTPUT
 
 if [ ! -d "$OUTPUT" ]; then
 	echo "Output $OUTPUT doesn't exist"
@@ -62,10 +70,39 @@ if [ ! -f "$SPIGOT" ]; then
 	exit 1
 fi
 
+# Join the cgroup, the server will inherit it
+if [ -n "$CGROUP" ]; then
+	echo "Joining cgroup $CGROUP"
+	echo $$ > "$CGROUP/cgroup.procs"
+fi
+
+# Pin the server to its cpus, and allocate its memory on the same NUMA node
+PIN=""
+if [ -n "$CPUS" ]; then
+	if [ -n "$NUMA" ] && which numactl > /dev/null 2>&1; then
+		PIN="numactl --physcpubind=$CPUS --preferred=$NUMA"
+	else
+		PIN="taskset -c $CPUS"
+	fi
+	echo "Pinning server with $PIN"
+fi
+
+# Share the classes of the archive with other servers of this type. If the archive
+# cannot be used (ex: other JDK), the JVM starts without it.
+# The archive keeps the path of the jar given by cds.sh, so the jar is given with the same
+# relative path (spigot.jar, from the directory of the server). JDK 17 and 21 do not use an
+# archive whose jar was given with an absolute path that doesn't exist anymore.
+# -Dservermanager.jar is only there to find the JVM of the server (sampler_pattern)
+SHARE=""
+if [ -n "$CDS" ] && [ -f "$CDS" ]; then
+	SHARE="-XX:SharedArchiveFile=$CDS"
+	echo "Using CDS archive $CDS"
+fi
+
 # Start the server
 echo "Starting server"
 cd $OUTPUT
 # Please be careful when editing this line
-screen -A -m -d -L -S $ID $JAVACMD $MINRAM $MAXRAM -XX:+UseG1GC -XX:+ParallelRefProcEnabled -XX:MaxGCPauseMillis=200 -XX:+UnlockExperimentalVMOptions -XX:+DisableExplicitGC -XX:-OmitStackTraceInFastThrow -XX:+AlwaysPreTouch -XX:G1NewSizePercent=30 -XX:G1MaxNewSizePercent=40 -XX:G1HeapRegionSize=8M -XX:G1ReservePercent=20 -XX:G1HeapWastePercent=5 -XX:G1MixedGCCountTarget=8 -XX:InitiatingHeapOccupancyPercent=15 -XX:G1MixedGCLiveThresholdPercent=90 -XX:G1RSetUpdatingPauseTimePercent=5 -XX:SurvivorRatio=32 -XX:MaxTenuringThreshold=1 -Dusing.aikars.flags=true -Daikars.new.flags=true -jar $SPIGOT nogui
+screen -A -m -d -L -S $ID $PIN $JAVACMD $MINRAM $MAXRAM $SHARE -XX:+UseG1GC -XX:+ParallelRefProcEnabled -XX:MaxGCPauseMillis=200 -XX:+UnlockExperimentalVMOptions -XX:+DisableExplicitGC -XX:-OmitStackTraceInFastThrow -XX:+AlwaysPreTouch -XX:G1NewSizePercent=30 -XX:G1MaxNewSizePercent=40 -XX:G1HeapRegionSize=8M -XX:G1ReservePercent=20 -XX:G1HeapWastePercent=5 -XX:G1MixedGCCountTarget=8 -XX:InitiatingHeapOccupancyPercent=15 -XX:G1MixedGCLiveThresholdPercent=90 -XX:G1RSetUpdatingPauseTimePercent=5 -XX:SurvivorRatio=32 -XX:MaxTenuringThreshold=1 -Dusing.aikars.flags=true -Daikars.new.flags=true -Dservermanager.jar=$SPIGOT -jar spigot.jar nogui
 
 exit 0
\ No newline at end of file
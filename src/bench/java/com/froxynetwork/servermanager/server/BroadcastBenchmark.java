@@ -0,0 +1,82 @@
+package com.froxynetwork.servermanager.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+	/**
+	 * Number of servers on this VPS
+	 */
+	@Param({ "10", "100", "1000" })
+	private int servers;
+
+	private Server bungee;
+	private List<Server> list;
+
+	/**
+	 * Servers are in STOPPING state so messages are dropped instead of being sent.
+	 * This measures the fan-out done by the ServerManager, not the WebSocket
+	 */
+	@Setup
+	public void setup() {
+		bungee = new Server(null, "BUNGEE_1", "BUNGEE", 25565, true, 3);
+		bungee.setState(ServerState.STOPPING);
+		list = new ArrayList<>();
+		for (int i = 0; i < servers; i++) {
+			Server srv = new Server(UUID.randomUUID(), "SERVER_" + i, "Koth", 20000 + i, false, 3);
+			srv.setState(ServerState.STOPPING);
+			list.add(srv);
+		}
+	}
+
+	@Benchmark
+	public void onRegister() {
+		ServerManager.broadcast(bungee, list, "register", "KOTH_42 Koth");
+	}
+}
@@ -0,0 +1,128 @@
+package com.froxynetwork.servermanager.server.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerConfigBenchmark {
+
+	/**
+	 * Number of types (each type has 2 variants)
+	 */
+	@Param({ "10", "100" })
+	private int types;
+
+	private File file;
+	private ServerConfigManager manager;
+	private String type;
+	private String variant;
+
+	@Setup
+	public void setup() throws IOException {
+		Map<String, ServerConfig> map = new HashMap<>();
+		Map<String, String> families = new HashMap<>();
+		for (int i = 0; i < types; i++) {
+			ServerConfig sc = new ServerConfig("Type" + i, new String[] { "db" + i }, 0, 10);
+			map.put(sc.getType(), sc);
+			families.put(sc.getType(), Integer.toString(i));
+			for (int j = 0; j < 2; j++) {
+				ServerConfig child = new ServerConfig("Type" + i + "_" + j, new String[] { "db" + i }, 0, 5);
+				child.setParent(sc);
+				sc.addChildren(child);
+				map.put(child.getType(), child);
+			}
+		}
+		List<ServerVps> vps = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			ServerVps v = new ServerVps("VPS_" + i, 100);
+			for (int j = 0; j < types; j += 2)
+				v.setMax("Type" + j, 10);
+			vps.add(v);
+		}
+		file = File.createTempFile("servers", ".cache");
+		ServerConfigCache cache = new ServerConfigCache(file);
+		cache.save(new ServerConfigSnapshot(1, "bench", map, families, vps, System.currentTimeMillis()));
+		manager = new ServerConfigManager(cache);
+		manager.loadCache();
+		type = "Type" + (types / 2);
+		variant = "Type" + (types / 2) + "_1";
+	}
+
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public Object get() {
+		return manager.get(variant);
+	}
+
+	@Benchmark
+	public boolean exist() {
+		return manager.exist(type);
+	}
+
+	@Benchmark
+	public Object getVps() {
+		return manager.getVps("vps_5");
+	}
+
+	/**
+	 * Reload the whole config from the disk cache (read, rebuild of the snapshot
+	 * and of the type registry)
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public boolean reload() {
+		return manager.loadCache();
+	}
+}
@@ -5,15 +5,24 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.froxynetwork.froxynetwork.network.NetworkManager;
 import com.froxynetwork.servermanager.command.CommandManager;
+import com.froxynetwork.servermanager.metrics.MetricsHttpServer;
+import com.froxynetwork.servermanager.player.PlayerManager;
+import com.froxynetwork.servermanager.record.TrafficRecorder;
 import com.froxynetwork.servermanager.scheduler.Scheduler;
+import com.froxynetwork.servermanager.server.CpuPool;
 import com.froxynetwork.servermanager.server.ServerManager;
+import com.froxynetwork.servermanager.server.config.ServerConfigCache;
 import com.froxynetwork.servermanager.server.config.ServerConfigManager;
 import com.froxynetwork.servermanager.server.config.ServerVps;
 import com.froxynetwork.servermanager.websocket.WebSocketManager;
@@ -62,11 +71,14 @@ public class Main {
 	@Getter
 	private ServerManager serverManager;
 	@Getter
+	private PlayerManager playerManager;
+	@Getter
 	private CommandManager commandManager;
 	@Getter
 	private ServerConfigManager serverConfigManager;
 	@Getter
 	private WebSocketManager webSocketManager;
+	private MetricsHttpServer metricsHttpServer;
 
 	public Main(String[] args) {
 		INSTANCE = this;
@@ -114,6 +126,8 @@ public class Main {
 				return;
 			}
 
+			initializeRecorder();
+			initializeMetrics();
 			initializeNetwork();
 			initializeServerConfig(() -> {
 				// Retrieve VPS information
@@ -153,11 +167,26 @@ public class Main {
 
 	private void initializeServerConfig(Runnable then) {
 		LOG.info("Initializing ServerConfigManager");
-		serverConfigManager = new ServerConfigManager();
+		String configCache = p.getProperty("config_cache");
+		ServerConfigCache cache = null;
+		if (configCache != null && !"".equalsIgnoreCase(configCache.trim()))
+			cache = new ServerConfigCache(new File(configCache.trim()));
+		serverConfigManager = new ServerConfigManager(cache);
+		int configRefresh = getInt("config_refresh", 300);
+		int configRetry = getInt("config_retry", 10);
+		LOG.info("configRefresh = {}, configRetry = {}", configRefresh, configRetry);
 		try {
+			if (serverConfigManager.loadCache()) {
+				// Start now with the cached config, and refresh it in background
+				LOG.info("ServerConfigManager initialized from cache");
+				then.run();
+				serverConfigManager.startRefresh(configRefresh * 1000L, configRetry * 1000L);
+				return;
+			}
 			serverConfigManager.reload(() -> {
 				LOG.info("ServerConfigManager initialized");
 				then.run();
+				serverConfigManager.startRefresh(configRefresh * 1000L, configRetry * 1000L);
 			});
 		} catch (Exception ex) {
 			LOG.error("An error has occured while initializing ServerConfigManager: ", ex);
@@ -167,6 +196,11 @@ public class Main {
 	}
 
 	private void initializeServer() {
+		LOG.info("Initializing PlayerManager");
+		int playerFlushInterval = getInt("player_flush_interval", 5000);
+		int playerFlushBatch = getInt("player_flush_batch", 100);
+		LOG.info("playerFlushInterval = {}, playerFlushBatch = {}", playerFlushInterval, playerFlushBatch);
+		playerManager = new PlayerManager(playerFlushInterval, playerFlushBatch);
 		LOG.info("Initializing ServerManager");
 		String lPort = p.getProperty("low_port");
 		String hPort = p.getProperty("high_port");
@@ -227,9 +261,89 @@ public class Main {
 			System.exit(1);
 			return;
 		}
+		int heartbeatInterval = getInt("heartbeat_interval", 2000);
+		int heartbeatMiss = getInt("heartbeat_miss", 3);
+		LOG.info("heartbeatInterval = {}, heartbeatMiss = {}", heartbeatInterval, heartbeatMiss);
 		try {
 			serverManager = new ServerManager(id, ip, lowPort, highPort, bungeePort, serverVps, scriptStart.split(" "),
-					scriptStop.split(" "), new URI(websocketCore));
+					scriptStop.split(" "), new URI(websocketCore), heartbeatInterval, heartbeatMiss);
+			int startMinMemory = getInt("start_min_memory", 0);
+			int startMinDisk = getInt("start_min_disk", 0);
+			String startDiskPath = p.getProperty("start_disk_path", ".");
+			int startMaxWait = getInt("start_max_wait", 60);
+			LOG.info("startMinMemory = {}, startMinDisk = {}, startDiskPath = {}, startMaxWait = {}", startMinMemory,
+					startMinDisk, startDiskPath, startMaxWait);
+			Set<String> lobbyTypes = new HashSet<>();
+			for (String type : p.getProperty("start_lobby_types", "").split(","))
+				if (!"".equals(type.trim()))
+					lobbyTypes.add(type.trim());
+			Map<String, Integer> weights = getIntMap("start_weights");
+			int startDedupSize = getInt("start_dedup_size", 10000);
+			int startDedupTtl = getInt("start_dedup_ttl", 600);
+			LOG.info("lobbyTypes = {}, weights = {}, startDedupSize = {}, startDedupTtl = {}", lobbyTypes, weights,
+					startDedupSize, startDedupTtl);
+			serverManager.initializeStartQueue(startMinMemory, startMinDisk, new File(startDiskPath),
+					startMaxWait * 1000L, lobbyTypes, weights, startDedupSize, startDedupTtl * 1000L);
+			int autoscaleInterval = getInt("autoscale_interval", 10);
+			int autoscaleLead = getInt("autoscale_lead", 60);
+			int autoscaleMaxStarts = getInt("autoscale_max_starts", 2);
+			double autoscaleAlpha = 0.3;
+			try {
+				autoscaleAlpha = Double.parseDouble(p.getProperty("autoscale_alpha", "0.3"));
+			} catch (NumberFormatException ex) {
+				LOG.error("autoscale_alpha is not a number: {}", p.getProperty("autoscale_alpha"));
+				LOG.info("Using default autoscale_alpha ({})", autoscaleAlpha);
+			}
+			LOG.info("autoscaleInterval = {}, autoscaleAlpha = {}, autoscaleLead = {}, autoscaleMaxStarts = {}",
+					autoscaleInterval, autoscaleAlpha, autoscaleLead, autoscaleMaxStarts);
+			if (autoscaleInterval > 0)
+				serverManager.initializeAutoScaler(autoscaleInterval, autoscaleAlpha, autoscaleLead,
+						autoscaleMaxStarts);
+			Map<String, Integer> placementFill = getIntMap("placement_fill");
+			LOG.info("placementFill = {}", placementFill);
+			serverManager.initializePlacement(placementFill);
+			int drainTimeout = getInt("drain_timeout", 60);
+			LOG.info("drainTimeout = {}", drainTimeout);
+			serverManager.initializeDrain(drainTimeout * 1000L);
+			int traceSize = getInt("trace_size", 1000);
+			LOG.info("traceSize = {}", traceSize);
+			serverManager.initializeTraces(traceSize);
+			int samplerInterval = getInt("sampler_interval", 5);
+			int samplerHistory = getInt("sampler_history", 60);
+			String samplerPattern = p.getProperty("sampler_pattern", "/{id}/spigot.jar");
+			LOG.info("samplerInterval = {}, samplerHistory = {}, samplerPattern = {}", samplerInterval,
+					samplerHistory, samplerPattern);
+			if (samplerInterval > 0)
+				serverManager.initializeSampler(samplerInterval * 1000L, samplerHistory, samplerPattern);
+			String cgroupRoot = p.getProperty("cgroup_root", "").trim();
+			if (!"".equals(cgroupRoot)) {
+				Map<String, Integer> cgroupCpuWeight = getIntMap("cgroup_cpu_weight");
+				Map<String, Integer> cgroupCpuMax = getIntMap("cgroup_cpu_max");
+				Map<String, Integer> cgroupMemoryMax = getIntMap("cgroup_memory_max");
+				int cgroupPressureWarn = getInt("cgroup_pressure_warn", 20);
+				LOG.info("cgroupRoot = {}, cpuWeight = {}, cpuMax = {}, memoryMax = {}, pressureWarn = {}",
+						cgroupRoot, cgroupCpuWeight, cgroupCpuMax, cgroupMemoryMax, cgroupPressureWarn);
+				serverManager.initializeCgroups(new File(cgroupRoot), cgroupCpuWeight, cgroupCpuMax,
+						cgroupMemoryMax, cgroupPressureWarn);
+			}
+			int cpuPinning = getInt("cpu_pinning", 0);
+			String cpuPinningReserved = p.getProperty("cpu_pinning_reserved", "").trim();
+			LOG.info("cpuPinning = {}, cpuPinningReserved = {}", cpuPinning, cpuPinningReserved);
+			if (cpuPinning > 0)
+				serverManager.initializeCpuPool(cpuPinning, new HashSet<>(CpuPool.parseList(cpuPinningReserved)));
+			String cdsDir = p.getProperty("cds_dir", "").trim();
+			String cdsTemplates = p.getProperty("cds_templates", "").trim();
+			String scriptCds = p.getProperty("script_cds", "").trim();
+			int cdsTimeout = getInt("cds_timeout", 300);
+			LOG.info("cdsDir = {}, cdsTemplates = {}, scriptCds = {}, cdsTimeout = {}", cdsDir, cdsTemplates,
+					scriptCds, cdsTimeout);
+			if (!"".equals(cdsDir)) {
+				if ("".equals(cdsTemplates) || "".equals(scriptCds))
+					LOG.error("Incorrect config ! (cds_templates and script_cds are required with cds_dir)");
+				else
+					serverManager.initializeCds(new File(cdsTemplates), new File(cdsDir), scriptCds.split(" "),
+							cdsTimeout * 1000L, samplerPattern);
+			}
 			serverManager.load();
 		} catch (URISyntaxException ex) {
 			ex.printStackTrace();
@@ -247,30 +361,115 @@ public class Main {
 			LOG.error("websocket_port is not a number: {}", strWebsocketPort);
 			LOG.info("Using default websocket_port ({})", websocketPort);
 		}
-		webSocketManager = new WebSocketManager(ip, websocketPort);
+		int authConcurrency = getInt("websocket_auth_concurrency", 32);
+		int authRate = getInt("websocket_auth_rate", 100);
+		int authQueue = getInt("websocket_auth_queue", 1000);
+		int authTimeout = getInt("websocket_auth_timeout", 30);
+		int authCacheTtl = getInt("websocket_auth_cache_ttl", 300);
+		LOG.info("websocketPort = {}, authConcurrency = {}, authRate = {}, authQueue = {}, authTimeout = {}, "
+				+ "authCacheTtl = {}", websocketPort, authConcurrency, authRate, authQueue, authTimeout, authCacheTtl);
+		webSocketManager = new WebSocketManager(ip, websocketPort, authConcurrency, authRate, authQueue,
+				authTimeout * 1000L, authCacheTtl * 1000L);
 		LOG.info("WebSocket initialized");
 	}
 
+	private void initializeRecorder() {
+		String recordFile = p.getProperty("record_file");
+		if (recordFile == null || "".equalsIgnoreCase(recordFile.trim()))
+			return;
+		try {
+			TrafficRecorder.start(new File(recordFile.trim()));
+		} catch (IOException ex) {
+			LOG.error("Cannot record traffic in {}: ", recordFile, ex);
+		}
+	}
+
+	private void initializeMetrics() {
+		int metricsPort = getInt("metrics_port", 0);
+		if (metricsPort <= 0)
+			return;
+		String metricsBind = p.getProperty("metrics_bind");
+		if (metricsBind == null || "".equalsIgnoreCase(metricsBind.trim()))
+			metricsBind = "127.0.0.1";
+		metricsBind = metricsBind.trim();
+		try {
+			metricsHttpServer = new MetricsHttpServer(metricsBind, metricsPort);
+		} catch (IOException ex) {
+			LOG.error("Cannot start the metrics endpoint on {}:{}: ", metricsBind, metricsPort, ex);
+		}
+	}
+
 	private void initializeCommands() {
 		LOG.info("Initializing CommandManager");
 		commandManager = new CommandManager();
 		LOG.info("CommandManager initialized");
 	}
 
+	/**
+	 * Read an integer from the properties file
+	 * 
+	 * @param key The key
+	 * @param def The default value if the key doesn't exist or is not a number
+	 * @return The value
+	 */
+	private int getInt(String key, int def) {
+		String value = p.getProperty(key);
+		if (value == null || "".equalsIgnoreCase(value.trim()))
+			return def;
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException ex) {
+			LOG.error("{} is not a number: {}", key, value);
+			LOG.info("Using default {} ({})", key, def);
+			return def;
+		}
+	}
+
+	/**
+	 * Read a list of type:value separated by a comma from the configuration
+	 * 
+	 * @param key The key
+	 * @return type => value
+	 */
+	private Map<String, Integer> getIntMap(String key) {
+		Map<String, Integer> map = new HashMap<>();
+		for (String entry : p.getProperty(key, "").split(",")) {
+			String[] split = entry.split(":");
+			if (split.length != 2)
+				continue;
+			try {
+				map.put(split[0].trim(), Integer.parseInt(split[1].trim()));
+			} catch (NumberFormatException ex) {
+				LOG.error("Invalid value in {}: {}", key, entry);
+			}
+		}
+		return map;
+	}
+
 	public void stop() {
 		LOG.info("Shutdowning ServerManager");
 //		Main.get().getServerManager().stopAll(false);
 		serverManager.stop();
 
+		LOG.info("Saving players");
+		playerManager.stop();
+
 		LOG.info("Shutdowning WebSocket");
 		webSocketManager.stop();
 
+		serverConfigManager.stopRefresh();
+
 		LOG.info("Shutdowning NetworkManager");
 		networkManager.shutdown();
 
 		LOG.info("Shutdowning Scheduler");
 		Scheduler.stop();
 
+		TrafficRecorder.stop();
+
+		if (metricsHttpServer != null)
+			metricsHttpServer.stop();
+
 		// Exit
 		System.exit(0);
 	}
@@ -1,8 +1,14 @@
 package com.froxynetwork.servermanager.command;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.UUID;
@@ -13,8 +19,16 @@ import org.slf4j.LoggerFactory;
 
 import com.froxynetwork.froxynetwork.network.output.RestException;
 import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.metrics.Counter;
+import com.froxynetwork.servermanager.metrics.Gauge;
+import com.froxynetwork.servermanager.metrics.Histogram;
+import com.froxynetwork.servermanager.metrics.Metrics;
+import com.froxynetwork.servermanager.record.TrafficRecorder;
+import com.froxynetwork.servermanager.server.ResourceSampler;
 import com.froxynetwork.servermanager.server.config.ServerConfig;
 import com.froxynetwork.servermanager.server.config.ServerVps;
+import com.froxynetwork.servermanager.trace.Trace;
+import com.froxynetwork.servermanager.trace.TraceStore;
 
 /**
  * MIT License
@@ -106,19 +120,24 @@ public class CommandManager {
 				return true;
 			}
 			String type = args[0];
-			Main.get().getServerManager().openServer(type, UUID.randomUUID(), () -> {
+			Main.get().getServerManager().openServer(type, UUID.randomUUID(), reason -> {
 				// Error
-				LOG.error("Failed while opening a server !");
+				LOG.error("Failed while opening a server: {}", reason);
 			});
 			return true;
 		} else if ("stop".equalsIgnoreCase(label)) {
-			if (args.length != 1) {
-				LOG.info("Syntax error: /stop <id>");
+			if (args.length != 1 && (args.length != 2 || !"now".equalsIgnoreCase(args[1]))) {
+				LOG.info("Syntax error: /stop <id> [now]");
 				return true;
 			}
-			Main.get().getServerManager().closeServer(args[0], () -> {
-				LOG.info("{}: Server deleted !", args[0]);
-			});
+			if (args.length == 2)
+				Main.get().getServerManager().closeServer(args[0], () -> {
+					LOG.info("{}: Server deleted !", args[0]);
+				});
+			else
+				Main.get().getServerManager().drainServer(args[0], () -> {
+					LOG.info("{}: Server deleted !", args[0]);
+				});
 			return true;
 		} else if ("list".equalsIgnoreCase(label)) {
 			// List all different types
@@ -145,6 +164,97 @@ public class CommandManager {
 			LOG.info("- Host: {}", Main.get().getWebSocketManager().getUrl());
 			LOG.info("- Port: {}", Main.get().getWebSocketManager().getPort());
 			LOG.info("- MaxServers: {}", sv.getMaxServers());
+			LOG.info("- Servers: {}", Main.get().getServerManager().getCounters().getTotal());
+			LOG.info("- Available ports: {} / {}", Main.get().getServerManager().getPortPool().available(),
+					Main.get().getServerManager().getPortPool().size());
+			LOG.info("- Waiting starts: {}", Main.get().getServerManager().getStartQueue().size());
+			return true;
+		} else if ("record".equalsIgnoreCase(label)) {
+			if (args.length != 1) {
+				LOG.info("Syntax error: /record <file|stop>");
+				return true;
+			}
+			if ("stop".equalsIgnoreCase(args[0]))
+				TrafficRecorder.stop();
+			else if (TrafficRecorder.isEnabled())
+				LOG.info("A recording is already running, stop it first");
+			else
+				try {
+					TrafficRecorder.start(new File(args[0]));
+				} catch (IOException ex) {
+					LOG.error("Cannot record traffic in {}: ", args[0], ex);
+				}
+			return true;
+		} else if ("trace".equalsIgnoreCase(label)) {
+			if (args.length == 1) {
+				Trace trace = Main.get().getServerManager().getTraces().get(args[0]);
+				if (trace == null)
+					LOG.info("No trace found for {}", args[0]);
+				else
+					for (String line : trace.toLines())
+						LOG.info(line);
+				return true;
+			}
+			if ((args.length != 2 && args.length != 3) || !"slowest".equalsIgnoreCase(args[0])) {
+				LOG.info("Syntax error: /trace <id|uuid> or /trace slowest <n> [file]");
+				return true;
+			}
+			int n;
+			try {
+				n = Integer.parseInt(args[1]);
+			} catch (NumberFormatException ex) {
+				LOG.info("{} is not a number", args[1]);
+				return true;
+			}
+			List<Trace> traces = Main.get().getServerManager().getTraces().slowest(n);
+			if (args.length == 2) {
+				for (Trace trace : traces)
+					LOG.info("- {} (id = {}, type = {}): {} ms", trace.getUuid(), trace.getId(), trace.getType(),
+							trace.getStartDuration());
+				return true;
+			}
+			try {
+				Files.write(Paths.get(args[2]), TraceStore.toJson(traces).getBytes(StandardCharsets.UTF_8));
+				LOG.info("{} traces saved in {}", traces.size(), args[2]);
+			} catch (IOException ex) {
+				LOG.error("Cannot save traces in {}: ", args[2], ex);
+			}
+			return true;
+		} else if ("resources".equalsIgnoreCase(label)) {
+			ResourceSampler sampler = Main.get().getServerManager().getSampler();
+			if (sampler == null) {
+				LOG.info("The sampler is disabled (sampler_interval = 0)");
+				return true;
+			}
+			if (args.length == 1) {
+				ResourceSampler.Proc proc = sampler.get(args[0]);
+				if (proc == null) {
+					LOG.info("No process found for server {}", args[0]);
+					return true;
+				}
+				LOG.info("Server {} (type = {}, pid = {}):", proc.getId(), proc.getType(), proc.getPid());
+				for (String line : proc.getHistory())
+					LOG.info("- {}", line);
+				return true;
+			}
+			for (ResourceSampler.Stats stats : sampler.getAllTypeStats())
+				LOG.info("- {}: {} servers, cpu = {}%, rss = {} MB, threads = {}, read = {} KB/s, write = {} KB/s",
+						stats.getType(), stats.getServers(), stats.getCpu() / 10, stats.getRss() / 1024 / 1024,
+						stats.getThreads(), stats.getRead() / 1024, stats.getWrite() / 1024);
+			return true;
+		} else if ("metrics".equalsIgnoreCase(label)) {
+			LOG.info("Counters:");
+			Metrics.getCounters().stream().sorted(Comparator.comparing(Counter::toString)).forEach(c -> {
+				LOG.info("- {}", c);
+			});
+			LOG.info("Gauges:");
+			Metrics.getGauges().stream().sorted(Comparator.comparing(Gauge::toString)).forEach(g -> {
+				LOG.info("- {}", g);
+			});
+			LOG.info("Histograms:");
+			Metrics.getHistograms().stream().sorted(Comparator.comparing(Histogram::getName)).forEach(h -> {
+				LOG.info("- {}", h);
+			});
 			return true;
 		}
 
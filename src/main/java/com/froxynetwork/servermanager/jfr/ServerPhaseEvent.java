@@ -0,0 +1,73 @@
+package com.froxynetwork.servermanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+@Name("com.froxynetwork.servermanager.ServerPhase")
+@Label("Server Phase")
+@Category({ "ServerManager", "Server" })
+@Description("A phase of the start or the stop of a server, committed at its end")
+@StackTrace(false)
+public class ServerPhaseEvent extends Event {
+	@Label("Uuid")
+	@Description("Uuid of the start request")
+	public String uuid;
+	@Label("Server Id")
+	public String serverId;
+	@Label("Type")
+	public String type;
+	@Label("Phase")
+	public String phase;
+	/**
+	 * A phase can span many threads (REST callback, script, WebSocket), so its
+	 * duration is a field instead of the duration of the event
+	 */
+	@Label("Phase Duration")
+	@Timespan(Timespan.MILLISECONDS)
+	public long phaseDuration;
+
+	/**
+	 * Commit a finished phase if this event is enabled
+	 */
+	public static void commit(String uuid, String serverId, String type, String phase, long duration) {
+		ServerPhaseEvent event = new ServerPhaseEvent();
+		if (!event.shouldCommit())
+			return;
+		event.uuid = uuid;
+		event.serverId = serverId;
+		event.type = type;
+		event.phase = phase;
+		event.phaseDuration = duration;
+		event.commit();
+	}
+}
@@ -0,0 +1,135 @@
+package com.froxynetwork.servermanager.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class Histogram {
+	/**
+	 * Number of buckets. Bucket i contains values in [2^(i-1), 2^i[ (bucket 0
+	 * contains 0)
+	 */
+	public static final int BUCKETS = 64;
+
+	@Getter
+	private String name;
+	@Getter
+	private String labels;
+	@Getter
+	private String unit;
+	private AtomicLongArray buckets;
+	private LongAdder count;
+	private LongAdder sum;
+
+	public Histogram(String name, String labels, String unit) {
+		this.name = name;
+		this.labels = labels;
+		this.unit = unit;
+		this.buckets = new AtomicLongArray(BUCKETS);
+		this.count = new LongAdder();
+		this.sum = new LongAdder();
+	}
+
+	/**
+	 * Record a value. This method is lock-free and doesn't allocate
+	 *
+	 * @param value The value (negative values are recorded as 0)
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		buckets.incrementAndGet(bucket(value));
+		count.increment();
+		sum.add(value);
+	}
+
+	/**
+	 * @param value The value
+	 * @return The index of the bucket of this value
+	 */
+	public static int bucket(long value) {
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+	}
+
+	/**
+	 * @param bucket The index of the bucket
+	 * @return The upper bound (inclusive) of this bucket
+	 */
+	public static long upperBound(int bucket) {
+		if (bucket >= 63)
+			return Long.MAX_VALUE;
+		return (1L << bucket) - 1;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSum() {
+		return sum.sum();
+	}
+
+	public long getBucket(int bucket) {
+		return buckets.get(bucket);
+	}
+
+	/**
+	 * Return an approximation of the percentile (upper bound of the bucket
+	 * containing it)
+	 *
+	 * @param p The percentile, between 0 and 1
+	 * @return The approximated value
+	 */
+	public long percentile(double p) {
+		long total = 0;
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			copy[i] = buckets.get(i);
+			total += copy[i];
+		}
+		if (total == 0)
+			return 0;
+		long rank = (long) Math.ceil(p * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += copy[i];
+			if (seen >= rank && copy[i] > 0)
+				return upperBound(i);
+		}
+		return upperBound(BUCKETS - 1);
+	}
+
+	@Override
+	public String toString() {
+		long count = getCount();
+		return name + (labels == null ? "" : "{" + labels + "}") + ": count = " + count + ", avg = "
+				+ (count == 0 ? 0 : getSum() / count) + " " + unit + ", p50 <= " + percentile(0.5) + " " + unit
+				+ ", p99 <= " + percentile(0.99) + " " + unit;
+	}
+}
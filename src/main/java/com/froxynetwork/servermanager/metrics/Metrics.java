@@ -0,0 +1,104 @@
+package com.froxynetwork.servermanager.metrics;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class Metrics {
+	private static ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+	private static ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+	private static ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+	/**
+	 * Get or create a histogram.<br />
+	 * Keep the returned instance in hot paths instead of calling this method each
+	 * time
+	 *
+	 * @param name   The name of the histogram
+	 * @param labels The labels (ex: link="core"), or null
+	 * @param unit   The unit of recorded values
+	 * @return The histogram
+	 */
+	public static Histogram histogram(String name, String labels, String unit) {
+		return histograms.computeIfAbsent(key(name, labels), k -> new Histogram(name, labels, unit));
+	}
+
+	/**
+	 * Get or create a counter.<br />
+	 * Keep the returned instance in hot paths instead of calling this method each
+	 * time
+	 *
+	 * @param name   The name of the counter
+	 * @param labels The labels (ex: cache="hit"), or null
+	 * @return The counter
+	 */
+	public static Counter counter(String name, String labels) {
+		return counters.computeIfAbsent(key(name, labels), k -> new Counter(name, labels));
+	}
+
+	/**
+	 * Register a gauge. The value is read each time the gauge is displayed
+	 *
+	 * @param name   The name of the gauge
+	 * @param labels The labels, or null
+	 * @param value  The supplier of the value
+	 */
+	public static void gauge(String name, String labels, LongSupplier value) {
+		gauges.put(key(name, labels), new Gauge(name, labels, value));
+	}
+
+	/**
+	 * Remove a gauge
+	 */
+	public static void removeGauge(String name, String labels) {
+		gauges.remove(key(name, labels));
+	}
+
+	/**
+	 * Remove a histogram (ex: when a server is closed)
+	 */
+	public static void removeHistogram(String name, String labels) {
+		histograms.remove(key(name, labels));
+	}
+
+	public static Collection<Histogram> getHistograms() {
+		return histograms.values();
+	}
+
+	public static Collection<Counter> getCounters() {
+		return counters.values();
+	}
+
+	public static Collection<Gauge> getGauges() {
+		return gauges.values();
+	}
+
+	private static String key(String name, String labels) {
+		return labels == null ? name : name + "{" + labels + "}";
+	}
+}
@@ -0,0 +1,168 @@
+package com.froxynetwork.servermanager.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class MetricsHttpServer {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	private HttpServer http;
+	private ExecutorService executor;
+
+	/**
+	 * Expose all metrics in the Prometheus text format on
+	 * http://&lt;host&gt;:&lt;port&gt;/metrics
+	 * 
+	 * @param bind The address to listen on (ex: 127.0.0.1 for local scrapes only)
+	 * @param port The port
+	 */
+	public MetricsHttpServer(String bind, int port) throws IOException {
+		http = HttpServer.create(new InetSocketAddress(bind, port), 0);
+		// One thread is enough, a scrape only reads counters
+		executor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "Metrics-Http");
+			t.setDaemon(true);
+			return t;
+		});
+		http.setExecutor(executor);
+		http.createContext("/metrics", this::handle);
+		http.start();
+		LOG.info("Metrics available on {}:{}", bind, port);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * @return All metrics in the Prometheus text format
+	 */
+	public static String scrape() {
+		StringBuilder sb = new StringBuilder(8192);
+		// Metrics with the same name must be grouped under one TYPE line
+		for (Map.Entry<String, List<Counter>> e : group(Metrics.getCounters(), Counter::getName).entrySet()) {
+			String name = e.getKey() + "_total";
+			sb.append("# TYPE ").append(name).append(" counter\n");
+			for (Counter c : e.getValue())
+				line(sb, name, c.getLabels(), null, c.get());
+		}
+		for (Map.Entry<String, List<Gauge>> e : group(Metrics.getGauges(), Gauge::getName).entrySet()) {
+			sb.append("# TYPE ").append(e.getKey()).append(" gauge\n");
+			for (Gauge g : e.getValue()) {
+				long value;
+				try {
+					value = g.get();
+				} catch (Exception ex) {
+					// The value is not available (ex: the gauge reads a closed object)
+					continue;
+				}
+				line(sb, e.getKey(), g.getLabels(), null, value);
+			}
+		}
+		for (Map.Entry<String, List<Histogram>> e : group(Metrics.getHistograms(), Histogram::getName).entrySet()) {
+			String name = e.getKey();
+			sb.append("# TYPE ").append(name).append(" histogram\n");
+			for (Histogram h : e.getValue()) {
+				long[] buckets = new long[Histogram.BUCKETS];
+				int last = -1;
+				for (int i = 0; i < Histogram.BUCKETS; i++) {
+					buckets[i] = h.getBucket(i);
+					if (buckets[i] > 0)
+						last = i;
+				}
+				// Empty buckets after the last used one are not displayed
+				long count = 0;
+				for (int i = 0; i <= last; i++) {
+					count += buckets[i];
+					// The last bucket has no upper bound
+					if (i < Histogram.BUCKETS - 1)
+						line(sb, name + "_bucket", h.getLabels(), "le=\"" + Histogram.upperBound(i) + "\"", count);
+				}
+				line(sb, name + "_bucket", h.getLabels(), "le=\"+Inf\"", count);
+				line(sb, name + "_sum", h.getLabels(), null, h.getSum());
+				line(sb, name + "_count", h.getLabels(), null, count);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void line(StringBuilder sb, String name, String labels, String extra, long value) {
+		sb.append(name);
+		if (labels != null || extra != null) {
+			sb.append('{');
+			if (labels != null)
+				sb.append(labels);
+			if (labels != null && extra != null)
+				sb.append(',');
+			if (extra != null)
+				sb.append(extra);
+			sb.append('}');
+		}
+		sb.append(' ').append(value).append('\n');
+	}
+
+	private static <T> TreeMap<String, List<T>> group(Iterable<T> metrics, Function<T, String> name) {
+		TreeMap<String, List<T>> map = new TreeMap<>();
+		for (T m : metrics)
+			map.computeIfAbsent(name.apply(m), n -> new ArrayList<>()).add(m);
+		return map;
+	}
+
+	public void stop() {
+		http.stop(0);
+		executor.shutdownNow();
+	}
+}
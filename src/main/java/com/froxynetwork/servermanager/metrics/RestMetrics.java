@@ -0,0 +1,146 @@
+package com.froxynetwork.servermanager.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.froxynetwork.froxynetwork.network.output.Callback;
+import com.froxynetwork.froxynetwork.network.output.RestException;
+import com.froxynetwork.servermanager.jfr.RestCallEvent;
+
+import jdk.jfr.EventType;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class RestMetrics {
+	/**
+	 * Metrics of each endpoint, resolved once instead of at each call
+	 */
+	private static ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+	private static final EventType REST_EVENT = EventType.getEventType(RestCallEvent.class);
+
+	private RestMetrics() {
+	}
+
+	/**
+	 * Wrap a callback of an async REST call to record its latency and its result
+	 * 
+	 * @param endpoint The name of the endpoint (ex: server_add)
+	 * @param callback The callback
+	 * @return The callback to give to the REST service
+	 */
+	public static <T> Callback<T> wrap(String endpoint, Callback<T> callback) {
+		Endpoint e = endpoints.computeIfAbsent(endpoint, Endpoint::new);
+		long start = System.nanoTime();
+		RestCallEvent event = begin();
+		return new Callback<T>() {
+
+			@Override
+			public void onResponse(T response) {
+				e.done(start, event, e.ok, "ok");
+				callback.onResponse(response);
+			}
+
+			@Override
+			public void onFailure(RestException ex) {
+				e.done(start, event, e.error, "error");
+				callback.onFailure(ex);
+			}
+
+			@Override
+			public void onFatalFailure(Throwable t) {
+				e.done(start, event, e.fatal, "fatal");
+				callback.onFatalFailure(t);
+			}
+		};
+	}
+
+	/**
+	 * Execute a sync REST call and record its latency and its result
+	 * 
+	 * @param endpoint The name of the endpoint (ex: server_list)
+	 * @param call     The call
+	 * @return The response
+	 */
+	public static <T> T call(String endpoint, RestCall<T> call) throws Exception {
+		Endpoint e = endpoints.computeIfAbsent(endpoint, Endpoint::new);
+		long start = System.nanoTime();
+		RestCallEvent event = begin();
+		try {
+			T response = call.call();
+			e.done(start, event, e.ok, "ok");
+			return response;
+		} catch (RestException ex) {
+			e.done(start, event, e.error, "error");
+			throw ex;
+		} catch (Exception ex) {
+			e.done(start, event, e.fatal, "fatal");
+			throw ex;
+		}
+	}
+
+	/**
+	 * @return The started event, or null if it's not recorded
+	 */
+	private static RestCallEvent begin() {
+		if (!REST_EVENT.isEnabled())
+			return null;
+		RestCallEvent event = new RestCallEvent();
+		event.begin();
+		return event;
+	}
+
+	private static class Endpoint {
+		private final String name;
+		private final Histogram latency;
+		private final Counter ok;
+		private final Counter error;
+		private final Counter fatal;
+
+		private Endpoint(String name) {
+			this.name = name;
+			String labels = "endpoint=\"" + name + "\"";
+			latency = Metrics.histogram("rest_latency_ms", labels, "ms");
+			ok = Metrics.counter("rest_requests", labels + ",result=\"ok\"");
+			error = Metrics.counter("rest_requests", labels + ",result=\"error\"");
+			fatal = Metrics.counter("rest_requests", labels + ",result=\"fatal\"");
+		}
+
+		private void done(long start, RestCallEvent event, Counter requests, String result) {
+			latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			requests.inc();
+			if (event != null && event.shouldCommit()) {
+				event.endpoint = name;
+				event.result = result;
+				event.commit();
+			}
+		}
+	}
+
+	@FunctionalInterface
+	public interface RestCall<T> {
+		T call() throws Exception;
+	}
+}
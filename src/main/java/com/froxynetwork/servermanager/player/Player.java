@@ -2,12 +2,14 @@ package com.froxynetwork.servermanager.player;
 
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.froxynetwork.froxynetwork.network.output.data.PlayerDataOutput;
 import com.froxynetwork.servermanager.Main;
 import com.froxynetwork.servermanager.server.Server;
 
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
 
 /**
  * MIT License
@@ -36,37 +38,112 @@ import lombok.Setter;
  */
 @Getter
 public class Player {
+	// Dirty fields
+	public static final int DISPLAY_NAME = 1;
+	public static final int COINS = 1 << 1;
+	public static final int LEVEL = 1 << 2;
+	public static final int EXP = 1 << 3;
+	public static final int LAST_LOGIN = 1 << 4;
+	public static final int LANG = 1 << 5;
+
 	private UUID uuid;
 	private String nickname;
-	@Setter
-	private String displayName;
-	@Setter
-	private int coins;
-	@Setter
-	private int level;
-	@Setter
-	private int exp;
+	private volatile String displayName;
+	private volatile int coins;
+	private volatile int level;
+	private volatile int exp;
 	private Date firstLogin;
-	@Setter
-	private Date lastLogin;
+	private volatile Date lastLogin;
 	private String ip;
-	@Setter
-	private String lang;
-	@Setter
-	private Server server;
-	private com.froxynetwork.froxynetwork.network.output.data.PlayerDataOutput restPlayer;
+	private volatile String lang;
+	/**
+	 * The id of the server the player is on, or null. Changed by
+	 * {@link PlayerManager#movePlayer(UUID, String)}
+	 */
+	private volatile String serverId;
+	/**
+	 * The type of the server the player is on, or null if the player isn't on a
+	 * server of this VPS
+	 */
+	private volatile String serverType;
+	private PlayerDataOutput.Player restPlayer;
+	@Getter(AccessLevel.NONE)
+	private AtomicInteger dirty;
 
-	public Player(com.froxynetwork.froxynetwork.network.output.data.PlayerDataOutput restPlayer) {
+	public Player(PlayerDataOutput.Player restPlayer) {
 		this.restPlayer = restPlayer;
-		this.uuid = UUID.fromString(restPlayer.getData().getUuid());
-		this.nickname = restPlayer.getData().getNickname();
-		this.displayName = restPlayer.getData().getDisplayName();
-		this.coins = restPlayer.getData().getCoins();
-		this.level = restPlayer.getData().getLevel();
-		this.exp = restPlayer.getData().getExp();
-		this.firstLogin = restPlayer.getData().getFirstLogin();
-		this.lastLogin = restPlayer.getData().getLastLogin();
-		String serverId = restPlayer.getData().getServer() == null ? null : restPlayer.getData().getServer().getId();
-		server = Main.get().getServerManager().getServer(serverId);
+		this.dirty = new AtomicInteger();
+		this.uuid = UUID.fromString(restPlayer.getUuid());
+		this.nickname = restPlayer.getNickname();
+		this.displayName = restPlayer.getDisplayName();
+		this.coins = restPlayer.getCoins();
+		this.level = restPlayer.getLevel();
+		this.exp = restPlayer.getExp();
+		this.firstLogin = restPlayer.getFirstLogin();
+		this.lastLogin = restPlayer.getLastLogin();
+		// Sent back by the PlayerWriter, must be loaded or the saved value is lost
+		this.ip = restPlayer.getIp();
+		this.lang = restPlayer.getLang();
+		this.serverId = restPlayer.getServer() == null ? null : restPlayer.getServer().getId();
+	}
+
+	/**
+	 * @return The server the player is on if this server is on this VPS, or null
+	 */
+	public Server getServer() {
+		String serverId = this.serverId;
+		return serverId == null ? null : Main.get().getServerManager().getServer(serverId);
+	}
+
+	public void setDisplayName(String displayName) {
+		this.displayName = displayName;
+		markDirty(DISPLAY_NAME);
+	}
+
+	public void setCoins(int coins) {
+		this.coins = coins;
+		markDirty(COINS);
+	}
+
+	public void setLevel(int level) {
+		this.level = level;
+		markDirty(LEVEL);
+	}
+
+	public void setExp(int exp) {
+		this.exp = exp;
+		markDirty(EXP);
+	}
+
+	public void setLastLogin(Date lastLogin) {
+		this.lastLogin = lastLogin;
+		markDirty(LAST_LOGIN);
+	}
+
+	public void setLang(String lang) {
+		this.lang = lang;
+		markDirty(LANG);
+	}
+
+	/**
+	 * Mark fields as changed. They will be sent by the {@link PlayerWriter}
+	 * 
+	 * @param fields The fields (ex: COINS | EXP)
+	 */
+	void markDirty(int fields) {
+		if (dirty.getAndAccumulate(fields, (a, b) -> a | b) == 0)
+			Main.get().getPlayerManager().getWriter().onDirty(this);
+	}
+
+	/**
+	 * @return The dirty fields, and mark them as clean
+	 */
+	int takeDirty() {
+		return dirty.getAndSet(0);
+	}
+
+	void setServer(String serverId, String serverType) {
+		this.serverId = serverId;
+		this.serverType = serverType;
 	}
 }
@@ -1,9 +1,17 @@
 package com.froxynetwork.servermanager.player;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.froxynetwork.froxynetwork.network.output.data.PlayerDataOutput;
+import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.server.Server;
+import com.froxynetwork.servermanager.server.ServerManager;
+
+import lombok.Getter;
 
 /**
  * MIT License
@@ -31,24 +39,230 @@ import com.froxynetwork.froxynetwork.network.output.data.PlayerDataOutput;
  * @author 0ddlyoko
  */
 public class PlayerManager {
-	private HashMap<UUID, Player> players;
+	private PlayerTable players;
+	@Getter
+	private PlayerWriter writer;
+	/**
+	 * Server id => players on this server
+	 */
+	private ConcurrentHashMap<String, Set<Player>> byServer;
+	/**
+	 * Server id => number of players on this server
+	 */
+	private ConcurrentHashMap<String, AtomicInteger> serverCounts;
+	/**
+	 * Type => number of players on servers of this type (only servers of this VPS)
+	 */
+	private ConcurrentHashMap<String, AtomicInteger> typeCounts;
+
+	/**
+	 * @param flushInterval The max time (in ms) between a change of a player and
+	 *                      its save
+	 * @param flushBatch    Save changes as soon as this number of players are
+	 *                      dirty
+	 */
+	public PlayerManager(int flushInterval, int flushBatch) {
+		players = new PlayerTable();
+		writer = new PlayerWriter(flushInterval, flushBatch);
+		byServer = new ConcurrentHashMap<>();
+		serverCounts = new ConcurrentHashMap<>();
+		typeCounts = new ConcurrentHashMap<>();
+	}
 
-	public PlayerManager() {
-		players = new HashMap<>();
+	public Player addPlayer(PlayerDataOutput restPlayer) {
+		return addPlayer(restPlayer.getData());
 	}
 
-	public void addPlayer(PlayerDataOutput restPlayer) {
+	/**
+	 * Add a player, or replace the player with the same UUID
+	 * 
+	 * @param restPlayer The data of the player
+	 * @return The player
+	 */
+	public Player addPlayer(PlayerDataOutput.Player restPlayer) {
 		Player p = new Player(restPlayer);
-		players.put(p.getUuid(), p);
+		String serverId = p.getServerId();
+		// Not indexed yet
+		p.setServer(null, null);
+		Player old = players.put(p);
+		if (old != null)
+			// Its changes not saved yet stay in the queue of the writer
+			move(old, null);
+		move(p, serverId);
+		return p;
 	}
 
 	public void removePlayer(UUID uuid) {
-		players.remove(uuid);
+		Player p = players.remove(uuid);
+		if (p != null) {
+			// Not saved here: this is called by a WebSocket thread. The last changes stay
+			// in the queue of the writer, that keeps the player until they are saved
+			writer.flushSoon();
+			move(p, null);
+		}
 	}
 
 	public Player getPlayer(UUID uuid) {
 		return players.get(uuid);
 	}
-	
-//	public void editData(UUID uuid, )
+
+	/**
+	 * Get a player without creating an UUID
+	 */
+	public Player getPlayer(long msb, long lsb) {
+		return players.get(msb, lsb);
+	}
+
+	/**
+	 * Edit a field of a player. The change is saved by the {@link PlayerWriter}
+	 * 
+	 * @param uuid  The UUID of the player
+	 * @param field The field (displayName, coins, level, exp or lang)
+	 * @param value The new value
+	 * @return false if this player doesn't exist, or if the field or the value is
+	 *         invalid
+	 */
+	public boolean editData(UUID uuid, String field, String value) {
+		Player p = players.get(uuid);
+		if (p == null)
+			return false;
+		try {
+			switch (field) {
+			case "displayName":
+				p.setDisplayName(value);
+				return true;
+			case "coins":
+				p.setCoins(Integer.parseInt(value));
+				return true;
+			case "level":
+				p.setLevel(Integer.parseInt(value));
+				return true;
+			case "exp":
+				p.setExp(Integer.parseInt(value));
+				return true;
+			case "lang":
+				p.setLang(value);
+				return true;
+			default:
+				return false;
+			}
+		} catch (NumberFormatException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Move a player to another server
+	 * 
+	 * @param uuid     The UUID of the player
+	 * @param serverId The id of the new server, or null if the player isn't on a
+	 *                 server anymore
+	 * @return false if this player doesn't exist
+	 */
+	public boolean movePlayer(UUID uuid, String serverId) {
+		Player p = players.get(uuid);
+		if (p == null)
+			return false;
+		move(p, serverId);
+		return true;
+	}
+
+	private void move(Player p, String serverId) {
+		Server from;
+		Server to;
+		// Lock the player so two moves of the same player can't interleave
+		synchronized (p) {
+			String oldId = p.getServerId();
+			if (oldId == null ? serverId == null : oldId.equals(serverId))
+				return;
+			ServerManager sm = Main.get().getServerManager();
+			from = oldId == null ? null : sm.getServer(oldId);
+			to = serverId == null ? null : sm.getServer(serverId);
+			if (oldId != null) {
+				Set<Player> set = byServer.get(oldId);
+				if (set != null)
+					set.remove(p);
+				AtomicInteger count = serverCounts.get(oldId);
+				if (count != null)
+					count.decrementAndGet();
+				if (p.getServerType() != null)
+					typeCounts.get(p.getServerType()).decrementAndGet();
+			}
+			String type = to == null ? null : to.getType();
+			if (serverId != null) {
+				byServer.computeIfAbsent(serverId, id -> ConcurrentHashMap.newKeySet()).add(p);
+				serverCounts.computeIfAbsent(serverId, id -> new AtomicInteger()).incrementAndGet();
+				if (type != null)
+					typeCounts.computeIfAbsent(type, t -> new AtomicInteger()).incrementAndGet();
+			}
+			p.setServer(serverId, type);
+		}
+		// Publish the new player counts
+		if (from != null)
+			updateServer(from);
+		if (to != null)
+			updateServer(to);
+	}
+
+	private void updateServer(Server srv) {
+		srv.setPlayers(getPlayerCount(srv.getId()));
+		Main.get().getServerManager().getPlacement().update(srv);
+		Main.get().getServerManager().getStateSync().update(srv);
+	}
+
+	/**
+	 * Remove the index of a server once it's closed. Players still on it are
+	 * moved to no server
+	 * 
+	 * @param serverId The id of the server
+	 */
+	public void removeServer(String serverId) {
+		Set<Player> set = byServer.get(serverId);
+		if (set != null)
+			for (Player p : set)
+				move(p, null);
+		byServer.remove(serverId);
+		serverCounts.remove(serverId);
+	}
+
+	/**
+	 * @param serverId The id of the server
+	 * @return A read-only view of the players on this server
+	 */
+	public Set<Player> getPlayers(String serverId) {
+		Set<Player> set = byServer.get(serverId);
+		return set == null ? Collections.emptySet() : Collections.unmodifiableSet(set);
+	}
+
+	/**
+	 * @param serverId The id of the server
+	 * @return The number of players on this server
+	 */
+	public int getPlayerCount(String serverId) {
+		AtomicInteger count = serverCounts.get(serverId);
+		return count == null ? 0 : count.get();
+	}
+
+	/**
+	 * @param type The type
+	 * @return The number of players on servers of this type of this VPS
+	 */
+	public int getTypeCount(String type) {
+		AtomicInteger count = typeCounts.get(type);
+		return count == null ? 0 : count.get();
+	}
+
+	/**
+	 * @return The number of players
+	 */
+	public int size() {
+		return players.size();
+	}
+
+	/**
+	 * Save all changes of players
+	 */
+	public void stop() {
+		writer.stop();
+	}
 }
@@ -0,0 +1,214 @@
+package com.froxynetwork.servermanager.player;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class PlayerTable {
+	private static final int STRIPES = 64;
+
+	private Stripe[] stripes;
+
+	public PlayerTable() {
+		stripes = new Stripe[STRIPES];
+		for (int i = 0; i < STRIPES; i++)
+			stripes[i] = new Stripe();
+	}
+
+	/**
+	 * @param msb The most significant bits of the UUID
+	 * @param lsb The least significant bits of the UUID
+	 * @return The player, or null
+	 */
+	public Player get(long msb, long lsb) {
+		long h = hash(msb, lsb);
+		return stripe(h).get(msb, lsb, h);
+	}
+
+	public Player get(UUID uuid) {
+		return get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+	}
+
+	/**
+	 * Add a player, or replace the player with the same UUID
+	 * 
+	 * @param p The player
+	 * @return The old player, or null
+	 */
+	public Player put(Player p) {
+		long msb = p.getUuid().getMostSignificantBits();
+		long lsb = p.getUuid().getLeastSignificantBits();
+		long h = hash(msb, lsb);
+		return stripe(h).put(msb, lsb, h, p);
+	}
+
+	/**
+	 * @return The removed player, or null
+	 */
+	public Player remove(long msb, long lsb) {
+		long h = hash(msb, lsb);
+		return stripe(h).remove(msb, lsb, h);
+	}
+
+	public Player remove(UUID uuid) {
+		return remove(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+	}
+
+	public int size() {
+		int size = 0;
+		for (Stripe s : stripes)
+			size += s.size;
+		return size;
+	}
+
+	/**
+	 * Iterate over all players. Each stripe is locked while it is iterated, so the
+	 * action must not modify this table
+	 */
+	public void forEach(Consumer<Player> action) {
+		for (Stripe s : stripes)
+			s.forEach(action);
+	}
+
+	private Stripe stripe(long h) {
+		// High bits choose the stripe, low bits the slot
+		return stripes[(int) (h >>> 58) & (STRIPES - 1)];
+	}
+
+	private static long hash(long msb, long lsb) {
+		// fmix64 of MurmurHash3
+		long h = msb ^ Long.rotateLeft(lsb, 32);
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Open addressing table with linear probing. Removals shift the following
+	 * entries back so no tombstone is needed
+	 */
+	private static class Stripe {
+		private long[] msbs = new long[16];
+		private long[] lsbs = new long[16];
+		private Player[] values = new Player[16];
+		private volatile int size;
+
+		private synchronized Player get(long msb, long lsb, long h) {
+			int mask = values.length - 1;
+			for (int i = (int) h & mask;; i = (i + 1) & mask) {
+				Player p = values[i];
+				if (p == null)
+					return null;
+				if (msbs[i] == msb && lsbs[i] == lsb)
+					return p;
+			}
+		}
+
+		private synchronized Player put(long msb, long lsb, long h, Player value) {
+			int mask = values.length - 1;
+			int i = (int) h & mask;
+			for (;; i = (i + 1) & mask) {
+				Player p = values[i];
+				if (p == null)
+					break;
+				if (msbs[i] == msb && lsbs[i] == lsb) {
+					values[i] = value;
+					return p;
+				}
+			}
+			msbs[i] = msb;
+			lsbs[i] = lsb;
+			values[i] = value;
+			size++;
+			// Keep the load factor under 0.5
+			if (size * 2 > values.length)
+				resize();
+			return null;
+		}
+
+		private synchronized Player remove(long msb, long lsb, long h) {
+			int mask = values.length - 1;
+			int i = (int) h & mask;
+			for (;; i = (i + 1) & mask) {
+				Player p = values[i];
+				if (p == null)
+					return null;
+				if (msbs[i] == msb && lsbs[i] == lsb)
+					break;
+			}
+			Player old = values[i];
+			// Backward shift deletion
+			int j = i;
+			while (true) {
+				j = (j + 1) & mask;
+				if (values[j] == null)
+					break;
+				int home = (int) hash(msbs[j], lsbs[j]) & mask;
+				// Move j to i if its home slot isn't in ]i, j]
+				if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+					msbs[i] = msbs[j];
+					lsbs[i] = lsbs[j];
+					values[i] = values[j];
+					i = j;
+				}
+			}
+			values[i] = null;
+			size--;
+			return old;
+		}
+
+		private void resize() {
+			long[] oldMsbs = msbs;
+			long[] oldLsbs = lsbs;
+			Player[] oldValues = values;
+			int length = oldValues.length * 2;
+			int mask = length - 1;
+			msbs = new long[length];
+			lsbs = new long[length];
+			values = new Player[length];
+			for (int k = 0; k < oldValues.length; k++) {
+				if (oldValues[k] == null)
+					continue;
+				int i = (int) hash(oldMsbs[k], oldLsbs[k]) & mask;
+				while (values[i] != null)
+					i = (i + 1) & mask;
+				msbs[i] = oldMsbs[k];
+				lsbs[i] = oldLsbs[k];
+				values[i] = oldValues[k];
+			}
+		}
+
+		private synchronized void forEach(Consumer<Player> action) {
+			for (Player p : values)
+				if (p != null)
+					action.accept(p);
+		}
+	}
+}
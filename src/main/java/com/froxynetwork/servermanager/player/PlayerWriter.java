@@ -0,0 +1,228 @@
+package com.froxynetwork.servermanager.player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.froxynetwork.network.output.Callback;
+import com.froxynetwork.froxynetwork.network.output.RestException;
+import com.froxynetwork.froxynetwork.network.output.data.PlayerDataOutput;
+import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.metrics.Counter;
+import com.froxynetwork.servermanager.metrics.Histogram;
+import com.froxynetwork.servermanager.metrics.Metrics;
+import com.froxynetwork.servermanager.metrics.RestMetrics;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class PlayerWriter {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+	/**
+	 * The max time (in ms) to wait for the answers of a batch
+	 */
+	private static final long TIMEOUT = 30000;
+
+	private int interval;
+	private int batch;
+	/**
+	 * Dirty players => time (in ms) of the first change not sent yet
+	 */
+	private ConcurrentHashMap<Player, Long> pending;
+	private Thread thread;
+	private volatile boolean stop;
+
+	private Histogram lag;
+	private Counter ok;
+	private Counter error;
+
+	/**
+	 * @param interval The max time (in ms) between a change and its flush
+	 * @param batch    Flush as soon as this number of players are dirty
+	 */
+	public PlayerWriter(int interval, int batch) {
+		this.interval = Math.max(1, interval);
+		this.batch = Math.max(1, batch);
+		this.pending = new ConcurrentHashMap<>();
+		this.lag = Metrics.histogram("player_flush_lag_ms", null, "ms");
+		this.ok = Metrics.counter("player_flush", "result=\"ok\"");
+		this.error = Metrics.counter("player_flush", "result=\"error\"");
+		Metrics.gauge("player_dirty", null, () -> pending.size());
+		thread = new Thread(() -> {
+			while (!stop) {
+				try {
+					synchronized (this) {
+						if (pending.size() < this.batch)
+							wait(this.interval);
+					}
+					flushAll();
+				} catch (InterruptedException ex) {
+					return;
+				} catch (Exception ex) {
+					LOG.error("Error in PlayerWriter: ", ex);
+				}
+			}
+		}, "PlayerManager-Writer");
+		thread.start();
+	}
+
+	/**
+	 * Called by {@link Player} when a field becomes dirty and the player wasn't
+	 * dirty. Changes made until the flush are sent with a single request
+	 */
+	void onDirty(Player p) {
+		pending.putIfAbsent(p, System.currentTimeMillis());
+		if (pending.size() >= batch)
+			synchronized (this) {
+				notify();
+			}
+	}
+
+	/**
+	 * Flush all dirty players and wait for the answers.<br />
+	 * The REST API has no endpoint to edit many players at once, so a batch is
+	 * sent as {@link #batch} concurrent requests (one per player)
+	 */
+	public void flushAll() {
+		List<Player> players = new ArrayList<>(batch);
+		for (Player p : pending.keySet()) {
+			players.add(p);
+			if (players.size() >= batch) {
+				flush(players);
+				players.clear();
+			}
+		}
+		if (!players.isEmpty())
+			flush(players);
+	}
+
+	/**
+	 * Wake up the flush thread, without waiting for the save. Used when a player
+	 * leaves, so its last changes are saved without waiting for the interval
+	 */
+	public void flushSoon() {
+		synchronized (this) {
+			notify();
+		}
+	}
+
+	/**
+	 * Send these players concurrently and wait for the answers
+	 */
+	private void flush(List<Player> players) {
+		CountDownLatch latch = new CountDownLatch(players.size());
+		for (Player p : players) {
+			Long since = pending.remove(p);
+			int dirty = p.takeDirty();
+			if (dirty == 0) {
+				latch.countDown();
+				continue;
+			}
+			try {
+				send(p, new Callback<PlayerDataOutput.Player>() {
+
+					@Override
+					public void onResponse(PlayerDataOutput.Player response) {
+						ok.inc();
+						if (since != null)
+							lag.record(System.currentTimeMillis() - since);
+						latch.countDown();
+					}
+
+					@Override
+					public void onFailure(RestException ex) {
+						failed(p, dirty, since, ex);
+						latch.countDown();
+					}
+
+					@Override
+					public void onFatalFailure(Throwable t) {
+						failed(p, dirty, since, t);
+						latch.countDown();
+					}
+				});
+			} catch (Exception ex) {
+				failed(p, dirty, since, ex);
+				latch.countDown();
+			}
+		}
+		try {
+			if (!latch.await(TIMEOUT, TimeUnit.MILLISECONDS))
+				LOG.warn("{} players are still being saved", latch.getCount());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Keep the fields of this player dirty so they are sent with the next flush
+	 */
+	private void failed(Player p, int dirty, Long since, Throwable t) {
+		error.inc();
+		LOG.error("Error while saving player {}", p.getUuid());
+		LOG.error("", t);
+		p.markDirty(dirty);
+		if (since != null)
+			pending.merge(p, since, Math::min);
+	}
+
+	/**
+	 * Send the editable fields of this player. The edit replaces the whole
+	 * player, so all fields are sent with their current value, including fields
+	 * changed after the dirty flags have been taken (they are sent again with the
+	 * next flush)
+	 */
+	private void send(Player p, Callback<PlayerDataOutput.Player> callback) {
+		Main.get().getNetworkManager().getNetwork().getPlayerService().asyncEditPlayer(p.getUuid().toString(),
+				p.getDisplayName(), p.getCoins(), p.getLevel(), p.getExp(), p.getLastLogin(), p.getLang(),
+				RestMetrics.wrap("player_edit", callback));
+	}
+
+	/**
+	 * @return The number of dirty players
+	 */
+	public int size() {
+		return pending.size();
+	}
+
+	/**
+	 * Stop the flush thread and flush all dirty players
+	 */
+	public void stop() {
+		stop = true;
+		thread.interrupt();
+		try {
+			thread.join(interval);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		flushAll();
+	}
+}
@@ -0,0 +1,128 @@
+package com.froxynetwork.servermanager.record;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class TrafficReader implements Closeable {
+	private DataInputStream in;
+	/**
+	 * Time (System.currentTimeMillis()) when the recording started
+	 */
+	@Getter
+	private long startTime;
+	private List<String> strings;
+
+	public TrafficReader(File file) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+		if (in.readInt() != TrafficRecorder.MAGIC) {
+			in.close();
+			throw new IOException(file + " is not a recording");
+		}
+		int format = in.readInt();
+		if (format != TrafficRecorder.FORMAT) {
+			in.close();
+			throw new IOException("Unsupported recording format " + format);
+		}
+		startTime = in.readLong();
+		strings = new ArrayList<>();
+	}
+
+	/**
+	 * @return The next record, or null at the end of the recording
+	 */
+	public TrafficRecord next() throws IOException {
+		long nanos;
+		try {
+			nanos = readVarLong();
+		} catch (EOFException ex) {
+			return null;
+		}
+		int flags = in.readUnsignedByte();
+		String link = readString();
+		String channel = readString();
+		String message = null;
+		if ((flags & 2) == 0) {
+			byte[] bytes = new byte[(int) readVarLong()];
+			in.readFully(bytes);
+			message = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return new TrafficRecord(nanos, (flags & 1) != 0, link, channel, message);
+	}
+
+	private String readString() throws IOException {
+		int index = (int) readVarLong();
+		if (index < strings.size())
+			return strings.get(index);
+		String s = in.readUTF();
+		strings.add(s);
+		return s;
+	}
+
+	private long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Invalid varint");
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Print a recording.<br />
+	 * Usage: TrafficReader &lt;file&gt;
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: TrafficReader <file>");
+			System.exit(1);
+			return;
+		}
+		try (TrafficReader reader = new TrafficReader(new File(args[0]))) {
+			TrafficRecord r;
+			while ((r = reader.next()) != null)
+				System.out.println(r);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package com.froxynetwork.servermanager.record;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+@Getter
+public class TrafficRecord {
+	/**
+	 * Time (in ns) since the start of the recording
+	 */
+	private long nanos;
+	/**
+	 * true if the command has been sent by the ServerManager
+	 */
+	private boolean outbound;
+	/**
+	 * "core" or the id of the server
+	 */
+	private String link;
+	private String channel;
+	private String message;
+
+	public TrafficRecord(long nanos, boolean outbound, String link, String channel, String message) {
+		this.nanos = nanos;
+		this.outbound = outbound;
+		this.link = link;
+		this.channel = channel;
+		this.message = message;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d.%09d %s %s %s %s", nanos / 1_000_000_000L, nanos % 1_000_000_000L,
+				outbound ? ">" : "<", link, channel, message == null ? "" : message);
+	}
+}
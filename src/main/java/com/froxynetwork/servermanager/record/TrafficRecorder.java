@@ -0,0 +1,230 @@
+package com.froxynetwork.servermanager.record;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.froxynetwork.network.websocket.IWebSocketCommander;
+import com.froxynetwork.servermanager.jfr.WebSocketCommandEvent;
+import com.froxynetwork.servermanager.metrics.Counter;
+import com.froxynetwork.servermanager.metrics.Metrics;
+
+import jdk.jfr.EventType;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class TrafficRecorder {
+	private static final Logger LOG = LoggerFactory.getLogger(TrafficRecorder.class);
+
+	public static final int MAGIC = 0x46534D52;
+	public static final int FORMAT = 1;
+	/**
+	 * Link of the CoreManager
+	 */
+	public static final String CORE = "core";
+
+	private static final int QUEUE_SIZE = 65536;
+	private static final TrafficRecord END = new TrafficRecord(0, false, null, null, null);
+
+	private static volatile boolean enabled = false;
+	private static ArrayBlockingQueue<TrafficRecord> queue;
+	private static Thread writer;
+	private static long start;
+	private static Counter records = Metrics.counter("recorder_records", null);
+	private static Counter dropped = Metrics.counter("recorder_dropped", null);
+	private static final EventType COMMAND_EVENT = EventType.getEventType(WebSocketCommandEvent.class);
+
+	/**
+	 * Start recording all commands in this file. Does nothing if a recording is
+	 * already running
+	 * 
+	 * @param file The file
+	 */
+	public static synchronized void start(File file) throws IOException {
+		if (enabled)
+			return;
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT);
+		out.writeLong(System.currentTimeMillis());
+		ArrayBlockingQueue<TrafficRecord> q = new ArrayBlockingQueue<>(QUEUE_SIZE);
+		queue = q;
+		start = System.nanoTime();
+		writer = new Thread(() -> write(q, out), "TrafficRecorder-Writer");
+		writer.start();
+		enabled = true;
+		LOG.info("Recording traffic in {}", file.getAbsolutePath());
+	}
+
+	/**
+	 * Stop the recording and flush the file
+	 */
+	public static synchronized void stop() {
+		if (!enabled)
+			return;
+		enabled = false;
+		try {
+			queue.put(END);
+			writer.join(5000);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		LOG.info("Recording stopped ({} records, {} dropped)", records.get(), dropped.get());
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Record a command. Does nothing if the recorder is disabled. Never blocks:
+	 * the command is dropped if the writer is late
+	 * 
+	 * @param outbound true if the command is sent by this ServerManager
+	 * @param link     {@link #CORE} or the id of the server
+	 * @param channel  The channel
+	 * @param message  The message, or null
+	 */
+	public static void record(boolean outbound, String link, String channel, String message) {
+		if (!enabled)
+			return;
+		ArrayBlockingQueue<TrafficRecord> q = queue;
+		if (q.offer(new TrafficRecord(System.nanoTime() - start, outbound, link, channel, message)))
+			records.inc();
+		else
+			dropped.inc();
+	}
+
+	/**
+	 * Wrap this command so received messages are recorded and handled commands
+	 * are visible in JFR recordings
+	 * 
+	 * @param link      {@link #CORE} or the id of the server
+	 * @param commander The command
+	 * @return The wrapped command
+	 */
+	public static IWebSocketCommander wrap(String link, IWebSocketCommander commander) {
+		return new IWebSocketCommander() {
+
+			@Override
+			public String name() {
+				return commander.name();
+			}
+
+			@Override
+			public String description() {
+				return commander.description();
+			}
+
+			@Override
+			public void onReceive(String message) {
+				record(false, link, commander.name(), message);
+				if (!COMMAND_EVENT.isEnabled()) {
+					commander.onReceive(message);
+					return;
+				}
+				WebSocketCommandEvent event = new WebSocketCommandEvent();
+				event.begin();
+				try {
+					commander.onReceive(message);
+				} finally {
+					if (event.shouldCommit()) {
+						event.link = link;
+						event.command = commander.name();
+						event.size = message == null ? 0 : message.length();
+						event.commit();
+					}
+				}
+			}
+		};
+	}
+
+	private static void write(ArrayBlockingQueue<TrafficRecord> q, DataOutputStream out) {
+		// Links and channels are written once, then referenced by their index
+		HashMap<String, Integer> strings = new HashMap<>();
+		try {
+			while (true) {
+				TrafficRecord r = q.poll(1, TimeUnit.SECONDS);
+				if (r == null) {
+					out.flush();
+					continue;
+				}
+				if (r == END)
+					break;
+				writeVarLong(out, r.getNanos());
+				out.writeByte((r.isOutbound() ? 1 : 0) | (r.getMessage() == null ? 2 : 0));
+				writeString(out, strings, r.getLink());
+				writeString(out, strings, r.getChannel());
+				if (r.getMessage() != null) {
+					byte[] bytes = r.getMessage().getBytes(StandardCharsets.UTF_8);
+					writeVarLong(out, bytes.length);
+					out.write(bytes);
+				}
+			}
+		} catch (InterruptedException ex) {
+			// Stop
+		} catch (IOException ex) {
+			LOG.error("Error while writing the recording, stopping it: ", ex);
+			enabled = false;
+		} finally {
+			try {
+				out.close();
+			} catch (IOException ex) {
+				LOG.error("Error while closing the recording: ", ex);
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, HashMap<String, Integer> strings, String s)
+			throws IOException {
+		Integer index = strings.get(s);
+		if (index != null) {
+			writeVarLong(out, index);
+			return;
+		}
+		// New string: index = number of known strings, followed by the string
+		writeVarLong(out, strings.size());
+		out.writeUTF(s);
+		strings.put(s, strings.size());
+	}
+
+	static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+}
@@ -4,6 +4,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
 
+import com.froxynetwork.servermanager.jfr.SchedulerRetryEvent;
+import com.froxynetwork.servermanager.metrics.Counter;
+import com.froxynetwork.servermanager.metrics.Metrics;
+
+import jdk.jfr.EventType;
+
 /**
  * MIT License
  *
@@ -34,10 +40,21 @@ import java.util.function.Supplier;
  */
 public class Scheduler {
 	private static List<CustomScheduler> execute;
+	private static final Object lock = new Object();
 	private static Thread runnable;
 	private static boolean stop = false;
+	/**
+	 * Number of executions of actions that failed before
+	 */
+	private static Counter retries = Metrics.counter("scheduler_retries", null);
+	private static Counter errors = Metrics.counter("scheduler_errors", null);
+	/**
+	 * Checked once per tick, no event is created if it's not recorded
+	 */
+	private static final EventType RETRY_EVENT = EventType.getEventType(SchedulerRetryEvent.class);
 
 	static {
+		Metrics.gauge("scheduler_pending", null, Scheduler::size);
 		start();
 	}
 
@@ -53,8 +70,58 @@ public class Scheduler {
 	 */
 	public static void add(Supplier<Boolean> exec, Runnable error) {
 		boolean b = exec.get();
-		if (!b)
-			execute.add(new CustomScheduler(exec, error));
+		if (!b) {
+			synchronized (lock) {
+				execute.add(new CustomScheduler(exec, error));
+			}
+		}
+	}
+
+	/**
+	 * Execute once all waiting actions. Actions that fail again are kept
+	 */
+	static void tick() {
+		List<CustomScheduler> copy;
+		synchronized (lock) {
+			copy = execute;
+			execute = new ArrayList<>();
+		}
+		List<CustomScheduler> retry = new ArrayList<>();
+		boolean jfr = RETRY_EVENT.isEnabled();
+		for (CustomScheduler cs : copy) {
+			SchedulerRetryEvent event = null;
+			if (jfr) {
+				event = new SchedulerRetryEvent();
+				event.begin();
+			}
+			boolean success = false;
+			try {
+				success = cs.getExec().get();
+				if (!success)
+					retry.add(cs);
+			} catch (Exception ex) {
+				errors.inc();
+				ex.printStackTrace();
+			}
+			if (event != null && event.shouldCommit()) {
+				event.success = success;
+				event.commit();
+			}
+		}
+		retries.add(copy.size());
+		if (!retry.isEmpty())
+			synchronized (lock) {
+				execute.addAll(retry);
+			}
+	}
+
+	/**
+	 * @return The number of actions waiting to be executed again
+	 */
+	public static int size() {
+		synchronized (lock) {
+			return execute.size();
+		}
 	}
 
 	public static void start() {
@@ -69,16 +136,7 @@ public class Scheduler {
 				} catch (InterruptedException ex) {
 					break;
 				}
-				// To avoid ConcurrentModificationException
-				List<CustomScheduler> copy = new ArrayList<>(execute);
-				execute = new ArrayList<>();
-				for (CustomScheduler cs : copy)
-					try {
-						if (!cs.getExec().get())
-							execute.add(cs);
-					} catch (Exception ex) {
-						ex.printStackTrace();
-					}
+				tick();
 			}
 		});
 		runnable.start();
@@ -91,13 +149,17 @@ public class Scheduler {
 		stop = true;
 		if (runnable.isAlive())
 			runnable.interrupt();
-		for (CustomScheduler cs : execute)
+		List<CustomScheduler> copy;
+		synchronized (lock) {
+			copy = execute;
+			execute = new ArrayList<>();
+		}
+		for (CustomScheduler cs : copy)
 			if (cs.getError() != null)
 				try {
 					cs.getError().run();
 				} catch (Exception ex) {
 					// Empty exception
 				}
-		execute.clear();
 	}
 }
@@ -0,0 +1,168 @@
+package com.froxynetwork.servermanager.server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.server.config.ServerVps;
+import com.froxynetwork.servermanager.server.config.TypeRegistry;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class AutoScaler {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+	/**
+	 * Decisions, as key=value events
+	 */
+	private final Logger EVENTS = LoggerFactory.getLogger("com.froxynetwork.servermanager.autoscale");
+	private static final String EVENT = "type={} requested={} ewma={} predicted={} min={} current={} warm={} "
+			+ "desired={}";
+
+	private ServerManager serverManager;
+	private int interval;
+	private double alpha;
+	private int lead;
+	private int maxStarts;
+	/**
+	 * Start requests received from the CoreManager since the last tick
+	 */
+	private ConcurrentHashMap<String, LongAdder> requests;
+	/**
+	 * EWMA of the rate of start requests (per second)
+	 */
+	private HashMap<String, Double> rates;
+	private Thread thread;
+
+	/**
+	 * @param serverManager The ServerManager
+	 * @param interval      The interval (in seconds) between two ticks
+	 * @param alpha         The smoothing factor of the EWMA (between 0 and 1)
+	 * @param lead          The time (in seconds) needed to start a server. Servers
+	 *                      are started ahead of the demand predicted for this time
+	 * @param maxStarts     The maximum number of servers started per tick
+	 */
+	public AutoScaler(ServerManager serverManager, int interval, double alpha, int lead, int maxStarts) {
+		this.serverManager = serverManager;
+		this.interval = interval;
+		this.alpha = alpha;
+		this.lead = lead;
+		this.maxStarts = maxStarts;
+		this.requests = new ConcurrentHashMap<>();
+		this.rates = new HashMap<>();
+		thread = new Thread(() -> {
+			while (true) {
+				try {
+					Thread.sleep(interval * 1000L);
+					tick();
+				} catch (InterruptedException ex) {
+					return;
+				} catch (Exception ex) {
+					LOG.error("Error in AutoScaler: ", ex);
+				}
+			}
+		}, "ServerManager-AutoScaler");
+		thread.start();
+	}
+
+	/**
+	 * Called when a new server of this type is asked, once per start request
+	 * 
+	 * @param type The type
+	 */
+	public void onRequest(String type) {
+		requests.computeIfAbsent(type, t -> new LongAdder()).increment();
+	}
+
+	private void tick() {
+		if (serverManager.isStopping())
+			return;
+		TypeRegistry registry = Main.get().getServerConfigManager().getSnapshot().getRegistry();
+		ServerVps vps = serverManager.getServerVps();
+		TypeCounters counters = serverManager.getCounters();
+		if (vps == null || counters.getRegistry() != registry)
+			return;
+		// Update EWMA
+		Map<String, Long> actual = new HashMap<>();
+		for (Map.Entry<String, LongAdder> e : requests.entrySet())
+			actual.put(e.getKey(), e.getValue().sumThenReset());
+		for (Map.Entry<String, Long> e : actual.entrySet()) {
+			double rate = (double) e.getValue() / interval;
+			rates.merge(e.getKey(), alpha * rate, (old, n) -> n + (1 - alpha) * old);
+		}
+		for (Map.Entry<String, Double> e : rates.entrySet())
+			if (!actual.containsKey(e.getKey()))
+				e.setValue((1 - alpha) * e.getValue());
+
+		int started = 0;
+		for (int id = TypeRegistry.BUNGEE + 1; id < registry.size() && started < maxStarts; id++) {
+			String type = registry.getName(id);
+			// The min of this VPS. The min of the type (ServerConfig) is for the whole
+			// network: it's kept by the CoreManager, not by each VPS
+			int min = vps.getMin(id);
+			double rate = rates.getOrDefault(type, 0D);
+			if (min <= 0 && rate < 0.001)
+				continue;
+			int predicted = (int) Math.ceil(rate * lead);
+			int current = counters.get(id) + serverManager.getStartQueue().size(type);
+			int warm = serverManager.getWarmServers(type);
+			// At least min servers, and enough warm servers for the predicted requests
+			int desired = Math.max(min, current - warm + predicted);
+			long requested = actual.getOrDefault(type, 0L);
+			if (current >= desired) {
+				EVENTS.debug(EVENT + " action=none", type, requested, String.format("%.4f", rate), predicted, min,
+						current, warm, desired);
+				continue;
+			}
+			StartDecision decision = serverManager.getStartAdmission().check(type);
+			if (decision != StartDecision.ACCEPT) {
+				EVENTS.info(EVENT + " action=skip reason={}",
+						type, requested, String.format("%.4f", rate), predicted, min, current, warm, desired,
+						decision.getReason());
+				continue;
+			}
+			int toStart = Math.min(desired - current, maxStarts - started);
+			EVENTS.info(EVENT + " action=start count={}",
+					type, requested, String.format("%.4f", rate), predicted, min, current, warm, desired, toStart);
+			for (int i = 0; i < toStart; i++) {
+				// Not requested by the CoreManager, the next start request of this type
+				// will claim it
+				serverManager.openWarmServer(type, reason -> {
+					EVENTS.info("type={} action=failed reason={}", type, reason);
+				});
+			}
+			started += toStart;
+		}
+	}
+
+	public void stop() {
+		thread.interrupt();
+	}
+}
@@ -0,0 +1,296 @@
+package com.froxynetwork.servermanager.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.servermanager.metrics.Histogram;
+import com.froxynetwork.servermanager.metrics.Metrics;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class CdsManager {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * Directory that contains a directory per type, with its spigot.jar
+	 */
+	@Getter
+	private File templates;
+	/**
+	 * Directory where archives are saved
+	 */
+	@Getter
+	private File dir;
+	private String[] script;
+	private long timeout;
+	private PortPool portPool;
+	/**
+	 * Part of the command line that identifies the JVM of a server
+	 */
+	private String pattern;
+	/**
+	 * Path of the jar => its checksum
+	 */
+	private ConcurrentHashMap<String, Checksum> checksums;
+	/**
+	 * Types whose archive is being generated
+	 */
+	private Set<String> generating;
+	private Histogram generation;
+	/**
+	 * Checks of the archive of linked servers, done by {@link #check()}
+	 */
+	private ConcurrentLinkedQueue<Runnable> checks;
+
+	/**
+	 * @param templates The directory that contains a directory per type
+	 * @param dir       The directory where archives are saved
+	 * @param script    The script that generates an archive
+	 * @param timeout   The maximum time (in ms) of the script
+	 * @param portPool  The pool where the port of the generating server is taken
+	 * @param pattern   The part of the command line of a server that identifies
+	 *                  its JVM ({id} = id of the server)
+	 */
+	public CdsManager(File templates, File dir, String[] script, long timeout, PortPool portPool, String pattern) {
+		this.templates = templates;
+		this.dir = dir;
+		this.script = script;
+		this.timeout = timeout;
+		this.portPool = portPool;
+		this.pattern = pattern;
+		this.checksums = new ConcurrentHashMap<>();
+		this.generating = ConcurrentHashMap.newKeySet();
+		this.checks = new ConcurrentLinkedQueue<>();
+		this.generation = Metrics.histogram("cds_generation_ms", null, "ms");
+		if (!dir.isDirectory() && !dir.mkdirs())
+			LOG.error("Cannot create directory {}, servers will start without CDS archive", dir);
+	}
+
+	/**
+	 * Return the archive of this type. If the jar of the template has changed since
+	 * the last archive, a new archive is generated in background and servers start
+	 * without archive until it's ready
+	 * 
+	 * @param type The type of the server
+	 * @return The path of the archive, or an empty String if there is no archive
+	 *         for the actual jar
+	 */
+	public String archive(String type) {
+		File jar = new File(new File(templates, type), "spigot.jar");
+		if (!jar.isFile())
+			return "";
+		String checksum;
+		try {
+			checksum = checksum(jar);
+		} catch (IOException ex) {
+			LOG.error("Cannot read {}", jar);
+			LOG.error("", ex);
+			return "";
+		}
+		File archive = new File(dir, type + "-" + checksum + ".jsa");
+		if (archive.isFile())
+			return archive.getAbsolutePath();
+		generate(type, archive);
+		return "";
+	}
+
+	/**
+	 * Check later if the JVM of this server uses its archive (see
+	 * {@link #isMapped(String, String)}). Finding the JVM scans /proc, so it's not
+	 * done by the WebSocket thread that links the server
+	 * 
+	 * @param server The linked server
+	 * @param then   Called by {@link #check()} with true if the archive is used
+	 */
+	public void check(Server server, Consumer<Boolean> then) {
+		String id = server.getId();
+		String archive = server.getArchive();
+		checks.add(() -> then.accept(isMapped(id, archive)));
+	}
+
+	/**
+	 * Do the checks asked since the last call. Called every second by the
+	 * checkThread
+	 */
+	public void check() {
+		Runnable r;
+		while ((r = checks.poll()) != null)
+			r.run();
+	}
+
+	/**
+	 * Check if the JVM of a server uses its archive. The JVM doesn't fail if it
+	 * cannot use the archive (other jar path, other JDK, jar modified, ...), it
+	 * unmaps it and starts without it. So the archive is in the memory maps of the
+	 * JVM only if its classes are used
+	 * 
+	 * @param id      The id of the server
+	 * @param archive The archive given to the server
+	 * @return true if the JVM of this server has mapped this archive
+	 */
+	public boolean isMapped(String id, String archive) {
+		String pid = ResourceSampler.findJava(pattern.replace("{id}", id));
+		if (pid == null)
+			return false;
+		try {
+			String path = new File(archive).getCanonicalPath();
+			// ISO_8859_1 can decode any path
+			try (BufferedReader reader = Files.newBufferedReader(Paths.get("/proc", pid, "maps"),
+					StandardCharsets.ISO_8859_1)) {
+				String line;
+				while ((line = reader.readLine()) != null)
+					if (line.endsWith(path))
+						return true;
+			}
+		} catch (IOException ex) {
+			// Dead
+		}
+		return false;
+	}
+
+	/**
+	 * Generate the archive of this type in a new Thread, if not already generating
+	 */
+	private void generate(String type, File archive) {
+		if (!generating.add(type))
+			return;
+		new Thread(() -> {
+			int port = portPool.lease();
+			try {
+				if (port == -1) {
+					LOG.warn("No available port found to generate the CDS archive of {}", type);
+					return;
+				}
+				LOG.info("Generating CDS archive {}", archive);
+				long start = System.currentTimeMillis();
+				File tmp = new File(dir, archive.getName() + ".tmp");
+				Files.deleteIfExists(tmp.toPath());
+				String[] copy = new String[script.length];
+				for (int i = 0; i < script.length; i++)
+					copy[i] = script[i].replace("{type}", type).replace("{port}", Integer.toString(port))
+							.replace("{archive}", tmp.getAbsolutePath());
+				Process p = new ProcessBuilder(copy).redirectErrorStream(true)
+						.redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+				if (!p.waitFor(timeout, TimeUnit.MILLISECONDS)) {
+					p.destroyForcibly();
+					throw new IllegalStateException("Generation of " + archive + " timed out");
+				}
+				if (p.exitValue() != 0 || !tmp.isFile()) {
+					Files.deleteIfExists(tmp.toPath());
+					throw new IllegalStateException(
+							"Generation of " + archive + " returns exitValue " + p.exitValue());
+				}
+				// Servers never see a partial archive
+				Files.move(tmp.toPath(), archive.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				generation.record(System.currentTimeMillis() - start);
+				Metrics.counter("cds_generations", "result=\"ok\"").inc();
+				LOG.info("CDS archive {} generated in {} ms", archive, System.currentTimeMillis() - start);
+				// Old archives of this type are not used anymore. Running servers keep their
+				// mapping
+				File[] old = dir.listFiles((d, name) -> name.startsWith(type + "-") && name.endsWith(".jsa")
+						&& !name.equals(archive.getName()));
+				if (old != null)
+					for (File f : old)
+						if (!f.delete())
+							LOG.warn("Cannot delete old CDS archive {}", f);
+			} catch (Exception ex) {
+				Metrics.counter("cds_generations", "result=\"error\"").inc();
+				LOG.error("Error while generating CDS archive of {}", type);
+				LOG.error("", ex);
+			} finally {
+				if (port != -1)
+					portPool.release(port);
+				generating.remove(type);
+			}
+		}, "ServerManager-Cds-" + type).start();
+	}
+
+	/**
+	 * Return the checksum of the content and the modification time of the jar. The
+	 * content is read again only if the size or the modification time of the jar
+	 * has changed
+	 */
+	private String checksum(File jar) throws IOException {
+		long modified = jar.lastModified();
+		long length = jar.length();
+		Checksum c = checksums.get(jar.getPath());
+		if (c != null && c.modified == modified && c.length == length)
+			return c.value;
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			// SHA-256 is always available
+			throw new IllegalStateException(ex);
+		}
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(jar.toPath())) {
+			int n;
+			while ((n = in.read(buffer)) != -1)
+				digest.update(buffer, 0, n);
+		}
+		// The JVM also checks the modification time of the jar, so a jar copied again
+		// needs a new archive
+		digest.update(Long.toString(modified).getBytes(StandardCharsets.US_ASCII));
+		StringBuilder sb = new StringBuilder();
+		byte[] hash = digest.digest();
+		// 8 bytes are enough to identify a version of the jar
+		for (int i = 0; i < 8; i++)
+			sb.append(String.format("%02x", hash[i]));
+		checksums.put(jar.getPath(), new Checksum(modified, length, sb.toString()));
+		return sb.toString();
+	}
+
+	private static class Checksum {
+		private long modified;
+		private long length;
+		private String value;
+
+		private Checksum(long modified, long length, String value) {
+			this.modified = modified;
+			this.length = length;
+			this.value = value;
+		}
+	}
+}
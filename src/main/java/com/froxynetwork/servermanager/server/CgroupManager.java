@@ -0,0 +1,231 @@
+package com.froxynetwork.servermanager.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.servermanager.metrics.Metrics;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class CgroupManager {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * Period (in µs) of cpu.max
+	 */
+	private static final int CPU_PERIOD = 100000;
+	/**
+	 * Resources with a pressure file
+	 */
+	private static final String[] RESOURCES = { "cpu", "memory", "io" };
+	/**
+	 * Minimum time (in ms) between two checks of the pressure
+	 */
+	private static final long CHECK_INTERVAL = 10000;
+
+	@Getter
+	private File root;
+	private Map<String, Integer> cpuWeight;
+	private Map<String, Integer> cpuMax;
+	private Map<String, Integer> memoryMax;
+	private int pressureWarn;
+	/**
+	 * id => type of the server
+	 */
+	private ConcurrentHashMap<String, String> groups;
+	/**
+	 * Servers actually under pressure
+	 */
+	private Set<String> contended;
+	private Set<String> gaugeTypes;
+	private long lastCheck;
+
+	/**
+	 * @param root         The cgroup v2 directory that contains a group per server
+	 *                     (ex: /sys/fs/cgroup/servermanager)
+	 * @param cpuWeight    Type => cpu.weight (1 - 10000, default 100)
+	 * @param cpuMax       Type => max CPU in percent of one core
+	 * @param memoryMax    Type => max memory in MB
+	 * @param pressureWarn The pressure (some avg10, in percent) above which a
+	 *                     server is contended
+	 */
+	public CgroupManager(File root, Map<String, Integer> cpuWeight, Map<String, Integer> cpuMax,
+			Map<String, Integer> memoryMax, int pressureWarn) {
+		this.root = root;
+		this.cpuWeight = cpuWeight;
+		this.cpuMax = cpuMax;
+		this.memoryMax = memoryMax;
+		this.pressureWarn = pressureWarn;
+		this.groups = new ConcurrentHashMap<>();
+		this.contended = ConcurrentHashMap.newKeySet();
+		this.gaugeTypes = ConcurrentHashMap.newKeySet();
+		if (!root.isDirectory() && !root.mkdirs())
+			LOG.error("Cannot create cgroup {}, servers will start without limits", root);
+		// Groups of servers can use these controllers
+		if (!write(new File(root, "cgroup.subtree_control"), "+cpu +memory +io"))
+			LOG.error("Cannot enable cpu, memory and io controllers in {}", root);
+		for (String resource : RESOURCES)
+			Metrics.gauge("cgroup_root_pressure", "resource=\"" + resource + "\"", () -> pressure(root, resource));
+	}
+
+	/**
+	 * Create the group of a server and set its limits
+	 * 
+	 * @param id   The id of the server
+	 * @param type The type of the server
+	 * @return The path of the group, or an empty String if it cannot be created
+	 */
+	public String create(String id, String type) {
+		File dir = new File(root, id);
+		if (!dir.isDirectory() && !dir.mkdir()) {
+			LOG.error("Cannot create cgroup {}, server {} will start without limits", dir, id);
+			return "";
+		}
+		Integer weight = cpuWeight.get(type);
+		if (weight != null)
+			write(new File(dir, "cpu.weight"), Integer.toString(Math.max(1, Math.min(10000, weight))));
+		Integer cpu = cpuMax.get(type);
+		if (cpu != null && cpu > 0)
+			write(new File(dir, "cpu.max"), (long) cpu * CPU_PERIOD / 100 + " " + CPU_PERIOD);
+		Integer memory = memoryMax.get(type);
+		if (memory != null && memory > 0)
+			write(new File(dir, "memory.max"), Long.toString(memory * 1024L * 1024L));
+		groups.put(id, type);
+		if (gaugeTypes.add(type))
+			for (String resource : RESOURCES)
+				Metrics.gauge("cgroup_pressure", "type=\"" + type + "\",resource=\"" + resource + "\"",
+						() -> maxPressure(type, resource));
+		return dir.getAbsolutePath();
+	}
+
+	/**
+	 * Kill the remaining processes of the group of this server and remove it
+	 * 
+	 * @param id The id of the server
+	 */
+	public void remove(String id) {
+		groups.remove(id);
+		contended.remove(id);
+		File dir = new File(root, id);
+		if (!dir.isDirectory())
+			return;
+		// cgroup.kill exists since Linux 5.14
+		write(new File(dir, "cgroup.kill"), "1");
+		// Processes are killed asynchronously
+		for (int i = 0; i < 20; i++) {
+			if (dir.delete())
+				return;
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		LOG.error("Cannot remove cgroup {}, processes are still running", dir);
+	}
+
+	/**
+	 * Log servers under pressure. Called each second, checks at most every 10
+	 * seconds
+	 */
+	public void check() {
+		long now = System.currentTimeMillis();
+		if (now - lastCheck < CHECK_INTERVAL)
+			return;
+		lastCheck = now;
+		for (String id : groups.keySet()) {
+			File dir = new File(root, id);
+			long cpu = pressure(dir, "cpu");
+			long memory = pressure(dir, "memory");
+			boolean underPressure = Math.max(cpu, memory) >= pressureWarn * 100L;
+			if (underPressure && contended.add(id))
+				LOG.warn("Server {} is under pressure: cpu = {}%, memory = {}% (some avg10)", id, cpu / 100D,
+						memory / 100D);
+			else if (!underPressure && contended.remove(id))
+				LOG.info("Server {} is no longer under pressure", id);
+		}
+	}
+
+	/**
+	 * @return The number of servers actually under pressure
+	 */
+	public int getContended() {
+		return contended.size();
+	}
+
+	private long maxPressure(String type, String resource) {
+		long max = 0;
+		for (Map.Entry<String, String> e : groups.entrySet())
+			if (e.getValue().equals(type))
+				max = Math.max(max, pressure(new File(root, e.getKey()), resource));
+		return max;
+	}
+
+	/**
+	 * Read the PSI of a group
+	 * 
+	 * @param dir      The group
+	 * @param resource cpu, memory or io
+	 * @return The "some avg10" value in hundredths of percent, or 0 if not
+	 *         available
+	 */
+	static long pressure(File dir, String resource) {
+		try {
+			// some avg10=1.23 avg60=0.50 avg300=0.10 total=123456
+			for (String line : Files.readAllLines(new File(dir, resource + ".pressure").toPath(),
+					StandardCharsets.US_ASCII))
+				if (line.startsWith("some ")) {
+					int start = line.indexOf("avg10=") + 6;
+					int end = line.indexOf(' ', start);
+					return Math.round(Double.parseDouble(line.substring(start, end)) * 100);
+				}
+		} catch (Exception ex) {
+			// PSI not enabled, or group removed
+		}
+		return 0;
+	}
+
+	private boolean write(File file, String value) {
+		try {
+			Files.write(file.toPath(), value.getBytes(StandardCharsets.US_ASCII));
+			return true;
+		} catch (IOException ex) {
+			LOG.debug("Cannot write {} in {}: {}", value, file, ex.getMessage());
+			return false;
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package com.froxynetwork.servermanager.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class CpuPool {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	private static final String CPU_DIR = "/sys/devices/system/cpu";
+	private static final String NODE_DIR = "/sys/devices/system/node";
+
+	/**
+	 * Number of physical cores given to each server
+	 */
+	@Getter
+	private int coresPerServer;
+	/**
+	 * NUMA node => physical cores of this node
+	 */
+	private TreeMap<Integer, List<Core>> nodes;
+	/**
+	 * Port of the server => its cores
+	 */
+	private HashMap<Integer, Lease> leases;
+
+	/**
+	 * Read the topology of this machine
+	 * 
+	 * @param coresPerServer The number of physical cores given to each server
+	 * @param reserved       The cpus that are not given to servers (ex: for the
+	 *                       system)
+	 */
+	public CpuPool(int coresPerServer, Set<Integer> reserved) throws IOException {
+		this.coresPerServer = Math.max(1, coresPerServer);
+		this.nodes = new TreeMap<>();
+		this.leases = new HashMap<>();
+		// cpu => NUMA node
+		Map<Integer, Integer> nodeOf = new HashMap<>();
+		File[] nodeDirs = new File(NODE_DIR).listFiles((dir, name) -> name.matches("node\\d+"));
+		if (nodeDirs != null)
+			for (File nodeDir : nodeDirs) {
+				int node = Integer.parseInt(nodeDir.getName().substring(4));
+				for (int cpu : parseList(read(new File(nodeDir, "cpulist"))))
+					nodeOf.put(cpu, node);
+			}
+		// (package, core) => physical core
+		Map<String, Core> cores = new HashMap<>();
+		for (int cpu : parseList(read(new File(CPU_DIR, "online")))) {
+			if (reserved.contains(cpu))
+				continue;
+			File topology = new File(CPU_DIR, "cpu" + cpu + "/topology");
+			String key = read(new File(topology, "physical_package_id")) + ":" + read(new File(topology, "core_id"));
+			int node = nodeOf.getOrDefault(cpu, 0);
+			Core core = cores.computeIfAbsent(key, k -> new Core(node));
+			core.cpus.add(cpu);
+		}
+		for (Core core : cores.values())
+			nodes.computeIfAbsent(core.node, n -> new ArrayList<>()).add(core);
+		for (List<Core> list : nodes.values())
+			list.sort(Comparator.comparingInt(c -> c.cpus.first()));
+		if (nodes.isEmpty())
+			throw new IOException("No cpu available");
+		for (Map.Entry<Integer, List<Core>> e : nodes.entrySet())
+			LOG.info("NUMA node {}: {} physical cores", e.getKey(), e.getValue().size());
+	}
+
+	/**
+	 * Give cores to a new server. All cores are on the same NUMA node, on the node
+	 * and the cores with the fewest servers
+	 * 
+	 * @param port The port of the server, the cores are released with it
+	 * @return The cores
+	 */
+	public synchronized Lease lease(int port) {
+		release(port);
+		// Least loaded node
+		List<Core> best = null;
+		double bestLoad = Double.MAX_VALUE;
+		for (List<Core> cores : nodes.values()) {
+			int users = 0;
+			for (Core c : cores)
+				users += c.users;
+			double load = (double) users / cores.size();
+			if (load < bestLoad) {
+				best = cores;
+				bestLoad = load;
+			}
+		}
+		// Least used cores of this node. The sort is stable, so cores stay in order
+		List<Core> candidates = new ArrayList<>(best);
+		candidates.sort(Comparator.comparingInt(c -> c.users));
+		List<Core> chosen = new ArrayList<>(candidates.subList(0, Math.min(coresPerServer, candidates.size())));
+		TreeSet<Integer> cpus = new TreeSet<>();
+		for (Core c : chosen) {
+			c.users++;
+			cpus.addAll(c.cpus);
+		}
+		Lease lease = new Lease(chosen.get(0).node, toList(cpus), chosen);
+		leases.put(port, lease);
+		return lease;
+	}
+
+	/**
+	 * Count the cores of a server started before this ServerManager (ex: after a
+	 * restart). Its cores are the cores of the cpus it's pinned on. If these cpus
+	 * are unknown or if it's not pinned, it's counted on the least used cores
+	 * like a new server
+	 * 
+	 * @param port The port of the server, the cores are released with it
+	 * @param cpus The cpus the server is allowed to run on (ex: 2-3,34-35), or
+	 *             null if unknown
+	 * @return The cores
+	 */
+	public synchronized Lease reserve(int port, String cpus) {
+		if (cpus == null)
+			return lease(port);
+		release(port);
+		Set<Integer> allowed = new HashSet<>(parseList(cpus));
+		List<Core> chosen = new ArrayList<>();
+		TreeSet<Integer> pinned = new TreeSet<>();
+		int total = 0;
+		for (List<Core> cores : nodes.values())
+			for (Core c : cores) {
+				total++;
+				for (int cpu : c.cpus)
+					if (allowed.contains(cpu)) {
+						chosen.add(c);
+						pinned.addAll(c.cpus);
+						break;
+					}
+			}
+		if (chosen.isEmpty() || chosen.size() == total)
+			// Not pinned
+			return lease(port);
+		for (Core c : chosen)
+			c.users++;
+		Lease lease = new Lease(chosen.get(0).node, toList(pinned), chosen);
+		leases.put(port, lease);
+		return lease;
+	}
+
+	/**
+	 * Release the cores of a server
+	 * 
+	 * @param port The port of the server
+	 */
+	public synchronized void release(int port) {
+		Lease lease = leases.remove(port);
+		if (lease == null)
+			return;
+		for (Core c : lease.cores)
+			c.users--;
+	}
+
+	/**
+	 * @param node The NUMA node
+	 * @return The number of servers on this node
+	 */
+	public synchronized int getServers(int node) {
+		int n = 0;
+		for (Lease lease : leases.values())
+			if (lease.node == node)
+				n++;
+		return n;
+	}
+
+	public Set<Integer> getNodes() {
+		return nodes.keySet();
+	}
+
+	/**
+	 * Parse a list of cpus (ex: 0-3,8,10-11)
+	 */
+	public static List<Integer> parseList(String list) {
+		List<Integer> cpus = new ArrayList<>();
+		for (String range : list.trim().split(",")) {
+			range = range.trim();
+			if (range.isEmpty())
+				continue;
+			int dash = range.indexOf('-');
+			int from = Integer.parseInt(dash == -1 ? range : range.substring(0, dash));
+			int to = dash == -1 ? from : Integer.parseInt(range.substring(dash + 1));
+			for (int cpu = from; cpu <= to; cpu++)
+				cpus.add(cpu);
+		}
+		return cpus;
+	}
+
+	private static String toList(Set<Integer> cpus) {
+		StringBuilder sb = new StringBuilder();
+		for (int cpu : cpus) {
+			if (sb.length() > 0)
+				sb.append(',');
+			sb.append(cpu);
+		}
+		return sb.toString();
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim();
+	}
+
+	/**
+	 * A physical core and its hardware threads
+	 */
+	private static class Core {
+		private int node;
+		private TreeSet<Integer> cpus;
+		/**
+		 * Number of servers pinned on this core
+		 */
+		private int users;
+
+		private Core(int node) {
+			this.node = node;
+			this.cpus = new TreeSet<>();
+		}
+	}
+
+	/**
+	 * Cores given to a server
+	 */
+	public static class Lease {
+		@Getter
+		private int node;
+		/**
+		 * The cpus, for taskset or numactl (ex: 2,3,34,35)
+		 */
+		@Getter
+		private String cpus;
+		private List<Core> cores;
+
+		private Lease(int node, String cpus, List<Core> cores) {
+			this.node = node;
+			this.cpus = cpus;
+			this.cores = cores;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package com.froxynetwork.servermanager.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.metrics.Counter;
+import com.froxynetwork.servermanager.metrics.Histogram;
+import com.froxynetwork.servermanager.metrics.Metrics;
+import com.froxynetwork.servermanager.player.Player;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class Drain {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+	/**
+	 * Interval (in ms) between two move requests for players still on a draining
+	 * server
+	 */
+	private static final long MOVE_INTERVAL = 5000;
+
+	private ServerManager serverManager;
+	/**
+	 * The max time (in ms) a server is draining before being stopped
+	 */
+	@Getter
+	private long timeout;
+	/**
+	 * Id of draining servers => drain
+	 */
+	private ConcurrentHashMap<String, Entry> draining;
+	private Histogram time;
+	private Counter empty;
+	private Counter timedOut;
+
+	/**
+	 * @param serverManager The ServerManager
+	 * @param timeout       The max time (in ms) a server is draining before being
+	 *                      stopped
+	 */
+	public Drain(ServerManager serverManager, long timeout) {
+		this.serverManager = serverManager;
+		this.timeout = timeout;
+		this.draining = new ConcurrentHashMap<>();
+		this.time = Metrics.histogram("server_drain_ms", null, "ms");
+		this.empty = Metrics.counter("server_drain", "result=\"empty\"");
+		this.timedOut = Metrics.counter("server_drain", "result=\"timeout\"");
+		Metrics.gauge("server_draining", null, () -> draining.size());
+	}
+
+	/**
+	 * Stop sending players to this server and move its players to other servers
+	 * of the same type. The server is stopped by {@link #check()} once it's empty
+	 * or once the timeout is reached
+	 * 
+	 * @param srv   The server
+	 * @param error The action to execute if the server can't be stopped
+	 */
+	public void drain(Server srv, Runnable error) {
+		if (draining.putIfAbsent(srv.getId(), new Entry(error)) != null)
+			// Already draining
+			return;
+		LOG.info("Draining server {} ({} players)", srv.getId(), srv.getPlayers());
+		srv.setState(ServerState.DRAINING);
+		serverManager.getPlacement().remove(srv);
+		serverManager.getStateSync().update(srv);
+		move(srv, draining.get(srv.getId()));
+	}
+
+	/**
+	 * Ask the bungee to move players of this server to the best servers of the
+	 * same type. Targets are chosen again at each move, with the actual number of
+	 * players of each server
+	 */
+	private void move(Server srv, Entry e) {
+		e.lastMove = System.currentTimeMillis();
+		Server bungee = serverManager.getBungee();
+		if (bungee == null)
+			return;
+		List<Player> players = new ArrayList<>(Main.get().getPlayerManager().getPlayers(srv.getId()));
+		List<Server> targets = serverManager.getPlacement().best(srv.getType(), players.size());
+		for (int i = 0; i < targets.size(); i++)
+			bungee.sendMessage("move", players.get(i).getUuid() + " " + targets.get(i).getId());
+		if (targets.size() < players.size())
+			// A server may be started by the placement, retry later
+			LOG.debug("No place on servers of type {} for {} players of server {}", srv.getType(),
+					players.size() - targets.size(), srv.getId());
+	}
+
+	/**
+	 * Stop draining servers that are empty or that reached the timeout. Called
+	 * each second
+	 */
+	public void check() {
+		long now = System.currentTimeMillis();
+		for (Map.Entry<String, Entry> en : draining.entrySet()) {
+			String id = en.getKey();
+			Entry e = en.getValue();
+			Server srv = serverManager.getServer(id);
+			if (srv == null || srv.getState() != ServerState.DRAINING) {
+				// Already stopped
+				draining.remove(id);
+				continue;
+			}
+			int players = Main.get().getPlayerManager().getPlayerCount(id);
+			boolean timeout = now - e.start >= this.timeout;
+			if (players > 0 && !timeout) {
+				if (now - e.lastMove >= MOVE_INTERVAL)
+					move(srv, e);
+				continue;
+			}
+			draining.remove(id);
+			time.record(now - e.start);
+			if (players > 0) {
+				timedOut.inc();
+				LOG.warn("Server {} still has {} players after {} ms, stopping it", id, players, now - e.start);
+			} else {
+				empty.inc();
+				LOG.info("Server {} is empty after {} ms, stopping it", id, now - e.start);
+			}
+			serverManager.closeServer(id, e.error);
+		}
+	}
+
+	/**
+	 * @param id The id of the server
+	 * @return true if this server is draining
+	 */
+	public boolean isDraining(String id) {
+		return draining.containsKey(id);
+	}
+
+	public int size() {
+		return draining.size();
+	}
+
+	private static class Entry {
+		private long start;
+		private volatile long lastMove;
+		private Runnable error;
+
+		private Entry(Runnable error) {
+			this.start = System.currentTimeMillis();
+			this.error = error;
+		}
+	}
+}
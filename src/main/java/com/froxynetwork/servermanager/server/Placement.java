@@ -0,0 +1,296 @@
+package com.froxynetwork.servermanager.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.server.config.TypeRegistry;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class Placement {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	private ServerManager serverManager;
+	/**
+	 * Type => number of players above which a server is full
+	 */
+	private Map<String, Integer> fill;
+	/**
+	 * Ready servers of each type, indexed by the id of the type in the registry.
+	 * Replaced when the registry changes
+	 */
+	private volatile Table table;
+
+	/**
+	 * @param serverManager The ServerManager
+	 * @param fill          Type => number of players above which a server is
+	 *                      full. A server is started once all servers of a type
+	 *                      are full. Types that are not in this map are never
+	 *                      started by the placement
+	 */
+	public Placement(ServerManager serverManager, Map<String, Integer> fill) {
+		this.serverManager = serverManager;
+		this.fill = new HashMap<>(fill);
+		this.table = new Table(Main.get().getServerConfigManager().getSnapshot().getRegistry(), null);
+	}
+
+	/**
+	 * @return The slots of this type, or null if this type doesn't exist
+	 */
+	private TypeSlots slots(String type) {
+		Table t = table;
+		TypeRegistry registry = Main.get().getServerConfigManager().getSnapshot().getRegistry();
+		if (t.registry != registry) {
+			synchronized (this) {
+				t = table;
+				if (t.registry != registry)
+					table = t = new Table(registry, t);
+			}
+		}
+		int id = registry.id(type);
+		return id < 0 ? null : t.slots[id];
+	}
+
+	/**
+	 * Update the position of this server. Must be called each time its number of
+	 * players, its state or its link changes
+	 * 
+	 * @param srv The server
+	 */
+	public void update(Server srv) {
+		if (srv.isBungee())
+			return;
+		TypeSlots slots = slots(srv.getType());
+		if (slots == null)
+			return;
+		// A warm server isn't known by the CoreManager and the bungee until it's claimed
+		boolean ready = !srv.isWarm() && srv.getState() == ServerState.RUNNING && srv.isLinked();
+		synchronized (slots) {
+			Slot slot = slots.byId.get(srv.getId());
+			int players = srv.getPlayers();
+			if (ready && slot != null && slot.players == players)
+				// Nothing changed
+				return;
+			if (!ready) {
+				if (slot != null) {
+					slots.tree.remove(slot);
+					slots.byId.remove(srv.getId());
+				}
+				return;
+			}
+			if (slot == null) {
+				slot = new Slot(srv);
+				slots.byId.put(srv.getId(), slot);
+			} else
+				slots.tree.remove(slot);
+			// The slot is reused, it's only created once per server
+			slot.players = players;
+			slots.tree.add(slot);
+		}
+	}
+
+	/**
+	 * Remove this server (ex: when it's stopping)
+	 * 
+	 * @param srv The server
+	 */
+	public void remove(Server srv) {
+		TypeSlots slots = slots(srv.getType());
+		if (slots == null)
+			return;
+		synchronized (slots) {
+			Slot old = slots.byId.remove(srv.getId());
+			if (old != null)
+				slots.tree.remove(old);
+		}
+	}
+
+	/**
+	 * Return the ready server of this type with the less players, in O(log n).<br
+	 * />
+	 * If this server is full, a new server of this type is started
+	 * 
+	 * @param type The type
+	 * @return The best server, or null if there is no ready server of this type
+	 */
+	public Server best(String type) {
+		TypeSlots slots = slots(type);
+		if (slots == null)
+			return null;
+		Slot best = null;
+		synchronized (slots) {
+			if (!slots.tree.isEmpty())
+				best = slots.tree.first();
+		}
+		if (slots.fill >= 0 && (best == null || best.players >= slots.fill))
+			warm(type, slots);
+		return best == null ? null : best.srv;
+	}
+
+	/**
+	 * Choose a server for each of these players, as if they were added one by one
+	 * to the ready server with the less players. Servers are not filled above the
+	 * fill of their type.<br />
+	 * If all servers are full, a new server of this type is started
+	 * 
+	 * @param type  The type
+	 * @param count The number of players
+	 * @return The server of each player, or less servers if there is not enough
+	 *         place
+	 */
+	public List<Server> best(String type, int count) {
+		List<Server> result = new ArrayList<>(count);
+		TypeSlots slots = slots(type);
+		if (slots == null || count <= 0)
+			return result;
+		// Server and its number of players, including the players given by this call
+		PriorityQueue<Slot> queue = new PriorityQueue<>();
+		synchronized (slots) {
+			for (Slot slot : slots.tree) {
+				Slot copy = new Slot(slot.srv);
+				copy.players = slot.players;
+				queue.add(copy);
+			}
+		}
+		int fill = slots.fill;
+		while (result.size() < count && !queue.isEmpty()) {
+			Slot slot = queue.poll();
+			if (fill >= 0 && slot.players >= fill)
+				// All servers are full
+				break;
+			result.add(slot.srv);
+			slot.players++;
+			queue.add(slot);
+		}
+		if (fill >= 0 && result.size() < count)
+			warm(type, slots);
+		return result;
+	}
+
+	/**
+	 * Start a warm server of this type if no server of this type is already
+	 * starting. It's given to the next start request of this type, and then added
+	 * to the placement. No other server is started while it isn't claimed
+	 */
+	private void warm(String type, TypeSlots slots) {
+		if (serverManager.isStopping())
+			return;
+		synchronized (slots) {
+			// Counts warm starts too, a warm start is counted as soon as it's opened
+			if (serverManager.getWarmServers(type) > 0)
+				return;
+			if (serverManager.getStartQueue().size(type) > 0)
+				return;
+			for (Server srv : serverManager.getCreatingServers())
+				if (type.equals(srv.getType()))
+					return;
+			LOG.info("All servers of type {} are full, starting a new one", type);
+			serverManager.openWarmServer(type, reason -> {
+				LOG.warn("Cannot start a new server of type {}: {}", type, reason);
+			});
+		}
+	}
+
+	/**
+	 * @param type The type
+	 * @return The number of ready servers of this type
+	 */
+	public int size(String type) {
+		TypeSlots slots = slots(type);
+		if (slots == null)
+			return 0;
+		synchronized (slots) {
+			return slots.tree.size();
+		}
+	}
+
+	/**
+	 * The slots of all types of a registry
+	 */
+	private class Table {
+		private TypeRegistry registry;
+		private TypeSlots[] slots;
+
+		/**
+		 * @param registry The registry
+		 * @param old      The previous table, its servers are kept
+		 */
+		private Table(TypeRegistry registry, Table old) {
+			this.registry = registry;
+			this.slots = new TypeSlots[registry.size()];
+			for (int id = 0; id < slots.length; id++) {
+				String type = registry.getName(id);
+				TypeSlots s = null;
+				if (old != null) {
+					int oldId = old.registry.id(type);
+					if (oldId >= 0)
+						s = old.slots[oldId];
+				}
+				if (s == null)
+					s = new TypeSlots();
+				Integer max = fill.get(type);
+				s.fill = max == null ? -1 : max;
+				slots[id] = s;
+			}
+		}
+	}
+
+	private static class TypeSlots {
+		private TreeSet<Slot> tree = new TreeSet<>();
+		private HashMap<String, Slot> byId = new HashMap<>();
+		/**
+		 * Number of players above which a server is full, -1 if servers of this type
+		 * are never started by the placement
+		 */
+		private volatile int fill;
+	}
+
+	private static class Slot implements Comparable<Slot> {
+		private Server srv;
+		/**
+		 * Only changed while this slot isn't in the tree
+		 */
+		private int players;
+
+		private Slot(Server srv) {
+			this.srv = srv;
+		}
+
+		@Override
+		public int compareTo(Slot o) {
+			int c = Integer.compare(players, o.players);
+			return c != 0 ? c : srv.getId().compareTo(o.srv.getId());
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.froxynetwork.servermanager.server;
+
+import java.util.BitSet;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class PortPool {
+	@Getter
+	private int lowPort;
+	@Getter
+	private int highPort;
+	private BitSet used;
+	private int available;
+	/**
+	 * Next index to check, so ports are used in turn
+	 */
+	private int next;
+
+	public PortPool(int lowPort, int highPort) {
+		this.lowPort = lowPort;
+		this.highPort = highPort;
+		this.used = new BitSet(highPort - lowPort + 1);
+		this.available = highPort - lowPort + 1;
+		this.next = 0;
+	}
+
+	/**
+	 * Lease a free port
+	 * 
+	 * @return The port, or -1 if there is no available port
+	 */
+	public synchronized int lease() {
+		if (available == 0)
+			return -1;
+		int size = highPort - lowPort + 1;
+		int index = used.nextClearBit(next);
+		if (index >= size)
+			index = used.nextClearBit(0);
+		used.set(index);
+		available--;
+		next = index + 1 >= size ? 0 : index + 1;
+		return lowPort + index;
+	}
+
+	/**
+	 * Mark this port as used (ex: by a server that was already running)
+	 * 
+	 * @param port The port
+	 * @return false if this port is not in the pool or is already used
+	 */
+	public synchronized boolean take(int port) {
+		if (port < lowPort || port > highPort || used.get(port - lowPort))
+			return false;
+		used.set(port - lowPort);
+		available--;
+		return true;
+	}
+
+	/**
+	 * Release a port previously leased
+	 * 
+	 * @param port The port
+	 */
+	public synchronized void release(int port) {
+		if (port < lowPort || port > highPort || !used.get(port - lowPort))
+			return;
+		used.clear(port - lowPort);
+		available++;
+	}
+
+	/**
+	 * @return The number of available ports
+	 */
+	public synchronized int available() {
+		return available;
+	}
+
+	/**
+	 * @return The number of ports in this pool
+	 */
+	public int size() {
+		return highPort - lowPort + 1;
+	}
+}
@@ -0,0 +1,583 @@
+package com.froxynetwork.servermanager.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.servermanager.metrics.Metrics;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class ResourceSampler {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * Clock ticks per second of utime and stime (USER_HZ, 100 on all supported
+	 * architectures)
+	 */
+	private static final int USER_HZ = 100;
+	/**
+	 * Size of a page in statm
+	 */
+	private static final int PAGE_SIZE = 4096;
+	/**
+	 * Minimum time (in ms) between two scans of /proc to find new servers
+	 */
+	private static final long SCAN_INTERVAL = 10000;
+	/**
+	 * Content of /proc/[pid]/comm of a JVM
+	 */
+	private static final byte[] JAVA = "java\n".getBytes(StandardCharsets.US_ASCII);
+
+	private ServerManager serverManager;
+	@Getter
+	private long interval;
+	@Getter
+	private int history;
+	private String pattern;
+	/**
+	 * id => process of the server
+	 */
+	private ConcurrentHashMap<String, Proc> procs;
+	/**
+	 * Types with gauges
+	 */
+	private Set<String> gaugeTypes;
+	/**
+	 * Buffer used to read all files of /proc, only used by the sampler thread
+	 */
+	private ByteBuffer buffer;
+	private long lastScan;
+	private Thread thread;
+	private volatile boolean stop = false;
+
+	/**
+	 * @param serverManager The ServerManager
+	 * @param interval      The time (in ms) between two samples
+	 * @param history       The number of samples kept per server
+	 * @param pattern       The part of the command line of a server that
+	 *                      identifies it ({id} is replaced by the id of the server)
+	 */
+	public ResourceSampler(ServerManager serverManager, long interval, int history, String pattern) {
+		this.serverManager = serverManager;
+		this.interval = interval;
+		this.history = Math.max(1, history);
+		this.pattern = pattern;
+		this.procs = new ConcurrentHashMap<>();
+		this.gaugeTypes = ConcurrentHashMap.newKeySet();
+		this.buffer = ByteBuffer.allocateDirect(8192);
+		if (!new File("/proc/self/stat").exists()) {
+			LOG.warn("/proc is not available, resources of servers will not be sampled");
+			return;
+		}
+		thread = new Thread(() -> {
+			while (!stop) {
+				try {
+					Thread.sleep(interval);
+					tick();
+				} catch (InterruptedException ex) {
+					break;
+				} catch (Exception ex) {
+					LOG.error("Error while sampling servers: ", ex);
+				}
+			}
+			for (Proc p : procs.values())
+				p.close();
+		}, "ServerManager-Sampler");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	void tick() {
+		long now = System.nanoTime();
+		boolean unmapped = false;
+		for (Server srv : serverManager.getServers())
+			unmapped |= sample(srv, now);
+		Server bungee = serverManager.getBungee();
+		if (bungee != null)
+			unmapped |= sample(bungee, now);
+		// Forget closed servers
+		for (Proc p : procs.values())
+			if (p.dead || serverManager.getServer(p.id) == null) {
+				procs.remove(p.id, p);
+				p.close();
+			}
+		if (unmapped && System.currentTimeMillis() - lastScan >= SCAN_INTERVAL)
+			scan();
+	}
+
+	/**
+	 * @return true if the process of this server is not known yet
+	 */
+	private boolean sample(Server srv, long now) {
+		Proc p = procs.get(srv.getId());
+		if (p == null)
+			return srv.getState() == ServerState.RUNNING || srv.getState() == ServerState.DRAINING;
+		try {
+			p.sample(buffer, now);
+		} catch (IOException ex) {
+			// The process is dead, it may have been restarted with another pid
+			p.dead = true;
+		}
+		return false;
+	}
+
+	/**
+	 * Find the pid of servers that are not mapped yet by reading the command line
+	 * of all java processes. Other processes are skipped: the screen (and the
+	 * shell) that started a server have the same jar in their command line
+	 */
+	private void scan() {
+		lastScan = System.currentTimeMillis();
+		Map<String, Server> wanted = new ConcurrentHashMap<>();
+		for (Server srv : serverManager.getServers())
+			if (!procs.containsKey(srv.getId()))
+				wanted.put(pattern.replace("{id}", srv.getId()), srv);
+		Server bungee = serverManager.getBungee();
+		if (bungee != null && !procs.containsKey(bungee.getId()))
+			wanted.put(pattern.replace("{id}", bungee.getId()), bungee);
+		if (wanted.isEmpty())
+			return;
+		String[] pids = new File("/proc").list();
+		if (pids == null)
+			return;
+		for (String pid : pids) {
+			if (pid.isEmpty() || !Character.isDigit(pid.charAt(0)))
+				continue;
+			if (!isJava(pid, buffer))
+				continue;
+			String cmdline = readCmdline(pid, buffer);
+			if (cmdline == null)
+				continue;
+			for (Map.Entry<String, Server> e : wanted.entrySet())
+				if (cmdline.contains(e.getKey())) {
+					Server srv = e.getValue();
+					try {
+						Proc p = new Proc(srv.getId(), srv.getType(), Integer.parseInt(pid), history);
+						Proc old = procs.put(srv.getId(), p);
+						if (old != null)
+							old.close();
+						registerGauges(srv.getType());
+						LOG.debug("Server {} has pid {}", srv.getId(), pid);
+					} catch (IOException ex) {
+						// Dead between list() and open()
+					}
+					wanted.remove(e.getKey());
+					break;
+				}
+			if (wanted.isEmpty())
+				return;
+		}
+	}
+
+	/**
+	 * Read the cpus the JVM of a running server is allowed to run on. Used for
+	 * servers started before this ServerManager
+	 * 
+	 * @param id The id of the server
+	 * @return The cpus (ex: 2-3,34-35), or null if the JVM of this server is not
+	 *         found
+	 */
+	public String getAffinity(String id) {
+		String pid = findJava(pattern.replace("{id}", id));
+		if (pid == null)
+			return null;
+		try {
+			for (String line : Files.readAllLines(Paths.get("/proc", pid, "status"), StandardCharsets.US_ASCII))
+				if (line.startsWith("Cpus_allowed_list:"))
+					return line.substring(line.indexOf(':') + 1).trim();
+		} catch (IOException ex) {
+			// Dead
+		}
+		return null;
+	}
+
+	/**
+	 * Find the JVM whose command line contains this text. All processes are read,
+	 * do not call it often
+	 * 
+	 * @param match The part of the command line (ex: /KOTH_1/spigot.jar)
+	 * @return The pid of this JVM, or null if not found
+	 */
+	public static String findJava(String match) {
+		String[] pids = new File("/proc").list();
+		if (pids == null)
+			return null;
+		// Not called by the sampler thread
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		for (String pid : pids) {
+			if (pid.isEmpty() || !Character.isDigit(pid.charAt(0)) || !isJava(pid, buffer))
+				continue;
+			String cmdline = readCmdline(pid, buffer);
+			if (cmdline != null && cmdline.contains(match))
+				return pid;
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if the executable of this process is java
+	 */
+	private static boolean isJava(String pid, ByteBuffer buffer) {
+		try (FileChannel fc = FileChannel.open(Paths.get("/proc", pid, "comm"), StandardOpenOption.READ)) {
+			buffer.clear();
+			fc.read(buffer, 0);
+			buffer.flip();
+			if (buffer.remaining() != JAVA.length)
+				return false;
+			for (int i = 0; i < JAVA.length; i++)
+				if (buffer.get(i) != JAVA[i])
+					return false;
+			return true;
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	private static String readCmdline(String pid, ByteBuffer buffer) {
+		try (FileChannel fc = FileChannel.open(Paths.get("/proc", pid, "cmdline"), StandardOpenOption.READ)) {
+			buffer.clear();
+			fc.read(buffer, 0);
+			buffer.flip();
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			// Arguments are separated by \0
+			for (int i = 0; i < bytes.length; i++)
+				if (bytes[i] == 0)
+					bytes[i] = ' ';
+			return new String(bytes, StandardCharsets.UTF_8);
+		} catch (IOException ex) {
+			return null;
+		}
+	}
+
+	private void registerGauges(String type) {
+		if (!gaugeTypes.add(type))
+			return;
+		String labels = "type=\"" + type + "\"";
+		Metrics.gauge("server_cpu_permille", labels, () -> getTypeStats(type).cpu);
+		Metrics.gauge("server_rss_bytes", labels, () -> getTypeStats(type).rss);
+		Metrics.gauge("server_threads", labels, () -> getTypeStats(type).threads);
+		Metrics.gauge("server_io_read_bytes_per_second", labels, () -> getTypeStats(type).read);
+		Metrics.gauge("server_io_write_bytes_per_second", labels, () -> getTypeStats(type).write);
+	}
+
+	/**
+	 * @param id The id of the server
+	 * @return The process of this server, or null if not found yet
+	 */
+	public Proc get(String id) {
+		return procs.get(id);
+	}
+
+	/**
+	 * @param type The type
+	 * @return The sum of the last sample of all servers of this type
+	 */
+	public Stats getTypeStats(String type) {
+		Stats stats = new Stats(type);
+		for (Proc p : procs.values())
+			if (p.type.equals(type))
+				p.addLast(stats);
+		return stats;
+	}
+
+	/**
+	 * @return The sum of the last sample of all servers, per type
+	 */
+	public List<Stats> getAllTypeStats() {
+		Map<String, Stats> map = new ConcurrentHashMap<>();
+		for (Proc p : procs.values())
+			p.addLast(map.computeIfAbsent(p.type, Stats::new));
+		List<Stats> list = new ArrayList<>(map.values());
+		list.sort((a, b) -> a.type.compareTo(b.type));
+		return list;
+	}
+
+	/**
+	 * @param type The type
+	 * @return The average RSS (in bytes) of a server of this type, or 0 if no
+	 *         server of this type has been sampled
+	 */
+	public long getAverageRss(String type) {
+		Stats stats = getTypeStats(type);
+		return stats.servers == 0 ? 0 : stats.rss / stats.servers;
+	}
+
+	public void stop() {
+		stop = true;
+		if (thread != null)
+			thread.interrupt();
+	}
+
+	/**
+	 * Sum of samples of many servers
+	 */
+	@Getter
+	public static class Stats {
+		private String type;
+		private int servers;
+		/**
+		 * CPU used (1000 = one core)
+		 */
+		private long cpu;
+		private long rss;
+		private long threads;
+		/**
+		 * Bytes read from the disk per second
+		 */
+		private long read;
+		/**
+		 * Bytes written to the disk per second
+		 */
+		private long write;
+
+		private Stats(String type) {
+			this.type = type;
+		}
+	}
+
+	/**
+	 * A process of a server and its last samples
+	 */
+	public static class Proc {
+		@Getter
+		private String id;
+		@Getter
+		private String type;
+		@Getter
+		private int pid;
+		private FileChannel stat;
+		private FileChannel statm;
+		/**
+		 * null if not readable (the process is owned by another user)
+		 */
+		private FileChannel io;
+		private volatile boolean dead;
+
+		// Previous counters
+		private long lastTime;
+		private long lastTicks;
+		private long lastRead;
+		private long lastWrite;
+
+		// Samples, in a circular buffer
+		private long[] time;
+		private long[] cpu;
+		private long[] rss;
+		private long[] threads;
+		private long[] read;
+		private long[] write;
+		private int next;
+		private int count;
+
+		private Proc(String id, String type, int pid, int history) throws IOException {
+			this.id = id;
+			this.type = type;
+			this.pid = pid;
+			String dir = "/proc/" + pid;
+			this.stat = FileChannel.open(Paths.get(dir, "stat"), StandardOpenOption.READ);
+			this.statm = FileChannel.open(Paths.get(dir, "statm"), StandardOpenOption.READ);
+			try {
+				this.io = FileChannel.open(Paths.get(dir, "io"), StandardOpenOption.READ);
+			} catch (IOException ex) {
+				this.io = null;
+			}
+			this.time = new long[history];
+			this.cpu = new long[history];
+			this.rss = new long[history];
+			this.threads = new long[history];
+			this.read = new long[history];
+			this.write = new long[history];
+		}
+
+		/**
+		 * Read stat, statm and io. This method doesn't allocate
+		 */
+		private void sample(ByteBuffer buffer, long now) throws IOException {
+			// stat: pid (comm) state ... utime(14) stime(15) ... num_threads(20)
+			read(stat, buffer);
+			int pos = buffer.limit() - 1;
+			// comm can contain spaces and ')', fields start after the last ')'
+			while (pos > 0 && buffer.get(pos) != ')')
+				pos--;
+			buffer.position(pos + 2);
+			// Now at field 3 (state)
+			skipFields(buffer, 11);
+			long ticks = nextLong(buffer) + nextLong(buffer);
+			skipFields(buffer, 4);
+			long nbThreads = nextLong(buffer);
+
+			// statm: size resident ...
+			read(statm, buffer);
+			nextLong(buffer);
+			long resident = nextLong(buffer) * PAGE_SIZE;
+
+			long readBytes = -1;
+			long writeBytes = -1;
+			if (io != null) {
+				try {
+					read(io, buffer);
+					readBytes = field(buffer, READ_BYTES);
+					writeBytes = field(buffer, WRITE_BYTES);
+				} catch (IOException ex) {
+					// Not allowed to read it
+					io.close();
+					io = null;
+				}
+			}
+
+			synchronized (this) {
+				// In double, deltas multiplied by 10^9 overflow a long
+				double elapsed = (now - lastTime) / 1_000_000_000D;
+				boolean first = lastTime == 0;
+				time[next] = TimeUnit.NANOSECONDS.toMillis(now);
+				cpu[next] = first ? 0 : (long) ((ticks - lastTicks) * 1000D / USER_HZ / elapsed);
+				rss[next] = resident;
+				threads[next] = nbThreads;
+				read[next] = first || readBytes < 0 ? 0 : (long) ((readBytes - lastRead) / elapsed);
+				write[next] = first || writeBytes < 0 ? 0 : (long) ((writeBytes - lastWrite) / elapsed);
+				next = (next + 1) % time.length;
+				if (count < time.length)
+					count++;
+				lastTime = now;
+				lastTicks = ticks;
+				lastRead = readBytes;
+				lastWrite = writeBytes;
+			}
+		}
+
+		private synchronized void addLast(Stats stats) {
+			if (count == 0)
+				return;
+			int last = (next - 1 + time.length) % time.length;
+			stats.servers++;
+			stats.cpu += cpu[last];
+			stats.rss += rss[last];
+			stats.threads += threads[last];
+			stats.read += read[last];
+			stats.write += write[last];
+		}
+
+		/**
+		 * @return One line per sample, oldest first
+		 */
+		public synchronized List<String> getHistory() {
+			List<String> lines = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				int idx = (next - count + i + time.length) % time.length;
+				lines.add(String.format("cpu = %d.%d%%, rss = %d MB, threads = %d, read = %d KB/s, write = %d KB/s",
+						cpu[idx] / 10, cpu[idx] % 10, rss[idx] / 1024 / 1024, threads[idx], read[idx] / 1024,
+						write[idx] / 1024));
+			}
+			return lines;
+		}
+
+		private void close() {
+			for (FileChannel fc : new FileChannel[] { stat, statm, io })
+				if (fc != null)
+					try {
+						fc.close();
+					} catch (IOException ex) {
+						// Ignore
+					}
+		}
+
+		private static final byte[] READ_BYTES = "read_bytes:".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] WRITE_BYTES = "write_bytes:".getBytes(StandardCharsets.US_ASCII);
+
+		/**
+		 * Read the whole file from the start. Files of /proc are generated again at
+		 * each read from the offset 0
+		 */
+		private static void read(FileChannel fc, ByteBuffer buffer) throws IOException {
+			buffer.clear();
+			int n = fc.read(buffer, 0);
+			if (n <= 0)
+				throw new IOException("Empty file");
+			buffer.flip();
+		}
+
+		private static void skipFields(ByteBuffer buffer, int n) {
+			for (int i = 0; i < n; i++) {
+				while (buffer.hasRemaining() && buffer.get(buffer.position()) == ' ')
+					buffer.get();
+				while (buffer.hasRemaining() && buffer.get(buffer.position()) != ' ')
+					buffer.get();
+			}
+		}
+
+		private static long nextLong(ByteBuffer buffer) {
+			while (buffer.hasRemaining() && !isDigit(buffer.get(buffer.position())))
+				buffer.get();
+			long value = 0;
+			while (buffer.hasRemaining() && isDigit(buffer.get(buffer.position())))
+				value = value * 10 + (buffer.get() - '0');
+			return value;
+		}
+
+		/**
+		 * @return The value of the line starting with this key, or -1
+		 */
+		private static long field(ByteBuffer buffer, byte[] key) {
+			int limit = buffer.limit();
+			for (int start = 0; start + key.length <= limit;) {
+				boolean match = true;
+				for (int i = 0; i < key.length && match; i++)
+					match = buffer.get(start + i) == key[i];
+				if (match) {
+					buffer.position(start + key.length);
+					return nextLong(buffer);
+				}
+				// Next line
+				while (start < limit && buffer.get(start) != '\n')
+					start++;
+				start++;
+			}
+			return -1;
+		}
+
+		private static boolean isDigit(byte b) {
+			return b >= '0' && b <= '9';
+		}
+	}
+}
@@ -2,15 +2,23 @@ package com.froxynetwork.servermanager.server;
 
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.froxynetwork.froxynetwork.network.output.data.server.ServerDataOutput.ServerStatus;
 import com.froxynetwork.froxynetwork.network.websocket.WebSocketServerImpl;
+import com.froxynetwork.servermanager.record.TrafficRecorder;
 import com.froxynetwork.servermanager.scheduler.Scheduler;
+import com.froxynetwork.servermanager.websocket.Heartbeat;
+import com.froxynetwork.servermanager.websocket.commands.BestCommand;
+import com.froxynetwork.servermanager.websocket.commands.PingCommand;
+import com.froxynetwork.servermanager.websocket.commands.PlayerCommand;
+import com.froxynetwork.servermanager.websocket.commands.PongCommand;
 
 import lombok.Getter;
+import lombok.Setter;
 
 /**
  * MIT License
@@ -39,8 +47,12 @@ import lombok.Getter;
  */
 public class Server {
 	private final Logger LOG = LoggerFactory.getLogger(getClass());
+	/**
+	 * The uuid of the start request. Changed once a warm server is claimed
+	 */
 	@Getter
-	private UUID uuid;
+	@Setter
+	private volatile UUID uuid;
 	@Getter
 	private String id;
 	@Getter
@@ -59,18 +71,73 @@ public class Server {
 	private WebSocketServerImpl webSocket;
 	@Getter
 	private int timeout;
+	@Getter
+	@Setter
+	private volatile ServerState state;
+	@Getter
+	@Setter
+	private volatile int players;
+	@Getter
+	private Heartbeat heartbeat;
+	/**
+	 * Number of messages waiting to be sent (this server is not linked yet)
+	 */
+	private AtomicInteger sendQueue;
+	/**
+	 * Time (in ms) of the start request, 0 if unknown
+	 */
+	@Getter
+	@Setter
+	private long requestTime;
+	/**
+	 * Time (in ms) of the end of the start script, 0 if unknown
+	 */
+	@Getter
+	@Setter
+	private long scriptTime;
+	/**
+	 * The AppCDS archive given to the server, empty if none
+	 */
+	@Getter
+	@Setter
+	private String archive = "";
+	/**
+	 * true if the JVM of the server has mapped its AppCDS archive (checked once the
+	 * server is linked)
+	 */
+	@Getter
+	@Setter
+	private boolean cds;
+	/**
+	 * true if this server has been started ahead of demand and no start request
+	 * has claimed it yet
+	 */
+	@Getter
+	@Setter
+	private volatile boolean warm;
 
 	public Server(UUID uuid, String id,
 			com.froxynetwork.froxynetwork.network.output.data.server.ServerDataOutput.Server restServer,
-			boolean bungee) {
-		this.uuid = uuid;
-		this.id = id;
+			boolean bungee, int heartbeatMiss) {
+		this(uuid, id, restServer.getType(), restServer.getPort(), bungee, heartbeatMiss);
 		this.name = restServer.getName();
-		this.type = restServer.getType();
-		this.port = restServer.getPort();
 		this.status = restServer.getStatus();
 		this.creationTime = restServer.getCreationTime();
+	}
+
+	/**
+	 * Create a server without REST data (used by benchmarks)
+	 */
+	Server(UUID uuid, String id, String type, int port, boolean bungee, int heartbeatMiss) {
+		this.uuid = uuid;
+		this.id = id;
+		this.type = type;
+		this.port = port;
 		this.bungee = bungee;
+		this.state = ServerState.STARTING;
+		this.players = 0;
+		this.heartbeat = new Heartbeat(id, heartbeatMiss);
+		this.sendQueue = new AtomicInteger();
 		resetTimeout();
 	}
 
@@ -81,28 +148,73 @@ public class Server {
 	 * @param message The message to send
 	 */
 	public void sendMessage(String channel, String message) {
+		sendQueue.incrementAndGet();
 		Scheduler.add(() -> {
+			if (state == ServerState.STOPPING) {
+				// Closed, this message will never be sent
+				sendQueue.decrementAndGet();
+				return true;
+			}
 			if (!isLinked())
 				return false;
 			try {
-				webSocket.sendCommand(channel, message);
+				send(webSocket, channel, message);
 			} catch (Exception ex) {
 				LOG.error("Error while sending a message to server {} with channel {}", id, channel);
 				LOG.error("", ex);
 				return false;
 			}
+			sendQueue.decrementAndGet();
 			return true;
 		}, null);
 	}
 
+	/**
+	 * @return The number of messages sent with
+	 *         {@link #sendMessage(String, String)} that are waiting to be sent
+	 */
+	public int getSendQueue() {
+		return sendQueue.get();
+	}
+
+	/**
+	 * Send a message now, without checking if this server is linked
+	 * 
+	 * @param channel The channel to use
+	 * @param message The message to send
+	 */
+	public void send(String channel, String message) {
+		send(webSocket, channel, message);
+	}
+
+	private void send(WebSocketServerImpl ws, String channel, String message) {
+		TrafficRecorder.record(true, id, channel, message);
+		ws.sendCommand(channel, message);
+	}
+
 	/**
 	 * Check if this VPS is linked with the CoreManager
 	 * 
 	 * @return true if there is a WebSocket connection between the CoreManager and
-	 *         this VPS
+	 *         this VPS and if the server still answers to the heartbeat
 	 */
 	public boolean isLinked() {
-		return webSocket != null && webSocket.isConnected();
+		return webSocket != null && webSocket.isConnected() && !heartbeat.isDead();
+	}
+
+	/**
+	 * Send a heartbeat to this server
+	 */
+	public void ping() {
+		WebSocketServerImpl ws = webSocket;
+		if (ws == null || !ws.isConnected())
+			return;
+		try {
+			send(ws, "ping", heartbeat.ping());
+		} catch (Exception ex) {
+			LOG.error("Error while sending a ping to server {}", id);
+			LOG.error("", ex);
+		}
 	}
 
 	/**
@@ -112,8 +224,13 @@ public class Server {
 	 */
 	public void resumeWebSocket(WebSocketServerImpl webSocket) {
 		this.webSocket = webSocket;
+		heartbeat.reset();
 		if (webSocket == null)
 			return;
+		webSocket.registerCommand(TrafficRecorder.wrap(id, new PingCommand(msg -> send(webSocket, "pong", msg))));
+		webSocket.registerCommand(TrafficRecorder.wrap(id, new PongCommand(heartbeat)));
+		webSocket.registerCommand(TrafficRecorder.wrap(id, new PlayerCommand(this)));
+		webSocket.registerCommand(TrafficRecorder.wrap(id, new BestCommand(this)));
 	}
 
 	public void resetTimeout() {
@@ -1,14 +1,22 @@
 package com.froxynetwork.servermanager.server;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.java_websocket.framing.CloseFrame;
 import org.slf4j.Logger;
@@ -27,11 +35,22 @@ import com.froxynetwork.froxynetwork.network.websocket.WebSocketServerImpl;
 import com.froxynetwork.froxynetwork.network.websocket.auth.WebSocketTokenAuthentication;
 import com.froxynetwork.froxynetwork.network.websocket.modules.WebSocketAutoReconnectModule;
 import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.metrics.Histogram;
+import com.froxynetwork.servermanager.metrics.Metrics;
+import com.froxynetwork.servermanager.metrics.RestMetrics;
+import com.froxynetwork.servermanager.record.TrafficRecorder;
 import com.froxynetwork.servermanager.scheduler.Scheduler;
 import com.froxynetwork.servermanager.server.config.ServerVps;
+import com.froxynetwork.servermanager.server.config.TypeRegistry;
+import com.froxynetwork.servermanager.trace.Trace;
+import com.froxynetwork.servermanager.trace.TraceStore;
+import com.froxynetwork.servermanager.websocket.Heartbeat;
+import com.froxynetwork.servermanager.websocket.commands.PingCommand;
+import com.froxynetwork.servermanager.websocket.commands.PongCommand;
 import com.froxynetwork.servermanager.websocket.commands.core.ServerRegisterCommand;
 import com.froxynetwork.servermanager.websocket.commands.core.ServerStartCommand;
 import com.froxynetwork.servermanager.websocket.commands.core.ServerStopCommand;
+import com.froxynetwork.servermanager.websocket.commands.core.ServerSyncCommand;
 import com.froxynetwork.servermanager.websocket.commands.core.ServerUnregisterCommand;
 
 import lombok.Getter;
@@ -73,22 +92,95 @@ public class ServerManager {
 	private int lowPort;
 	private int highPort;
 	private int bungeePort;
-	@Getter
 	private ServerVps serverVps;
 	private URI coreURI;
-	private LinkedList<Integer> availablePort;
+	@Getter
+	private PortPool portPool;
+	@Getter
+	private StartAdmission startAdmission;
+	@Getter
+	private StartQueue startQueue;
+	private StartDedup startDedup;
+	@Getter
+	private AutoScaler autoScaler;
+	@Getter
+	private Placement placement;
+	@Getter
+	private Drain drain;
+	@Getter
+	private TraceStore traces;
+	/**
+	 * null if disabled
+	 */
+	@Getter
+	private ResourceSampler sampler;
+	/**
+	 * null if servers are not started in their own cgroup
+	 */
+	@Getter
+	private CgroupManager cgroups;
+	/**
+	 * null if servers are not pinned to cpus
+	 */
+	@Getter
+	private CpuPool cpuPool;
+	/**
+	 * null if servers are started without CDS archive
+	 */
+	@Getter
+	private CdsManager cds;
 	@Getter
 	@Setter
 	private Server bungee;
-	private HashMap<String, Server> servers;
-	private HashMap<String, Server> creatingServers;
+	private ConcurrentHashMap<String, Server> servers;
+	private ConcurrentHashMap<String, Server> creatingServers;
+	/**
+	 * Servers waiting for their stop script
+	 */
+	private ConcurrentHashMap<String, Server> stoppingServers;
 	private WebSocketClientImpl client;
+	@Getter
+	private StateSync stateSync;
+	@Getter
+	private volatile TypeCounters counters;
+	/**
+	 * Servers counted in {@link #counters} => their type. The key is the id of the
+	 * server, or the uuid of the request until the REST API gives it an id. Only
+	 * changed with countersLock, with the counters
+	 */
+	private HashMap<String, String> counted;
+	private final Object countersLock = new Object();
+	/**
+	 * Warm starts (uuid of the request => type) not yet created on REST. Warm
+	 * servers are started without start request from the CoreManager and are
+	 * given to the next start request of their type
+	 */
+	private ConcurrentHashMap<UUID, String> warmStarts;
+	/**
+	 * Lock between claiming a warm server and loading it
+	 */
+	private final Object warmLock = new Object();
 	private Thread checkThread;
 	private String[] scriptStart;
 	private String[] scriptStop;
+	private int heartbeatInterval;
+	private int heartbeatMiss;
+	private Heartbeat coreHeartbeat;
+	private Thread heartbeatThread;
+	// Metrics
+	private Histogram startRest;
+	private Histogram startScript;
+	private Histogram startBoot;
+	private Histogram startTotal;
+	private Histogram stopScript;
+	private Histogram stopTotal;
+	/**
+	 * Types with a "servers" gauge
+	 */
+	private Set<String> gaugeTypes;
 
 	public ServerManager(String id, String ip, int lowPort, int highPort, int bungeePort, ServerVps serverVps,
-			String[] scriptStart, String[] scriptStop, URI coreURI) {
+			String[] scriptStart, String[] scriptStop, URI coreURI, int heartbeatInterval, int heartbeatMiss) {
 		this.id = id;
 		this.ip = ip;
 		this.lowPort = lowPort;
@@ -98,12 +190,29 @@ public class ServerManager {
 		this.scriptStart = scriptStart;
 		this.scriptStop = scriptStop;
 		this.coreURI = coreURI;
-		this.servers = new HashMap<>();
-		this.creatingServers = new HashMap<>();
-		this.availablePort = new LinkedList<>();
+		this.heartbeatInterval = heartbeatInterval;
+		this.heartbeatMiss = heartbeatMiss;
+		this.coreHeartbeat = new Heartbeat("core", heartbeatMiss);
+		this.servers = new ConcurrentHashMap<>();
+		this.creatingServers = new ConcurrentHashMap<>();
+		this.stoppingServers = new ConcurrentHashMap<>();
+		this.counted = new HashMap<>();
+		this.warmStarts = new ConcurrentHashMap<>();
+		this.startRest = Metrics.histogram("server_start_ms", "phase=\"rest\"", "ms");
+		this.startScript = Metrics.histogram("server_start_ms", "phase=\"script\"", "ms");
+		this.startBoot = Metrics.histogram("server_start_ms", "phase=\"boot\"", "ms");
+		this.startTotal = Metrics.histogram("server_start_ms", "phase=\"total\"", "ms");
+		this.stopScript = Metrics.histogram("server_stop_ms", "phase=\"script\"", "ms");
+		this.stopTotal = Metrics.histogram("server_stop_ms", "phase=\"total\"", "ms");
+		this.gaugeTypes = ConcurrentHashMap.newKeySet();
+		this.stateSync = new StateSync(this);
+		this.counters = new TypeCounters(Main.get().getServerConfigManager().getSnapshot().getRegistry());
+		// Ids of types may change after a reload
+		Main.get().getServerConfigManager().addListener((type, oldConfig, newConfig) -> rebuildCounters());
 		// TODO Detect available port
-		for (int i = lowPort; i <= highPort; i++)
-			availablePort.add(i);
+		this.portPool = new PortPool(lowPort, highPort);
+		Metrics.gauge("port_pool_size", null, portPool::size);
+		Metrics.gauge("port_pool_used", null, () -> portPool.size() - portPool.available());
 		checkThread = new Thread(() -> {
 			// This thread will check every seconds if servers are running (or is crashed)
 			while (true) {
@@ -124,6 +233,11 @@ public class ServerManager {
 						} else
 							srv.resetTimeout();
 					}
+					drain.check();
+					if (cgroups != null)
+						cgroups.check();
+					if (cds != null)
+						cds.check();
 				} catch (InterruptedException ex) {
 					return;
 				} catch (Exception ex) {
@@ -131,7 +245,50 @@ public class ServerManager {
 				}
 			}
 		});
-		checkThread.start();
+		heartbeatThread = new Thread(() -> {
+			// This thread will send a ping to the CoreManager and to each server
+			while (true) {
+				try {
+					Thread.sleep(heartbeatInterval);
+					heartbeat();
+				} catch (InterruptedException ex) {
+					return;
+				} catch (Exception ex) {
+					LOG.error("Error in heartbeatThread: ", ex);
+				}
+			}
+		}, "ServerManager-Heartbeat");
+		// Both threads are started by load(), once the placement and the drain are
+		// initialized
+	}
+
+	private void heartbeat() {
+		// CoreManager
+		WebSocketClientImpl client = this.client;
+		if (client != null && client.isAuthenticated()) {
+			if (coreHeartbeat.isDead()) {
+				LOG.warn("CoreManager missed {} heartbeats, reconnecting", coreHeartbeat.getMissed());
+				coreHeartbeat.reset();
+				client.disconnect(CloseFrame.NORMAL, "Heartbeat timeout");
+			} else
+				sendToCore("ping", coreHeartbeat.ping());
+		}
+		// Servers
+		if (bungee != null)
+			heartbeat(bungee);
+		for (Server srv : servers.values())
+			heartbeat(srv);
+	}
+
+	private void heartbeat(Server srv) {
+		boolean dead = srv.getHeartbeat().isDead();
+		srv.ping();
+		if (!dead && srv.getHeartbeat().isDead())
+			// Now dead, the checkThread will close it if it doesn't answer
+			LOG.warn("Server {} missed {} heartbeats, its main thread may be stuck", srv.getId(),
+					srv.getHeartbeat().getMissed());
+		// Dead servers don't receive players
+		placement.update(srv);
 	}
 
 	private void loadAllServers() {
@@ -142,14 +299,18 @@ public class ServerManager {
 		try {
 			// Bungee
 			LOG.debug("Bungee ...");
-			ServerList list = Main.get().getNetworkManager().getNetwork().getServerService()
-					.syncGetServers(Type.BUNGEE);
+			ServerList list = RestMetrics.call("server_list",
+					() -> Main.get().getNetworkManager().getNetwork().getServerService().syncGetServers(Type.BUNGEE));
 			LOG.debug("Got {} bungee !", list.getServers().size());
 			for (ServerDataOutput.Server srvList : list.getServers()) {
 				if (srvList.getVps() != null && srvList.getVps().equalsIgnoreCase(id)) {
 					LOG.debug("Found bungee {} being bungee on this VPS !", srvList.getId());
 					// A Bungee is already running on this VPS
-					bungee = new Server(null, srvList.getId(), srvList, true);
+					bungee = new Server(null, srvList.getId(), srvList, true, heartbeatMiss);
+					bungee.setState(ServerState.RUNNING);
+					count(bungee.getId(), bungee.getType());
+					registerGauges(bungee);
+					reserveCpus(bungee);
 				}
 			}
 			if (bungee != null)
@@ -159,14 +320,20 @@ public class ServerManager {
 
 			// Servers
 			LOG.debug("Servers ...");
-			list = Main.get().getNetworkManager().getNetwork().getServerService().syncGetServers(Type.SERVER);
+			list = RestMetrics.call("server_list",
+					() -> Main.get().getNetworkManager().getNetwork().getServerService().syncGetServers(Type.SERVER));
 			LOG.debug("Got {} servers !", list.getServers().size());
 			for (ServerDataOutput.Server srvList : list.getServers()) {
 				if (srvList.getVps() != null && srvList.getVps().equalsIgnoreCase(id)) {
 					LOG.debug("Found server {} being one server of this VPS !", srvList.getId());
 					// This server is running on this VPS
-					servers.put(srvList.getId(), new Server(null, srvList.getId(), srvList, false));
-					availablePort.remove((Integer) srvList.getPort());
+					Server srv = new Server(null, srvList.getId(), srvList, false, heartbeatMiss);
+					srv.setState(ServerState.RUNNING);
+					servers.put(srvList.getId(), srv);
+					count(srv.getId(), srv.getType());
+					registerGauges(srv);
+					portPool.take(srvList.getPort());
+					reserveCpus(srv);
 				}
 			}
 			LOG.info("{} server loaded !", servers.size());
@@ -178,6 +345,18 @@ public class ServerManager {
 		}
 	}
 
+	/**
+	 * Count the cores of a server started before this ServerManager, so new
+	 * servers are not pinned on them
+	 */
+	private void reserveCpus(Server srv) {
+		if (cpuPool == null)
+			return;
+		String affinity = sampler == null ? null : sampler.getAffinity(srv.getId());
+		CpuPool.Lease lease = cpuPool.reserve(srv.getPort(), affinity);
+		LOG.debug("Server {} uses cpus {} (affinity = {})", srv.getId(), lease.getCpus(), affinity);
+	}
+
 	public void login() throws URISyntaxException {
 		LOG.debug("login()");
 		if (client != null && client.isConnected()) {
@@ -185,12 +364,18 @@ public class ServerManager {
 			return;
 		}
 		client = WebSocketFactory.client(coreURI, new WebSocketTokenAuthentication(Main.get().getNetworkManager()));
+		Histogram authLatency = Metrics.histogram("websocket_auth_latency_ms", "link=\"core\"", "ms");
+		long[] disconnectTime = new long[] { System.nanoTime() };
 		client.registerWebSocketAuthentication(() -> {
-			// TODO
+			authLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - disconnectTime[0]));
+			coreHeartbeat.reset();
+			// Send the full state of this VPS
+			stateSync.sendSnapshot();
 		});
 
 		WebSocketAutoReconnectModule wsarm = new WebSocketAutoReconnectModule(5000);
 		client.registerWebSocketDisconnection(remote -> {
+			disconnectTime[0] = System.nanoTime();
 			if (!stop)
 				return;
 			wsarm.unload();
@@ -198,95 +383,589 @@ public class ServerManager {
 		client.addModule(wsarm);
 
 		// Commands
-		client.registerCommand(new ServerRegisterCommand());
-		client.registerCommand(new ServerStartCommand(client));
-		client.registerCommand(new ServerStopCommand());
-		client.registerCommand(new ServerUnregisterCommand());
+		client.registerCommand(TrafficRecorder.wrap(TrafficRecorder.CORE, new ServerRegisterCommand()));
+		client.registerCommand(TrafficRecorder.wrap(TrafficRecorder.CORE, new ServerStartCommand()));
+		client.registerCommand(TrafficRecorder.wrap(TrafficRecorder.CORE, new ServerStopCommand()));
+		client.registerCommand(TrafficRecorder.wrap(TrafficRecorder.CORE, new ServerUnregisterCommand()));
+		client.registerCommand(TrafficRecorder.wrap(TrafficRecorder.CORE, new ServerSyncCommand()));
+		client.registerCommand(
+				TrafficRecorder.wrap(TrafficRecorder.CORE, new PingCommand(msg -> sendToCore("pong", msg))));
+		client.registerCommand(TrafficRecorder.wrap(TrafficRecorder.CORE, new PongCommand(coreHeartbeat)));
 
 		LOG.debug("login() ok");
 	}
 
+	/**
+	 * Initialize the admission control and the queue of start requests
+	 * 
+	 * @param minMemory  The minimum free memory (in MB) to start a server, 0 to
+	 *                   disable this check
+	 * @param minDisk    The minimum free disk space (in MB) to start a server, 0
+	 *                   to disable this check
+	 * @param diskPath   The directory where servers are created
+	 * @param maxWait    The default maximum time (in ms) a start request can wait
+	 * @param lobbyTypes The types started before games
+	 * @param weights    The weight of each type
+	 * @param dedupSize  The maximum number of start uuids kept to detect
+	 *                   duplicates
+	 * @param dedupTtl   The time (in ms) a start uuid is kept
+	 */
+	public void initializeStartQueue(long minMemory, long minDisk, File diskPath, long maxWait,
+			Set<String> lobbyTypes, Map<String, Integer> weights, int dedupSize, long dedupTtl) {
+		startDedup = new StartDedup(dedupSize, dedupTtl);
+		startAdmission = new StartAdmission(this, minMemory, minDisk, diskPath);
+		startQueue = new StartQueue(startAdmission, this::_openServer, maxWait, lobbyTypes, weights);
+	}
+
+	/**
+	 * Start the autoscaler that keeps the min of each type and starts servers
+	 * ahead of the demand
+	 * 
+	 * @param interval  The interval (in seconds) between two ticks
+	 * @param alpha     The smoothing factor of the EWMA (between 0 and 1)
+	 * @param lead      The time (in seconds) needed to start a server
+	 * @param maxStarts The maximum number of servers started per tick
+	 */
+	public void initializeAutoScaler(int interval, double alpha, int lead, int maxStarts) {
+		autoScaler = new AutoScaler(this, interval, alpha, lead, maxStarts);
+	}
+
+	/**
+	 * Initialize the placement of players
+	 * 
+	 * @param fill Type => number of players above which a server is full
+	 */
+	public void initializePlacement(Map<String, Integer> fill) {
+		placement = new Placement(this, fill);
+	}
+
+	/**
+	 * Initialize the drain of servers before stopping them
+	 * 
+	 * @param timeout The max time (in ms) a server is draining before being
+	 *                stopped. 0 to stop servers without draining them
+	 */
+	public void initializeDrain(long timeout) {
+		drain = new Drain(this, timeout);
+	}
+
+	/**
+	 * Initialize the store of start traces
+	 * 
+	 * @param size The maximum number of traces kept
+	 */
+	public void initializeTraces(int size) {
+		traces = new TraceStore(size);
+	}
+
+	/**
+	 * Start sampling CPU, memory, threads and disk I/O of each server
+	 * 
+	 * @param interval The time (in ms) between two samples
+	 * @param history  The number of samples kept per server
+	 * @param pattern  The part of the command line of a server that identifies it
+	 *                 ({id} is replaced by the id of the server)
+	 */
+	public void initializeSampler(long interval, int history, String pattern) {
+		sampler = new ResourceSampler(this, interval, history, pattern);
+	}
+
+	/**
+	 * Start each server in its own cgroup v2 group
+	 * 
+	 * @param root         The cgroup v2 directory that contains a group per server
+	 * @param cpuWeight    Type => cpu.weight
+	 * @param cpuMax       Type => max CPU in percent of one core
+	 * @param memoryMax    Type => max memory in MB
+	 * @param pressureWarn The pressure (in percent) above which a server is
+	 *                     contended
+	 */
+	public void initializeCgroups(File root, Map<String, Integer> cpuWeight, Map<String, Integer> cpuMax,
+			Map<String, Integer> memoryMax, int pressureWarn) {
+		cgroups = new CgroupManager(root, cpuWeight, cpuMax, memoryMax, pressureWarn);
+	}
+
+	/**
+	 * Pin each server to its own physical cores, all on the same NUMA node
+	 * 
+	 * @param coresPerServer The number of physical cores given to each server
+	 * @param reserved       The cpus that are never given to servers
+	 */
+	public void initializeCpuPool(int coresPerServer, Set<Integer> reserved) {
+		try {
+			cpuPool = new CpuPool(coresPerServer, reserved);
+		} catch (IOException ex) {
+			LOG.error("Cannot read the cpu topology, servers will not be pinned");
+			LOG.error("", ex);
+			return;
+		}
+		for (int node : cpuPool.getNodes())
+			Metrics.gauge("cpu_pool_servers", "node=\"" + node + "\"", () -> cpuPool.getServers(node));
+	}
+
+	/**
+	 * Start servers with an AppCDS archive of their type
+	 * 
+	 * @param templates The directory that contains a directory per type
+	 * @param dir       The directory where archives are saved
+	 * @param script    The script that generates an archive
+	 * @param timeout   The maximum time (in ms) of the script
+	 * @param pattern   The part of the command line of a server that identifies
+	 *                  its JVM ({id} = id of the server)
+	 */
+	public void initializeCds(File templates, File dir, String[] script, long timeout, String pattern) {
+		cds = new CdsManager(templates, dir, script, timeout, portPool, pattern);
+	}
+
+	/**
+	 * Release the port of a server and the cpus leased with it
+	 */
+	private void releasePort(int port) {
+		portPool.release(port);
+		if (cpuPool != null)
+			cpuPool.release(port);
+	}
+
 	private boolean loaded = false;
 
 	public void load() throws URISyntaxException {
 		if (loaded)
 			return;
+		checkThread.start();
+		heartbeatThread.start();
 		loadAllServers();
 		login();
 		loaded = true;
 	}
 
+	/**
+	 * @return The config of this VPS (the last loaded one)
+	 */
+	public ServerVps getServerVps() {
+		ServerVps vps = Main.get().getServerConfigManager().getVps(id);
+		return vps == null ? serverVps : vps;
+	}
+
+	/**
+	 * Count all servers of this VPS again with the last registry of types
+	 */
+	private void rebuildCounters() {
+		synchronized (countersLock) {
+			TypeRegistry registry = Main.get().getServerConfigManager().getSnapshot().getRegistry();
+			if (counters.getRegistry() == registry)
+				return;
+			TypeCounters newCounters = new TypeCounters(registry);
+			for (String type : counted.values())
+				newCounters.add(type, 1);
+			counters = newCounters;
+		}
+	}
+
+	/**
+	 * Add a server to the counters. Nothing is done if it's already counted
+	 * 
+	 * @param key  The id of the server, or the uuid of the request
+	 * @param type The type of the server
+	 */
+	private void count(String key, String type) {
+		synchronized (countersLock) {
+			if (counted.putIfAbsent(key, type) == null)
+				counters.add(type, 1);
+		}
+		if (gaugeTypes.add(type))
+			for (ServerState state : ServerState.values())
+				Metrics.gauge("servers", "type=\"" + type + "\",state=\"" + state.name().toLowerCase() + "\"",
+						() -> countServers(type, state));
+	}
+
+	/**
+	 * Remove a server from the counters. Nothing is done if it's not counted
+	 * 
+	 * @param key The id of the server, or the uuid of the request
+	 */
+	private void uncount(String key) {
+		synchronized (countersLock) {
+			String type = counted.remove(key);
+			if (type != null)
+				counters.add(type, -1);
+		}
+	}
+
+	/**
+	 * Change the key of a counted server (ex: once the REST API gave it an id)
+	 */
+	private void recount(String oldKey, String newKey) {
+		synchronized (countersLock) {
+			String type = counted.remove(oldKey);
+			if (type != null)
+				counted.put(newKey, type);
+		}
+	}
+
+	/**
+	 * @return The number of servers of this type in this state (bungee included)
+	 */
+	private long countServers(String type, ServerState state) {
+		long n = 0;
+		if (bungee != null && bungee.getType().equals(type) && bungee.getState() == state)
+			n++;
+		for (Collection<Server> srvs : Arrays.asList(servers.values(), creatingServers.values(),
+				stoppingServers.values()))
+			for (Server srv : srvs)
+				if (srv.getType().equals(type) && srv.getState() == state)
+					n++;
+		return n;
+	}
+
+	/**
+	 * Register the gauges of a server linked with this ServerManager
+	 */
+	private void registerGauges(Server srv) {
+		Metrics.gauge("websocket_send_queue", "link=\"" + srv.getId() + "\"", srv::getSendQueue);
+	}
+
 	public Server getServer(String id) {
+		if (bungee != null && bungee.getId().equals(id))
+			return bungee;
 		return servers.get(id);
 	}
 
+	/**
+	 * @param id The id of a server
+	 * @return true if this id is the id of the bungee, running or starting, and
+	 *         the bungee is not linked
+	 */
+	public boolean isWaitingBungee(String id) {
+		Server bungee = this.bungee;
+		if (bungee != null && bungee.getId().equals(id))
+			return !bungee.isLinked();
+		Server creating = creatingServers.get(id);
+		return creating != null && creating.isBungee();
+	}
+
+	/**
+	 * @return true if the bungee (if any) and all servers of this VPS are linked
+	 */
+	public boolean isAllLinked() {
+		if (bungee != null && !bungee.isLinked())
+			return false;
+		for (Server srv : servers.values())
+			if (!srv.isLinked())
+				return false;
+		return true;
+	}
+
 	public Server getCreatingServer(String id) {
 		return creatingServers.get(id);
 	}
 
+	/**
+	 * @return All running servers of this VPS (without the bungee)
+	 */
+	public Collection<Server> getServers() {
+		return servers.values();
+	}
+
+	/**
+	 * @return All servers that are starting
+	 */
+	public Collection<Server> getCreatingServers() {
+		return creatingServers.values();
+	}
+
+	/**
+	 * Send a command to the CoreManager
+	 * 
+	 * @param channel The channel
+	 * @param message The message
+	 * @return true if the command has been sent, false if the CoreManager is not
+	 *         linked
+	 */
+	public boolean sendToCore(String channel, String message) {
+		if (client == null || !client.isAuthenticated())
+			return false;
+		TrafficRecorder.record(true, TrafficRecorder.CORE, channel, message);
+		client.sendCommand(channel, message);
+		return true;
+	}
+
 	/**
 	 * Load this server and notify CoreManager that this server is now loaded
 	 * 
 	 * @param server The server
 	 */
 	public void loadServer(Server server, WebSocketServerImpl wssi) {
-		creatingServers.remove(server.getId());
-		if (server.isBungee())
-			bungee = server;
-		else
-			servers.put(server.getId(), server);
+		boolean warm;
+		synchronized (warmLock) {
+			creatingServers.remove(server.getId());
+			if (server.isBungee())
+				bungee = server;
+			else
+				servers.put(server.getId(), server);
+			// A warm server claimed from now on is registered by openServer
+			warm = server.isWarm();
+		}
 		server.resumeWebSocket(wssi);
-		// Notify
-		Scheduler.add(() -> {
-			if (!client.isAuthenticated())
-				return false;
-			client.sendCommand("register", server.getUuid().toString() + " " + server.getId());
-			return true;
-		}, () -> {
-			// Error
-			LOG.error("Error while sending \"register {}\" command", server.getUuid());
-		});
+		server.setState(ServerState.RUNNING);
+		registerGauges(server);
+		Trace trace = traces.get(server.getUuid());
+		if (trace != null)
+			trace.linked();
+		long now = System.currentTimeMillis();
+		if (server.getScriptTime() > 0) {
+			long boot = now - server.getScriptTime();
+			startBoot.record(boot);
+			if (cds != null && !server.getArchive().isEmpty())
+				// Recorded by the checkThread once it knows if the archive is used
+				cds.check(server, mapped -> {
+					server.setCds(mapped);
+					if (!mapped)
+						LOG.warn("{}: the JVM has not mapped the CDS archive {}, check its logs", server.getId(),
+								server.getArchive());
+					recordBoot(server, boot);
+				});
+			else
+				recordBoot(server, boot);
+		}
+		if (server.getRequestTime() > 0)
+			startTotal.record(now - server.getRequestTime());
+		placement.update(server);
+		if (server.getUuid() != null)
+			startDedup.done(server.getUuid(), server.getId());
+		// Notify. If the CoreManager is not linked, the snapshot sent once it is
+		// linked will contain this server. The CoreManager didn't ask for warm
+		// servers, it will know this one once it's claimed
+		if (!warm && server.getUuid() != null)
+			sendToCore("register", server.getUuid().toString() + " " + server.getId());
+		stateSync.update(server);
+	}
+
+	/**
+	 * Compare boot time with and without CDS archive
+	 */
+	private void recordBoot(Server server, long boot) {
+		String labels = "type=\"" + server.getType() + "\",cds=\"" + server.isCds() + "\"";
+		Metrics.histogram("server_boot_ms", labels, "ms").record(boot);
+	}
+
+	/**
+	 * Open a new server. The request is checked by the admission control and
+	 * queued until it can be started
+	 * 
+	 * @param type  The type of the server
+	 * @param uuid  The uuid of the request
+	 * @param error Called with the reason if the server cannot be started
+	 */
+	public void openServer(String type, UUID uuid, Consumer<String> error) {
+		openServer(type, uuid, 0, error);
+	}
+
+	/**
+	 * Open a new server. An idle warm server of this type is given to this
+	 * request if there is one, otherwise the request is checked by the admission
+	 * control and queued until it can be started
+	 * 
+	 * @param type    The type of the server
+	 * @param uuid    The uuid of the request
+	 * @param timeout The time (in ms) after which the request must not be
+	 *                executed, or 0 to use the default one
+	 * @param error   Called with the reason if the server cannot be started
+	 */
+	public void openServer(String type, UUID uuid, long timeout, Consumer<String> error) {
+		if (stop) {
+			error.accept(StartDecision.STOPPING.getReason());
+			return;
+		}
+		StartDedup.Entry existing = startDedup.begin(uuid);
+		if (existing != null) {
+			// Already received (the CoreManager resent it after a reconnection)
+			onDuplicateStart(uuid, existing, error);
+			return;
+		}
+		// Resent requests are not counted as demand
+		if (autoScaler != null)
+			autoScaler.onRequest(type);
+		if (claimWarmServer(type, uuid))
+			return;
+		queueServer(type, uuid, timeout, error);
 	}
 
-	public void openServer(String type, UUID uuid, Runnable error) {
+	/**
+	 * Start a warm server of this type. This server is not registered to the
+	 * CoreManager until a start request claims it
+	 * 
+	 * @param type  The type of the server
+	 * @param error Called with the reason if the server cannot be started
+	 */
+	public void openWarmServer(String type, Consumer<String> error) {
 		if (stop) {
-			error.run();
+			error.accept(StartDecision.STOPPING.getReason());
 			return;
 		}
+		UUID uuid = UUID.randomUUID();
+		warmStarts.put(uuid, type);
+		queueServer(type, uuid, 0, reason -> {
+			warmStarts.remove(uuid);
+			error.accept(reason);
+		});
+	}
+
+	/**
+	 * Give an idle warm server of this type to this request. Running servers are
+	 * preferred to starting ones
+	 * 
+	 * @param type The type
+	 * @param uuid The uuid of the request
+	 * @return true if a warm server has been given
+	 */
+	private boolean claimWarmServer(String type, UUID uuid) {
+		Server claimed = null;
+		boolean loaded = false;
+		synchronized (warmLock) {
+			for (Collection<Server> srvs : Arrays.asList(servers.values(), creatingServers.values())) {
+				for (Server srv : srvs) {
+					// Not a server being drained or stopped
+					boolean alive = srv.getState() == ServerState.STARTING || srv.getState() == ServerState.RUNNING;
+					if (srv.isWarm() && alive && srv.getPlayers() == 0 && srv.getType().equals(type)) {
+						claimed = srv;
+						break;
+					}
+				}
+				if (claimed != null)
+					break;
+			}
+			if (claimed == null)
+				return false;
+			claimed.setUuid(uuid);
+			claimed.setWarm(false);
+			loaded = servers.get(claimed.getId()) == claimed;
+		}
+		LOG.info("Giving warm server {} (type = {}) to uuid = {}", claimed.getId(), type, uuid);
+		startDedup.created(uuid, claimed.getId());
+		if (loaded) {
+			startDedup.done(uuid, claimed.getId());
+			sendToCore("register", uuid.toString() + " " + claimed.getId());
+			// Now known by the CoreManager, players can be sent to it
+			placement.update(claimed);
+		}
+		// Otherwise "register" is sent once it is linked
+		stateSync.update(claimed);
+		Metrics.counter("server_warm_claims", "type=\"" + type + "\"").inc();
+		return true;
+	}
+
+	/**
+	 * @param type The type
+	 * @return The number of warm servers of this type that are not claimed yet,
+	 *         including warm starts
+	 */
+	public int getWarmServers(String type) {
+		int n = 0;
+		for (String t : warmStarts.values())
+			if (t.equals(type))
+				n++;
+		for (Collection<Server> srvs : Arrays.asList(servers.values(), creatingServers.values()))
+			for (Server srv : srvs)
+				if (srv.isWarm() && srv.getType().equals(type))
+					n++;
+		return n;
+	}
+
+	/**
+	 * Queue a new server
+	 */
+	private void queueServer(String type, UUID uuid, long timeout, Consumer<String> error) {
 		LOG.info("Opening server type = {}, uuid = {}", type, uuid.toString());
-		Scheduler.add(() -> _openServer(type, uuid, error), error);
+		Trace trace = traces.start(uuid, type);
+		startQueue.add(type, uuid, timeout, reason -> {
+			trace.fail(reason);
+			startDedup.failed(uuid);
+			error.accept(reason);
+		});
+	}
+
+	/**
+	 * Answer to a duplicated start request with the state of the existing server
+	 */
+	private void onDuplicateStart(UUID uuid, StartDedup.Entry existing, Consumer<String> error) {
+		LOG.info("Duplicated start request {}: {} (id = {})", uuid, existing.getState(), existing.getServerId());
+		switch (existing.getState()) {
+		case IN_FLIGHT:
+			// The "register" command will be sent once the server is started
+			sendToCore("starting",
+					uuid.toString() + (existing.getServerId() == null ? "" : " " + existing.getServerId()));
+			break;
+		case RUNNING:
+			sendToCore("register", uuid.toString() + " " + existing.getServerId());
+			break;
+		case STOPPED:
+			error.accept(StartDecision.SERVER_STOPPED.getReason());
+			break;
+		}
 	}
 
-	private boolean _openServer(String type, UUID uuid, Runnable error) {
+	/**
+	 * Start a request accepted by the admission control
+	 */
+	private void _openServer(StartQueue.Request request) {
+		String type = request.getType();
+		UUID uuid = request.getUuid();
+		Consumer<String> error = request.getError();
 		LOG.debug("_openServer type = {}, uuid = {}", type, uuid.toString());
-		if (availablePort.size() == 0) {
+		Trace stored = traces.get(uuid);
+		// The trace may have been removed from the store
+		Trace trace = stored != null ? stored : new Trace(uuid.toString(), type, request.getTime());
+		// The admission control waits for a free port, so the wait is in this phase
+		trace.span("queue", request.getTime(), System.currentTimeMillis());
+		boolean bungee = "BUNGEE".equalsIgnoreCase(type);
+		int port = bungee ? bungeePort : portPool.lease();
+		if (port == -1) {
 			LOG.warn("No available port found !");
-			return false;
+			error.accept(StartDecision.NO_PORT.getReason());
+			return;
 		}
-		boolean bungee = "BUNGEE".equalsIgnoreCase(type);
-		int port = bungee ? bungeePort : availablePort.poll();
+		// Count it now so next admissions see this server
+		count(uuid.toString(), type);
 		String name = type + "_" + port;
+		long restStart = System.currentTimeMillis();
 		Main.get().getNetworkManager().getNetwork().getServerService().asyncAddServer(name, type, ip, port,
-				new Callback<ServerDataOutput.Server>() {
+				RestMetrics.wrap("server_add", new Callback<ServerDataOutput.Server>() {
 
 					@Override
 					public void onResponse(
 							com.froxynetwork.froxynetwork.network.output.data.server.ServerDataOutput.Server response) {
 						LOG.debug("Got id {} for uuid {}", response.getId(), uuid.toString());
+						startRest.record(System.currentTimeMillis() - restStart);
+						trace.span("rest", restStart, System.currentTimeMillis());
 						// Server has been created on REST
-						Server srv = new Server(uuid, response.getId(), response, bungee);
+						Server srv = new Server(uuid, response.getId(), response, bungee, heartbeatMiss);
+						traces.link(trace, srv.getId());
+						srv.setRequestTime(request.getTime());
+						srv.setWarm(warmStarts.containsKey(uuid));
 						creatingServers.put(srv.getId(), srv);
+						warmStarts.remove(uuid);
+						recount(uuid.toString(), srv.getId());
+						startDedup.created(uuid, srv.getId());
+						stateSync.update(srv);
 						new Thread(() -> {
 							// Call script that will launch the server
+							String cgroup = cgroups == null ? "" : cgroups.create(srv.getId(), type);
+							CpuPool.Lease cpus = cpuPool == null ? null : cpuPool.lease(port);
+							String archive = cds == null ? "" : cds.archive(type);
+							srv.setArchive(archive);
 							String[] copy = new String[scriptStart.length];
 							for (int i = 0; i < scriptStart.length; i++) {
 								copy[i] = scriptStart[i].replaceAll("\\{type\\}", type)
 										.replaceAll("\\{id\\}", srv.getId())
 										.replaceAll("\\{secret\\}", response.getAuth().getClientSecret())
-										.replaceAll("\\{port\\}", Integer.toString(port));
+										.replaceAll("\\{port\\}", Integer.toString(port)).replace("{cgroup}", cgroup)
+										.replace("{cpus}", cpus == null ? "" : cpus.getCpus())
+										.replace("{numa}", cpus == null ? "" : Integer.toString(cpus.getNode()))
+										.replace("{cds}", archive);
 							}
 							try {
 								LOG.debug("Starting creation script for server {}", srv.getId());
+								long scriptStart = System.currentTimeMillis();
 								ProcessBuilder pb = new ProcessBuilder(copy);
 								Process p = pb.start();
 								// For test only
@@ -301,15 +980,24 @@ public class ServerManager {
 									throw new IllegalStateException(
 											"Starting server " + srv.getId() + " returns exitValue " + exitValue);
 								}
+								srv.setScriptTime(System.currentTimeMillis());
+								startScript.record(srv.getScriptTime() - scriptStart);
+								trace.span("script", scriptStart, srv.getScriptTime());
 							} catch (Exception ex) {
 								LOG.error("Error while starting start script for server {} (type = {})", srv.getId(),
 										type);
 								LOG.error("", ex);
 								// Remove from list
 								creatingServers.remove(srv.getId());
+								if (cgroups != null)
+									cgroups.remove(srv.getId());
+								uncount(srv.getId());
+								releasePort(port);
+								stateSync.remove(srv);
 								// Closing it
 								Main.get().getNetworkManager().getNetwork().getServerService()
-										.asyncDeleteServer(srv.getId(), new Callback<EmptyDataOutput.Empty>() {
+										.asyncDeleteServer(srv.getId(), RestMetrics.wrap("server_delete",
+												new Callback<EmptyDataOutput.Empty>() {
 
 											@Override
 											public void onResponse(Empty response) {
@@ -327,8 +1015,8 @@ public class ServerManager {
 												LOG.error("Fatal Error while closing server {}", srv.getId());
 												LOG.error("", t);
 											}
-										});
-								error.run();
+										}));
+								error.accept(StartDecision.SCRIPT_ERROR.getReason());
 							}
 						}, "ServerManager-Copy-" + response.getId()).start();
 					}
@@ -337,7 +1025,9 @@ public class ServerManager {
 					public void onFailure(RestException ex) {
 						LOG.error("Failure while creating server (type = {}, port = {}, uuid = {})", type, port, uuid);
 						LOG.error("", ex);
-						error.run();
+						uncount(uuid.toString());
+						releasePort(port);
+						error.accept(StartDecision.REST_ERROR.getReason());
 					}
 
 					@Override
@@ -345,10 +1035,27 @@ public class ServerManager {
 						LOG.error("Fatal Failure while creating server (type = {}, port = {}, uuid = {})", type, port,
 								uuid);
 						LOG.error("", t);
-						error.run();
+						uncount(uuid.toString());
+						releasePort(port);
+						error.accept(StartDecision.REST_ERROR.getReason());
 					}
-				});
-		return true;
+				}));
+	}
+
+	/**
+	 * Move players of this server to other servers of the same type, then close
+	 * it. Servers that are not running are closed directly
+	 * 
+	 * @param id    The id of the server
+	 * @param error The action to execute if the server can't be closed
+	 */
+	public void drainServer(String id, Runnable error) {
+		Server srv = servers.get(id);
+		if (srv == null || srv.getState() != ServerState.RUNNING || drain.getTimeout() <= 0) {
+			closeServer(id, error);
+			return;
+		}
+		drain.drain(srv, error);
 	}
 
 	public void closeServer(String id, Runnable error) {
@@ -361,21 +1068,31 @@ public class ServerManager {
 		Server srv = servers.remove(id);
 		if (srv == null)
 			return true;
+		long stopStart = System.currentTimeMillis();
+		Trace trace = traces.get(id);
+		if (trace != null)
+			trace.mark("stop");
+		stoppingServers.put(id, srv);
+		Metrics.removeGauge("websocket_send_queue", "link=\"" + id + "\"");
+		// This server must authenticate again
+		Main.get().getWebSocketManager().getAuthCache().invalidate(id);
 		if (srv.getWebSocket() != null && srv.getWebSocket().isConnected())
-			srv.getWebSocket().sendCommand("stop", null);
+			srv.send("stop", null);
 
-		// Notify CoreManager
-		Scheduler.add(() -> {
-			if (!client.isAuthenticated())
-				return false;
-			client.sendCommand("unregister", id + " " + srv.getType());
-			return true;
-		}, () -> {
-			// Error
-			LOG.error("Error while sending \"unregister {}\" command", id);
-		});
+		srv.setState(ServerState.STOPPING);
+		placement.remove(srv);
+		if (srv.getUuid() != null)
+			startDedup.stopped(srv.getUuid());
+		uncount(id);
+
+		// Notify CoreManager. If it is not linked, the snapshot sent once it is
+		// linked will not contain this server
+		sendToCore("unregister", id + " " + srv.getType());
+		stateSync.remove(srv);
 		if (srv.getWebSocket() != null)
 			srv.getWebSocket().closeAll();
+		srv.getHeartbeat().unregister();
+		Main.get().getPlayerManager().removeServer(id);
 
 		new Thread(() -> {
 			// Wait 10 seconds for the stop request sent previously
@@ -390,6 +1107,7 @@ public class ServerManager {
 			for (int i = 0; i < scriptStop.length; i++)
 				copy[i] = scriptStop[i].replaceAll("\\{id\\}", id);
 			ProcessBuilder pb = new ProcessBuilder(copy);
+			long scriptStart = System.currentTimeMillis();
 			try {
 				LOG.debug("Starting stop script for server {}", id);
 				Process p = pb.start();
@@ -404,18 +1122,29 @@ public class ServerManager {
 					// Error
 					throw new IllegalStateException("Stopping server " + id + " returns exitValue " + exitValue);
 				}
+				stopScript.record(System.currentTimeMillis() - scriptStart);
+				if (trace != null)
+					trace.span("stop_script", scriptStart, System.currentTimeMillis());
 			} catch (Exception ex) {
 				LOG.error("Error while starting stop script for server {}", id);
 				LOG.error("", ex);
 				error.run();
 			}
+			if (cgroups != null)
+				cgroups.remove(id);
+			// The port is free now
+			stoppingServers.remove(id);
+			releasePort(srv.getPort());
+			startQueue.signal();
 			// Closing it
 			Main.get().getNetworkManager().getNetwork().getServerService().asyncDeleteServer(id,
-					new Callback<EmptyDataOutput.Empty>() {
+					RestMetrics.wrap("server_delete", new Callback<EmptyDataOutput.Empty>() {
 
 						@Override
 						public void onResponse(Empty response) {
-							// Okay
+							stopTotal.record(System.currentTimeMillis() - stopStart);
+							if (trace != null)
+								trace.mark("deleted");
 						}
 
 						@Override
@@ -429,7 +1158,7 @@ public class ServerManager {
 							LOG.error("Fatal Error while closing server {}", id);
 							LOG.error("", t);
 						}
-					});
+					}));
 		}, "ServerManager-Stop-" + id).start();
 		return true;
 	}
@@ -442,14 +1171,7 @@ public class ServerManager {
 	 */
 	public void onRegister(String id, String type) {
 		LOG.debug("onRegister: id = {}, type = {}", id, type);
-		String msg = id + " " + type;
-
-		// Bungee
-		if (bungee != null)
-			bungee.sendMessage("register", msg);
-		// Servers
-		for (Server srv : servers.values())
-			srv.sendMessage("register", msg);
+		broadcast(bungee, servers.values(), "register", id + " " + type);
 	}
 
 	/**
@@ -460,14 +1182,29 @@ public class ServerManager {
 	 */
 	public void onUnregister(String id, String type) {
 		LOG.debug("onUnregister: id = {}, type = {}", id, type);
-		String msg = id + " " + type;
+		broadcast(bungee, servers.values(), "unregister", id + " " + type);
+	}
 
-		// Bungee
+	/**
+	 * Send a message to the bungee and to all servers
+	 * 
+	 * @param bungee  The bungee, or null
+	 * @param servers The servers
+	 * @param channel The channel
+	 * @param msg     The message
+	 */
+	static void broadcast(Server bungee, Collection<Server> servers, String channel, String msg) {
 		if (bungee != null)
-			bungee.sendMessage("unregister", msg);
-		// Servers
-		for (Server srv : servers.values())
-			srv.sendMessage("unregister", msg);
+			bungee.sendMessage(channel, msg);
+		for (Server srv : servers)
+			srv.sendMessage(channel, msg);
+	}
+
+	/**
+	 * @return true if this ServerManager is stopping
+	 */
+	public boolean isStopping() {
+		return stop;
 	}
 
 	/**
@@ -478,8 +1215,14 @@ public class ServerManager {
 	 */
 	public void stop() {
 		this.stop = true;
+		if (autoScaler != null)
+			autoScaler.stop();
+		if (sampler != null)
+			sampler.stop();
+		startQueue.stop();
 		client.disconnect(CloseFrame.NORMAL, "");
 		client.closeAll();
 		checkThread.interrupt();
+		heartbeatThread.interrupt();
 	}
 }
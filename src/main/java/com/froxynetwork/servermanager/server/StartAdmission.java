@@ -0,0 +1,167 @@
+package com.froxynetwork.servermanager.server;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.server.config.ServerConfig;
+import com.froxynetwork.servermanager.server.config.ServerVps;
+import com.froxynetwork.servermanager.server.config.TypeRegistry;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class StartAdmission {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	private ServerManager serverManager;
+	private long minMemory;
+	private long minDisk;
+	private File diskPath;
+	private volatile long freeMemory;
+	private volatile long freeDisk;
+	private volatile long lastSample;
+
+	/**
+	 * @param serverManager The ServerManager
+	 * @param minMemory     The minimum free memory (in MB) to start a server, 0 to
+	 *                      disable this check
+	 * @param minDisk       The minimum free disk space (in MB) to start a server, 0
+	 *                      to disable this check
+	 * @param diskPath      The directory where servers are created
+	 */
+	public StartAdmission(ServerManager serverManager, long minMemory, long minDisk, File diskPath) {
+		this.serverManager = serverManager;
+		this.minMemory = minMemory * 1024 * 1024;
+		this.minDisk = minDisk * 1024 * 1024;
+		this.diskPath = diskPath;
+		this.lastSample = 0;
+	}
+
+	/**
+	 * Check if a server of this type can be started now.<br />
+	 * This method doesn't do any REST call and doesn't allocate
+	 * 
+	 * @param type The type of the server
+	 * @return The decision
+	 */
+	public StartDecision check(String type) {
+		if (serverManager.isStopping())
+			return StartDecision.STOPPING;
+		TypeRegistry registry = Main.get().getServerConfigManager().getSnapshot().getRegistry();
+		int typeId = registry.id(type);
+		if (typeId < 0)
+			return StartDecision.UNKNOWN_TYPE;
+		TypeCounters counters = serverManager.getCounters();
+		if (counters.getRegistry() != registry)
+			// Reload in progress, counters are not ready yet
+			return StartDecision.RELOADING;
+		int count = counters.get(typeId);
+		if (typeId == TypeRegistry.BUNGEE) {
+			if (count > 0)
+				return StartDecision.BUNGEE_EXISTS;
+		} else {
+			// Type-wide max, a max <= 0 means no limit
+			ServerConfig sc = registry.getConfig(typeId);
+			if (sc != null && sc.getMax() > 0 && count >= sc.getMax())
+				return StartDecision.TYPE_MAX;
+			ServerVps vps = serverManager.getServerVps();
+			if (vps != null) {
+				// Max of this VPS, a negative max means no limit
+				int vpsMax = vps.getMax(typeId);
+				if (vpsMax >= 0 && count >= vpsMax)
+					return StartDecision.VPS_TYPE_MAX;
+				if (vps.getMaxServers() > 0 && counters.getTotal() >= vps.getMaxServers())
+					return StartDecision.VPS_MAX;
+			}
+			if (serverManager.getPortPool().available() == 0)
+				return StartDecision.NO_PORT;
+		}
+		sample();
+		if (minMemory > 0 && freeMemory - expectedMemory(type) < minMemory)
+			return StartDecision.NO_MEMORY;
+		if (minDisk > 0 && freeDisk < minDisk)
+			return StartDecision.NO_DISK;
+		return StartDecision.ACCEPT;
+	}
+
+	/**
+	 * @return The memory (in bytes) a new server of this type will use, from the
+	 *         running servers of this type (0 if unknown)
+	 */
+	private long expectedMemory(String type) {
+		ResourceSampler sampler = serverManager.getSampler();
+		return sampler == null ? 0 : sampler.getAverageRss(type);
+	}
+
+	/**
+	 * Sample free memory and disk space, at most once per second
+	 */
+	private void sample() {
+		long now = System.currentTimeMillis();
+		if (now - lastSample < 1000)
+			return;
+		lastSample = now;
+		if (minMemory > 0)
+			freeMemory = readFreeMemory();
+		if (minDisk > 0)
+			freeDisk = diskPath.getUsableSpace();
+	}
+
+	/**
+	 * @return The available memory (MemAvailable of /proc/meminfo, or the free
+	 *         physical memory if not available)
+	 */
+	private long readFreeMemory() {
+		try {
+			for (String line : Files.readAllLines(Paths.get("/proc/meminfo"), StandardCharsets.US_ASCII))
+				if (line.startsWith("MemAvailable:"))
+					return Long.parseLong(line.substring(13, line.length() - 3).trim()) * 1024;
+		} catch (Exception ex) {
+			// Not on Linux
+		}
+		try {
+			return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+					.getFreePhysicalMemorySize();
+		} catch (Exception ex) {
+			LOG.error("Cannot read free memory: ", ex);
+			return Long.MAX_VALUE;
+		}
+	}
+
+	public long getFreeMemory() {
+		return freeMemory;
+	}
+
+	public long getFreeDisk() {
+		return freeDisk;
+	}
+}
@@ -0,0 +1,108 @@
+package com.froxynetwork.servermanager.server;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public enum StartDecision {
+	/**
+	 * The server can be started now
+	 */
+	ACCEPT(null, false),
+	/**
+	 * This type doesn't exist
+	 */
+	UNKNOWN_TYPE("unknown_type", false),
+	/**
+	 * A bungee already exists on this VPS
+	 */
+	BUNGEE_EXISTS("bungee_exists", false),
+	/**
+	 * The max of this type is reached
+	 */
+	TYPE_MAX("type_max", false),
+	/**
+	 * The max of this type for this VPS is reached
+	 */
+	VPS_TYPE_MAX("vps_type_max", false),
+	/**
+	 * The max number of servers of this VPS is reached
+	 */
+	VPS_MAX("vps_max", false),
+	/**
+	 * The ServerManager is stopping
+	 */
+	STOPPING("stopping", false),
+	/**
+	 * No available port, wait for a server to stop
+	 */
+	NO_PORT("no_port", true),
+	/**
+	 * Not enough free memory
+	 */
+	NO_MEMORY("no_memory", true),
+	/**
+	 * Not enough free disk space
+	 */
+	NO_DISK("no_disk", true),
+	/**
+	 * The config of servers is being reloaded, wait for the counters of the new
+	 * config
+	 */
+	RELOADING("reloading", true),
+	/**
+	 * The request waited in the queue longer than its timeout
+	 */
+	TIMEOUT("timeout", false),
+	/**
+	 * The REST API failed to create the server
+	 */
+	REST_ERROR("rest", false),
+	/**
+	 * The start script failed
+	 */
+	SCRIPT_ERROR("script", false),
+	/**
+	 * The server of this request has already been started and stopped
+	 */
+	SERVER_STOPPED("stopped", false);
+
+	/**
+	 * The reason sent to the CoreManager
+	 */
+	@Getter
+	private String reason;
+	/**
+	 * true if the request can wait in the queue
+	 */
+	@Getter
+	private boolean waitable;
+
+	private StartDecision(String reason, boolean waitable) {
+		this.reason = reason;
+		this.waitable = waitable;
+	}
+}
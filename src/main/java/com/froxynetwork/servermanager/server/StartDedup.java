@@ -0,0 +1,143 @@
+package com.froxynetwork.servermanager.server;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class StartDedup {
+	private int capacity;
+	private long ttl;
+	private LinkedHashMap<UUID, Entry> entries;
+
+	/**
+	 * @param capacity The maximum number of requests kept
+	 * @param ttl      The time (in ms) a request is kept
+	 */
+	public StartDedup(int capacity, long ttl) {
+		this.capacity = capacity;
+		this.ttl = ttl;
+		this.entries = new LinkedHashMap<UUID, Entry>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<UUID, StartDedup.Entry> eldest) {
+				return size() > StartDedup.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Register a new start request
+	 * 
+	 * @param uuid The uuid of the request
+	 * @return null if this request is new, or the existing entry if this request
+	 *         is a duplicate
+	 */
+	public synchronized Entry begin(UUID uuid) {
+		purge();
+		Entry e = entries.get(uuid);
+		if (e != null)
+			return e;
+		entries.put(uuid, new Entry(System.currentTimeMillis()));
+		return null;
+	}
+
+	/**
+	 * The server of this request has been created on REST
+	 */
+	public synchronized void created(UUID uuid, String id) {
+		Entry e = entries.get(uuid);
+		if (e != null)
+			e.serverId = id;
+	}
+
+	/**
+	 * The server of this request is linked
+	 */
+	public synchronized void done(UUID uuid, String id) {
+		Entry e = entries.get(uuid);
+		if (e != null) {
+			e.serverId = id;
+			e.state = State.RUNNING;
+		}
+	}
+
+	/**
+	 * The request has failed. The entry is removed so a resent request (with the
+	 * same uuid) is started again instead of being answered with the old error
+	 */
+	public synchronized void failed(UUID uuid) {
+		entries.remove(uuid);
+	}
+
+	/**
+	 * The server of this request has been stopped
+	 */
+	public synchronized void stopped(UUID uuid) {
+		Entry e = entries.get(uuid);
+		if (e != null)
+			e.state = State.STOPPED;
+	}
+
+	/**
+	 * Remove expired entries. Entries are in insertion order so we stop at the
+	 * first non-expired one
+	 */
+	private void purge() {
+		long limit = System.currentTimeMillis() - ttl;
+		Iterator<Entry> it = entries.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().time >= limit)
+				return;
+			it.remove();
+		}
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public static enum State {
+		IN_FLIGHT, RUNNING, STOPPED;
+	}
+
+	@Getter
+	public static class Entry {
+		private long time;
+		private volatile State state;
+		private volatile String serverId;
+
+		private Entry(long time) {
+			this.time = time;
+			this.state = State.IN_FLIGHT;
+		}
+	}
+}
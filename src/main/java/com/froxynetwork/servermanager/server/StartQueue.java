@@ -0,0 +1,332 @@
+package com.froxynetwork.servermanager.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.metrics.Histogram;
+import com.froxynetwork.servermanager.metrics.Metrics;
+import com.froxynetwork.servermanager.server.config.ServerConfig;
+import com.froxynetwork.servermanager.server.config.TypeRegistry;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class StartQueue {
+	/**
+	 * Priority classes, served in this order
+	 */
+	public static final int PRIORITY_BUNGEE = 0;
+	public static final int PRIORITY_LOBBY = 1;
+	public static final int PRIORITY_GAME = 2;
+	private static final int PRIORITIES = 3;
+
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	private StartAdmission admission;
+	private Consumer<Request> start;
+	private long maxWait;
+	private Set<String> lobbyTypes;
+	private Map<String, Integer> weights;
+	private HashMap<String, TypeQueue> queues;
+	/**
+	 * Types that have waiting requests, per priority class, in round robin order
+	 */
+	private List<ArrayDeque<TypeQueue>> active;
+	private int size;
+	private Thread thread;
+	private volatile boolean stop;
+
+	/**
+	 * @param admission  The admission controller
+	 * @param start      The action that starts an accepted request
+	 * @param maxWait    The default maximum time (in ms) a request can wait in
+	 *                   this queue
+	 * @param lobbyTypes The types in the lobby priority class (with their
+	 *                   variants)
+	 * @param weights    The weight of each type in its priority class (default 1)
+	 */
+	public StartQueue(StartAdmission admission, Consumer<Request> start, long maxWait, Set<String> lobbyTypes,
+			Map<String, Integer> weights) {
+		this.admission = admission;
+		this.start = start;
+		this.maxWait = maxWait;
+		this.lobbyTypes = lobbyTypes;
+		this.weights = weights;
+		this.queues = new HashMap<>();
+		this.active = new ArrayList<>();
+		for (int i = 0; i < PRIORITIES; i++)
+			active.add(new ArrayDeque<>());
+		this.size = 0;
+		this.stop = false;
+		thread = new Thread(() -> {
+			while (!stop) {
+				try {
+					synchronized (this) {
+						// Wait for a new request or for a signal (a server has stopped)
+						wait(1000);
+					}
+					expire();
+					drain();
+				} catch (InterruptedException ex) {
+					return;
+				} catch (Exception ex) {
+					LOG.error("Error in StartQueue: ", ex);
+				}
+			}
+		}, "ServerManager-StartQueue");
+		thread.start();
+	}
+
+	/**
+	 * Add a start request. The request is rejected directly if it will never fit,
+	 * or queued
+	 * 
+	 * @param type    The type of the server
+	 * @param uuid    The uuid of the request
+	 * @param timeout The time (in ms) after which this request must not be
+	 *                executed, or 0 to use the default one
+	 * @param error   Called with the reason if the request is rejected
+	 */
+	public void add(String type, UUID uuid, long timeout, Consumer<String> error) {
+		StartDecision decision = admission.check(type);
+		if (decision != StartDecision.ACCEPT && !decision.isWaitable()) {
+			LOG.warn("Start of {} rejected (uuid = {}): {}", type, uuid, decision.getReason());
+			error.accept(decision.getReason());
+			return;
+		}
+		long now = System.currentTimeMillis();
+		Request r = new Request(type, uuid, error, now, now + (timeout > 0 ? timeout : maxWait));
+		synchronized (this) {
+			TypeQueue tq = queues.computeIfAbsent(type, t -> new TypeQueue(t, priority(t), weight(t)));
+			if (tq.requests.isEmpty())
+				active.get(tq.priority).add(tq);
+			tq.requests.add(r);
+			size++;
+			notifyAll();
+		}
+	}
+
+	private int priority(String type) {
+		if (TypeRegistry.BUNGEE_TYPE.equalsIgnoreCase(type))
+			return PRIORITY_BUNGEE;
+		if (lobbyTypes.contains(type))
+			return PRIORITY_LOBBY;
+		ServerConfig sc = Main.get().getServerConfigManager().get(type);
+		if (sc != null && sc.getParent() != null && lobbyTypes.contains(sc.getParent().getType()))
+			return PRIORITY_LOBBY;
+		return PRIORITY_GAME;
+	}
+
+	private int weight(String type) {
+		return Math.max(1, weights.getOrDefault(type, 1));
+	}
+
+	/**
+	 * Wake up the queue (ex: when a server has stopped)
+	 */
+	public synchronized void signal() {
+		notifyAll();
+	}
+
+	/**
+	 * Start all requests that fit, by priority class and with a weighted round
+	 * robin (deficit round robin) between types of the same class
+	 */
+	private void drain() {
+		while (true) {
+			Request r;
+			StartDecision decision;
+			synchronized (this) {
+				TypeQueue tq = next();
+				if (tq == null)
+					return;
+				r = tq.requests.peek();
+				if (System.currentTimeMillis() > r.getDeadline()) {
+					// The CoreManager has already given up, never execute it
+					served(tq);
+					decision = null;
+				} else {
+					decision = admission.check(r.getType());
+					if (decision.isWaitable())
+						// Missing resources are shared by all types, others wait too
+						return;
+					served(tq);
+					tq.waitTime.record(System.currentTimeMillis() - r.getTime());
+				}
+			}
+			if (decision == null) {
+				LOG.warn("Start of {} expired after {} ms (uuid = {})", r.getType(),
+						System.currentTimeMillis() - r.getTime(), r.getUuid());
+				r.getError().accept(StartDecision.TIMEOUT.getReason());
+			} else if (decision != StartDecision.ACCEPT) {
+				LOG.warn("Start of {} rejected (uuid = {}): {}", r.getType(), r.getUuid(), decision.getReason());
+				r.getError().accept(decision.getReason());
+			} else
+				start.accept(r);
+		}
+	}
+
+	/**
+	 * @return The queue of the next type to serve, or null if there is no request
+	 */
+	private TypeQueue next() {
+		for (ArrayDeque<TypeQueue> queue : active) {
+			while (!queue.isEmpty()) {
+				TypeQueue tq = queue.peek();
+				if (tq.deficit >= 1)
+					return tq;
+				// New round for this type
+				tq.deficit += tq.weight;
+				queue.add(queue.poll());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Remove the first request of this type after it has been served
+	 */
+	private void served(TypeQueue tq) {
+		tq.requests.poll();
+		size--;
+		tq.deficit--;
+		ArrayDeque<TypeQueue> queue = active.get(tq.priority);
+		if (tq.requests.isEmpty()) {
+			tq.deficit = 0;
+			queue.remove(tq);
+		} else if (tq.deficit < 1)
+			// End of the turn of this type
+			queue.add(queue.poll());
+	}
+
+	/**
+	 * Reject all requests whose deadline has passed, even if they are not at the
+	 * head of their queue
+	 */
+	private void expire() {
+		long now = System.currentTimeMillis();
+		List<Request> expired = new ArrayList<>();
+		synchronized (this) {
+			for (TypeQueue tq : queues.values()) {
+				Iterator<Request> it = tq.requests.iterator();
+				while (it.hasNext()) {
+					Request r = it.next();
+					if (now > r.getDeadline()) {
+						it.remove();
+						size--;
+						expired.add(r);
+					}
+				}
+				if (tq.requests.isEmpty() && active.get(tq.priority).remove(tq))
+					tq.deficit = 0;
+			}
+		}
+		for (Request r : expired) {
+			LOG.warn("Start of {} expired after {} ms (uuid = {})", r.getType(), now - r.getTime(), r.getUuid());
+			r.getError().accept(StartDecision.TIMEOUT.getReason());
+		}
+	}
+
+	/**
+	 * @return The number of waiting requests
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return The number of waiting requests of this type
+	 */
+	public synchronized int size(String type) {
+		TypeQueue tq = queues.get(type);
+		return tq == null ? 0 : tq.requests.size();
+	}
+
+	/**
+	 * Stop this queue and reject all waiting requests
+	 */
+	public void stop() {
+		stop = true;
+		thread.interrupt();
+		List<Request> remaining = new ArrayList<>();
+		synchronized (this) {
+			for (TypeQueue tq : queues.values()) {
+				remaining.addAll(tq.requests);
+				tq.requests.clear();
+			}
+			for (ArrayDeque<TypeQueue> queue : active)
+				queue.clear();
+			size = 0;
+		}
+		for (Request r : remaining)
+			r.getError().accept(StartDecision.STOPPING.getReason());
+	}
+
+	private static class TypeQueue {
+		private int priority;
+		private int weight;
+		private int deficit;
+		private ArrayDeque<Request> requests;
+		private Histogram waitTime;
+
+		private TypeQueue(String type, int priority, int weight) {
+			this.priority = priority;
+			this.weight = weight;
+			this.deficit = 0;
+			this.requests = new ArrayDeque<>();
+			this.waitTime = Metrics.histogram("start_queue_wait_ms", "type=\"" + type + "\"", "ms");
+		}
+	}
+
+	@Getter
+	public static class Request {
+		private String type;
+		private UUID uuid;
+		private Consumer<String> error;
+		private long time;
+		private long deadline;
+
+		private Request(String type, UUID uuid, Consumer<String> error, long time, long deadline) {
+			this.type = type;
+			this.uuid = uuid;
+			this.error = error;
+			this.time = time;
+			this.deadline = deadline;
+		}
+	}
+}
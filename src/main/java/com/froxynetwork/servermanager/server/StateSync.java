@@ -0,0 +1,115 @@
+package com.froxynetwork.servermanager.server;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class StateSync {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	private ServerManager serverManager;
+	private AtomicLong version;
+
+	public StateSync(ServerManager serverManager) {
+		this.serverManager = serverManager;
+		this.version = new AtomicLong();
+	}
+
+	/**
+	 * Send the full state of this VPS to the CoreManager.<br />
+	 * sync &lt;version&gt; &lt;server&gt;;&lt;server&gt;;...<br />
+	 * Called on each authentication with the CoreManager and when the
+	 * CoreManager asks for it
+	 */
+	public void sendSnapshot() {
+		StringBuilder sb = new StringBuilder();
+		synchronized (this) {
+			sb.append(version.get()).append(' ');
+			int length = sb.length();
+			Server bungee = serverManager.getBungee();
+			if (bungee != null)
+				append(sb, bungee).append(';');
+			for (Server srv : serverManager.getServers())
+				append(sb, srv).append(';');
+			for (Server srv : serverManager.getCreatingServers())
+				append(sb, srv).append(';');
+			if (sb.length() > length)
+				sb.setLength(sb.length() - 1);
+			if (serverManager.sendToCore("sync", sb.toString()))
+				LOG.debug("Snapshot sent: {}", sb);
+		}
+	}
+
+	/**
+	 * Notify the CoreManager that a server has been added or updated.<br />
+	 * syncdelta &lt;version&gt; + &lt;server&gt;<br />
+	 * If the CoreManager is not linked, nothing is sent: the next snapshot will
+	 * contain this change
+	 * 
+	 * @param srv The server
+	 */
+	public void update(Server srv) {
+		StringBuilder sb = new StringBuilder();
+		synchronized (this) {
+			sb.append(version.incrementAndGet()).append(" + ");
+			append(sb, srv);
+			serverManager.sendToCore("syncdelta", sb.toString());
+		}
+	}
+
+	/**
+	 * Notify the CoreManager that a server has been removed.<br />
+	 * syncdelta &lt;version&gt; - &lt;id&gt;<br />
+	 * If the CoreManager is not linked, nothing is sent: the next snapshot will
+	 * contain this change
+	 * 
+	 * @param srv The server
+	 */
+	public void remove(Server srv) {
+		synchronized (this) {
+			serverManager.sendToCore("syncdelta", version.incrementAndGet() + " - " + srv.getId());
+		}
+	}
+
+	public long getVersion() {
+		return version.get();
+	}
+
+	/**
+	 * id,uuid,type,port,state,players
+	 */
+	private StringBuilder append(StringBuilder sb, Server srv) {
+		// Warm servers are unknown to the CoreManager until they are claimed
+		UUID uuid = srv.isWarm() ? null : srv.getUuid();
+		return sb.append(srv.getId()).append(',').append(uuid == null ? "-" : uuid.toString())
+				.append(',').append(srv.getType()).append(',').append(srv.getPort()).append(',')
+				.append(srv.getState().name()).append(',').append(srv.getPlayers());
+	}
+}
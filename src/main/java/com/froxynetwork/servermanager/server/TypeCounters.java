@@ -0,0 +1,84 @@
+package com.froxynetwork.servermanager.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.froxynetwork.servermanager.server.config.TypeRegistry;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class TypeCounters {
+	@Getter
+	private TypeRegistry registry;
+	private AtomicIntegerArray counts;
+	private AtomicInteger total;
+
+	public TypeCounters(TypeRegistry registry) {
+		this.registry = registry;
+		this.counts = new AtomicIntegerArray(registry.size());
+		this.total = new AtomicInteger();
+	}
+
+	/**
+	 * Add n servers of this type. Unknown types are only counted in the total
+	 * 
+	 * @param type The type
+	 * @param n    The number of servers to add (negative to remove)
+	 */
+	public void add(String type, int n) {
+		int id = registry.id(type);
+		if (id >= 0)
+			counts.addAndGet(id, n);
+		if (id != TypeRegistry.BUNGEE)
+			total.addAndGet(n);
+	}
+
+	/**
+	 * @return The number of servers of this type
+	 */
+	public int get(int id) {
+		return counts.get(id);
+	}
+
+	/**
+	 * @return The number of servers of this type and of all its variants
+	 */
+	public int getFamily(int id) {
+		int count = counts.get(id);
+		for (int child : registry.getChildrens(id))
+			count += counts.get(child);
+		return count;
+	}
+
+	/**
+	 * @return The number of servers (without the bungee)
+	 */
+	public int getTotal() {
+		return total.get();
+	}
+}
@@ -43,6 +43,8 @@ public class ServerConfig {
 	private int min;
 	private int max;
 	@Setter
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
 	private ServerConfig parent;
 
 	public ServerConfig(String type, String[] database, int min, int max) {
@@ -0,0 +1,187 @@
+package com.froxynetwork.servermanager.server.config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class ServerConfigCache {
+	private static final int MAGIC = 0x46534D43;
+	private static final int FORMAT = 1;
+
+	private File file;
+
+	public ServerConfigCache(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Save this snapshot on the disk. The file is written in a temporary file and
+	 * then moved, so a crash never leaves a corrupted cache
+	 * 
+	 * @param snapshot The snapshot to save
+	 */
+	public void save(ServerConfigSnapshot snapshot) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT);
+			out.writeLong(snapshot.getVersion());
+			out.writeLong(snapshot.getLoadTime());
+			writeString(out, snapshot.getFingerprint());
+			out.writeInt(snapshot.getFamilies().size());
+			for (Entry<String, String> e : snapshot.getFamilies().entrySet()) {
+				writeString(out, e.getKey());
+				writeString(out, e.getValue());
+			}
+			// Only root types, variants are saved with their parent
+			List<ServerConfig> roots = new ArrayList<>();
+			for (ServerConfig sc : snapshot.getTypes().values())
+				if (sc.getParent() == null)
+					roots.add(sc);
+			out.writeInt(roots.size());
+			for (ServerConfig sc : roots) {
+				writeType(out, sc);
+				out.writeInt(sc.getChildrens().size());
+				for (ServerConfig child : sc.getChildrens())
+					writeType(out, child);
+			}
+			out.writeInt(snapshot.getVps().size());
+			for (ServerVps vps : snapshot.getVps()) {
+				writeString(out, vps.getId());
+				out.writeInt(vps.getMaxServers());
+				out.writeInt(vps.getTypes().size());
+				for (String type : vps.getTypes()) {
+					writeString(out, type);
+					out.writeInt(vps.getMin(type));
+					out.writeInt(vps.getMax(type));
+				}
+			}
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Load the snapshot saved on the disk
+	 * 
+	 * @return The snapshot, or null if there is no cache
+	 * @throws IOException If the cache is corrupted
+	 */
+	public ServerConfigSnapshot load() throws IOException {
+		if (!file.isFile())
+			return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Invalid cache file " + file.getPath());
+			int format = in.readInt();
+			if (format != FORMAT)
+				throw new IOException("Unsupported cache format " + format);
+			long version = in.readLong();
+			long loadTime = in.readLong();
+			String fingerprint = readString(in);
+			int size = in.readInt();
+			Map<String, String> families = new HashMap<>();
+			for (int i = 0; i < size; i++)
+				families.put(readString(in), readString(in));
+			size = in.readInt();
+			Map<String, ServerConfig> types = new HashMap<>();
+			for (int i = 0; i < size; i++) {
+				ServerConfig sc = readType(in);
+				types.put(sc.getType(), sc);
+				int children = in.readInt();
+				for (int j = 0; j < children; j++) {
+					ServerConfig child = readType(in);
+					child.setParent(sc);
+					sc.addChildren(child);
+					types.put(child.getType(), child);
+				}
+			}
+			size = in.readInt();
+			List<ServerVps> vps = new ArrayList<>();
+			for (int i = 0; i < size; i++) {
+				ServerVps v = new ServerVps(readString(in), in.readInt());
+				int entries = in.readInt();
+				for (int j = 0; j < entries; j++) {
+					String type = readString(in);
+					v.setMin(type, in.readInt());
+					v.setMax(type, in.readInt());
+				}
+				vps.add(v);
+			}
+			return new ServerConfigSnapshot(version, fingerprint, types, families, vps, loadTime);
+		}
+	}
+
+	private void writeType(DataOutputStream out, ServerConfig sc) throws IOException {
+		writeString(out, sc.getType());
+		String[] database = sc.getDatabase();
+		out.writeInt(database == null ? -1 : database.length);
+		if (database != null)
+			for (String db : database)
+				writeString(out, db);
+		out.writeInt(sc.getMin());
+		out.writeInt(sc.getMax());
+	}
+
+	private ServerConfig readType(DataInputStream in) throws IOException {
+		String type = readString(in);
+		int length = in.readInt();
+		String[] database = null;
+		if (length >= 0) {
+			database = new String[length];
+			for (int i = 0; i < length; i++)
+				database[i] = readString(in);
+		}
+		return new ServerConfig(type, database, in.readInt(), in.readInt());
+	}
+
+	private void writeString(DataOutputStream out, String str) throws IOException {
+		byte[] b = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private String readString(DataInputStream in) throws IOException {
+		byte[] b = new byte[in.readInt()];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+}
@@ -1,10 +1,19 @@
 package com.froxynetwork.servermanager.server.config;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,10 +22,11 @@ import com.froxynetwork.froxynetwork.network.output.Callback;
 import com.froxynetwork.froxynetwork.network.output.RestException;
 import com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput;
 import com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.ServersConfig;
+import com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.VpsConfig;
 import com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.VpsConfigConfig;
 import com.froxynetwork.servermanager.Main;
-
-import lombok.Getter;
+import com.froxynetwork.servermanager.metrics.Metrics;
+import com.froxynetwork.servermanager.metrics.RestMetrics;
 
 /**
  * MIT License
@@ -46,130 +56,338 @@ import lombok.Getter;
 public class ServerConfigManager {
 	private final Logger LOG = LoggerFactory.getLogger(getClass());
 
-	private boolean actuallyReloading;
+	private AtomicBoolean actuallyReloading;
+
+	/**
+	 * The current config. All readers MUST read this reference once and use the
+	 * returned snapshot, so types and vps are always coherent
+	 */
+	private AtomicReference<ServerConfigSnapshot> snapshot;
+	private List<ServerConfigListener> listeners;
+	private ServerConfigCache cache;
+	/**
+	 * true if the last reload has loaded the config from the REST API
+	 */
+	private volatile boolean lastReloadOk;
+	/**
+	 * true once the config has been loaded from the REST API by this process
+	 */
+	private volatile boolean refreshed;
+	private Thread refreshThread;
+
+	/**
+	 * @param cache The cache on the disk, or null to disable it
+	 */
+	public ServerConfigManager(ServerConfigCache cache) {
+		this.snapshot = new AtomicReference<>(ServerConfigSnapshot.EMPTY);
+		this.listeners = new CopyOnWriteArrayList<>();
+		this.actuallyReloading = new AtomicBoolean(false);
+		this.cache = cache;
+		Metrics.gauge("server_config_age_seconds", null, () -> {
+			long loadTime = snapshot.get().getLoadTime();
+			return loadTime == 0 ? -1 : (System.currentTimeMillis() - loadTime) / 1000;
+		});
+	}
 
-	private HashMap<String, ServerConfig> serversConfig;
-	@Getter
-	private List<ServerVps> vps;
+	/**
+	 * Load the config saved on the disk by a previous execution
+	 * 
+	 * @return true if a config has been loaded
+	 */
+	public boolean loadCache() {
+		if (cache == null)
+			return false;
+		try {
+			ServerConfigSnapshot cached = cache.load();
+			if (cached == null) {
+				LOG.info("No Server Config cache found");
+				return false;
+			}
+			snapshot.set(cached);
+			LOG.info("Server Config version {} loaded from cache ({} types, {} vps, {} seconds old)",
+					cached.getVersion(), cached.getTypes().size(), cached.getVps().size(),
+					(System.currentTimeMillis() - cached.getLoadTime()) / 1000);
+			return true;
+		} catch (IOException ex) {
+			LOG.error("Error while loading Server Config cache: ", ex);
+			return false;
+		}
+	}
 
-	public ServerConfigManager() {
-		this.serversConfig = new HashMap<>();
-		this.vps = new ArrayList<>();
-		this.actuallyReloading = false;
+	private void saveCache() {
+		if (cache == null)
+			return;
+		try {
+			cache.save(snapshot.get());
+		} catch (IOException ex) {
+			LOG.error("Error while saving Server Config cache: ", ex);
+		}
 	}
 
 	public void reload(Runnable then) throws RestException, Exception {
-		if (actuallyReloading)
+		if (!actuallyReloading.compareAndSet(false, true))
 			throw new IllegalStateException("Servers are actually reloading, please retry later");
-		actuallyReloading = true;
 		LOG.info("Initializing Server Config");
 		// Call retrofit
 		Main.get().getNetworkManager().network().getServerConfigService()
-				.asyncGetServerConfig(new Callback<ServerConfigDataOutput.ServersConfig>() {
+				.asyncGetServerConfig(
+						RestMetrics.wrap("server_config", new Callback<ServerConfigDataOutput.ServersConfig>() {
 
 					@Override
 					public void onResponse(ServersConfig response) {
-						HashMap<String, ServerConfig> newServersConfig = new HashMap<>();
 						try {
-							int countType = 0;
-							int countSubType = 0;
-							for (com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.ServerConfig sc : response
-									.getTypes()) {
-								countType++;
-								String id = sc.getId();
-								LOG.info("Loading {}", id);
-								String[] database = sc.getDatabase();
-
-								com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.ServerConfig[] variants = sc
-										.getVariants();
-								ServerConfig newSc = new ServerConfig(id, database, sc.getMin(), sc.getMax());
-								newServersConfig.put(id, newSc);
-								if (variants != null) {
-									for (com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.ServerConfig variant : variants) {
-										countSubType++;
-										String vId = variant.getId();
-										LOG.info("Loading {} (variant of {})", vId, id);
-										String[] vDatabase = variant.getDatabase();
-										String[] newDatabase;
-										if (vDatabase == null || vDatabase.length == 0)
-											newDatabase = database;
-										else if (database == null || database.length == 0)
-											newDatabase = vDatabase;
-										else {
-											// Concatenate the both array
-											newDatabase = Arrays.copyOf(database, database.length + vDatabase.length);
-											System.arraycopy(vDatabase, 0, newDatabase, database.length,
-													vDatabase.length);
-										}
-										ServerConfig vServerConfig = new ServerConfig(vId, newDatabase,
-												variant.getMin(), variant.getMax());
-										vServerConfig.setParent(newSc);
-										newSc.addChildren(vServerConfig);
-										newServersConfig.put(vId, vServerConfig);
-										LOG.info("{} loaded", vId);
-									}
-								}
-								LOG.info("{} loaded", id);
-							}
-							LOG.info("Loaded {} types and {} subtypes (total: {})", countType, countSubType,
-									(countType + countSubType));
-							// Save
-							serversConfig = newServersConfig;
-							List<ServerVps> newVps = new ArrayList<>();
-							for (com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.VpsConfig vc : response
-									.getVps()) {
-								ServerVps vps = new ServerVps(vc.getId(), vc.getMaxServers());
-								for (VpsConfigConfig c : vc.getConfig()) {
-									vps.setMin(c.getType(), c.getMin());
-									vps.setMax(c.getType(), c.getMax());
-								}
-								newVps.add(vps);
-							}
-							// Save
-							vps = newVps;
-							LOG.info("Got {} vps", vps.size());
+							apply(response);
+							lastReloadOk = true;
+							refreshed = true;
 							LOG.info("Server Config initialized");
 							then.run();
 						} catch (Exception ex) {
 							// Unknown exception
 							LOG.error("", ex);
 						} finally {
-							actuallyReloading = false;
+							actuallyReloading.set(false);
 						}
 					}
 
 					@Override
 					public void onFatalFailure(Throwable t) {
 						LOG.error("Fatal error: ", t);
-						actuallyReloading = false;
+						lastReloadOk = false;
+						actuallyReloading.set(false);
 						then.run();
 					}
 
 					@Override
 					public void onFailure(RestException ex) {
 						LOG.error("Failure: ", ex);
-						actuallyReloading = false;
+						lastReloadOk = false;
+						actuallyReloading.set(false);
 						then.run();
 					}
-				});
+				}));
+	}
+
+	/**
+	 * Refresh the config in background. Until a refresh succeeds (ex: the REST API
+	 * is down at startup), it's retried every retry ms. Then the config is
+	 * refreshed every interval ms
+	 * 
+	 * @param interval The time (in ms) between two refreshes, 0 to only load it
+	 *                 once
+	 * @param retry    The time (in ms) before retrying a failed refresh
+	 */
+	public void startRefresh(long interval, long retry) {
+		refreshThread = new Thread(() -> {
+			while (true) {
+				try {
+					if (refreshed) {
+						if (interval <= 0)
+							return;
+						Thread.sleep(interval);
+					}
+					CountDownLatch done = new CountDownLatch(1);
+					boolean ok;
+					try {
+						reload(done::countDown);
+						ok = done.await(Math.max(retry, 30000), TimeUnit.MILLISECONDS) && lastReloadOk;
+					} catch (IllegalStateException ex) {
+						// Already reloading (ex: reload command)
+						ok = false;
+					}
+					if (ok)
+						LOG.info("Server Config refreshed (version {})", snapshot.get().getVersion());
+					else {
+						LOG.warn("Cannot refresh Server Config, retrying in {} ms", retry);
+						Thread.sleep(retry);
+					}
+				} catch (InterruptedException ex) {
+					return;
+				} catch (Exception ex) {
+					LOG.error("Error while refreshing Server Config: ", ex);
+				}
+			}
+		}, "ServerConfigManager-Refresh");
+		refreshThread.setDaemon(true);
+		refreshThread.start();
+	}
+
+	public void stopRefresh() {
+		if (refreshThread != null)
+			refreshThread.interrupt();
+	}
+
+	/**
+	 * Build a new snapshot from the response and publish it.<br />
+	 * Types whose definition didn't change are not rebuilt, and listeners are only
+	 * called for changed types
+	 */
+	void apply(ServersConfig response) {
+		ServerConfigSnapshot old = snapshot.get();
+		// Fingerprint of each type
+		Map<String, String> newFamilies = new HashMap<>();
+		StringBuilder fingerprint = new StringBuilder();
+		for (com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.ServerConfig sc : response
+				.getTypes()) {
+			String f = fingerprint(sc);
+			newFamilies.put(sc.getId(), f);
+			fingerprint.append(f).append('\n');
+		}
+		for (VpsConfig vc : response.getVps())
+			fingerprint.append(fingerprint(vc)).append('\n');
+		if (fingerprint.toString().equals(old.getFingerprint())) {
+			LOG.info("Server Config unchanged (version {})", old.getVersion());
+			// The cache already contains this config
+			snapshot.set(old.withLoadTime(System.currentTimeMillis()));
+			return;
+		}
+
+		HashMap<String, ServerConfig> newServersConfig = new HashMap<>();
+		int countType = 0;
+		int countSubType = 0;
+		int rebuilt = 0;
+		for (com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.ServerConfig sc : response
+				.getTypes()) {
+			countType++;
+			String id = sc.getId();
+			ServerConfig oldSc = old.get(id);
+			if (oldSc != null && oldSc.getParent() == null && newFamilies.get(id).equals(old.getFamilies().get(id))) {
+				// Same definition, keep it
+				newServersConfig.put(id, oldSc);
+				for (ServerConfig child : oldSc.getChildrens()) {
+					countSubType++;
+					newServersConfig.put(child.getType(), child);
+				}
+				continue;
+			}
+			rebuilt++;
+			LOG.info("Loading {}", id);
+			String[] database = sc.getDatabase();
+
+			com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.ServerConfig[] variants = sc
+					.getVariants();
+			ServerConfig newSc = new ServerConfig(id, database, sc.getMin(), sc.getMax());
+			newServersConfig.put(id, newSc);
+			if (variants != null) {
+				for (com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.ServerConfig variant : variants) {
+					countSubType++;
+					String vId = variant.getId();
+					LOG.info("Loading {} (variant of {})", vId, id);
+					String[] vDatabase = variant.getDatabase();
+					String[] newDatabase;
+					if (vDatabase == null || vDatabase.length == 0)
+						newDatabase = database;
+					else if (database == null || database.length == 0)
+						newDatabase = vDatabase;
+					else {
+						// Concatenate the both array
+						newDatabase = Arrays.copyOf(database, database.length + vDatabase.length);
+						System.arraycopy(vDatabase, 0, newDatabase, database.length, vDatabase.length);
+					}
+					ServerConfig vServerConfig = new ServerConfig(vId, newDatabase, variant.getMin(),
+							variant.getMax());
+					vServerConfig.setParent(newSc);
+					newSc.addChildren(vServerConfig);
+					newServersConfig.put(vId, vServerConfig);
+					LOG.info("{} loaded", vId);
+				}
+			}
+			LOG.info("{} loaded", id);
+		}
+		LOG.info("Loaded {} types and {} subtypes (total: {}, rebuilt: {})", countType, countSubType,
+				(countType + countSubType), rebuilt);
+		List<ServerVps> newVps = new ArrayList<>();
+		for (VpsConfig vc : response.getVps()) {
+			ServerVps vps = new ServerVps(vc.getId(), vc.getMaxServers());
+			for (VpsConfigConfig c : vc.getConfig()) {
+				vps.setMin(c.getType(), c.getMin());
+				vps.setMax(c.getType(), c.getMax());
+			}
+			// Always a new instance: its tables are indexed on the registry of the new
+			// snapshot (the old one if no type changed)
+			newVps.add(vps);
+		}
+		LOG.info("Got {} vps", newVps.size());
+		// Save
+		ServerConfigSnapshot newSnapshot = new ServerConfigSnapshot(old.getVersion() + 1, fingerprint.toString(),
+				newServersConfig, newFamilies, newVps, System.currentTimeMillis(), old);
+		snapshot.set(newSnapshot);
+		LOG.info("Server Config version {} published", newSnapshot.getVersion());
+		saveCache();
+		notifyListeners(old, newSnapshot);
+	}
+
+	private void notifyListeners(ServerConfigSnapshot old, ServerConfigSnapshot now) {
+		Set<String> types = new HashSet<>(old.getTypes().keySet());
+		types.addAll(now.getTypes().keySet());
+		for (String type : types) {
+			ServerConfig oldConfig = old.get(type);
+			ServerConfig newConfig = now.get(type);
+			if (oldConfig == newConfig)
+				continue;
+			for (ServerConfigListener listener : listeners)
+				try {
+					listener.onChange(type, oldConfig, newConfig);
+				} catch (Exception ex) {
+					LOG.error("Error while notifying a change of type {}: ", type, ex);
+				}
+		}
+	}
+
+	/**
+	 * @return A string that changes if the definition of this type (or of one of
+	 *         its variants) changes
+	 */
+	private String fingerprint(
+			com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.ServerConfig sc) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(sc.getId()).append('|').append(sc.getMin()).append('|').append(sc.getMax()).append('|')
+				.append(Arrays.toString(sc.getDatabase()));
+		if (sc.getVariants() != null)
+			for (com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.ServerConfig variant : sc
+					.getVariants())
+				sb.append('[').append(fingerprint(variant)).append(']');
+		return sb.toString();
+	}
+
+	private String fingerprint(VpsConfig vc) {
+		StringBuilder sb = new StringBuilder("vps|");
+		sb.append(vc.getId()).append('|').append(vc.getMaxServers());
+		for (VpsConfigConfig c : vc.getConfig())
+			sb.append('|').append(c.getType()).append('=').append(c.getMin()).append('-').append(c.getMax());
+		return sb.toString();
+	}
+
+	/**
+	 * Add a listener called for each changed type after a reload
+	 */
+	public void addListener(ServerConfigListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * @return The current config
+	 */
+	public ServerConfigSnapshot getSnapshot() {
+		return snapshot.get();
 	}
 
 	public ServerConfig get(String type) {
-		return serversConfig.get(type);
+		return snapshot.get().get(type);
 	}
 
 	public boolean exist(String type) {
-		return serversConfig.containsKey(type);
+		return snapshot.get().getRegistry().id(type) > TypeRegistry.BUNGEE;
 	}
 
 	public Collection<ServerConfig> getAll() {
-		return serversConfig.values();
+		return snapshot.get().getTypes().values();
+	}
+
+	public List<ServerVps> getVps() {
+		return snapshot.get().getVps();
 	}
 
 	public ServerVps getVps(String vps) {
-		for (ServerVps v : this.vps)
-			if (v.getId().equalsIgnoreCase(vps))
-				return v;
-		return null;
+		return snapshot.get().getVps(vps);
 	}
 }
@@ -0,0 +1,133 @@
+package com.froxynetwork.servermanager.server.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+@Getter
+public class ServerConfigSnapshot {
+	/**
+	 * Empty snapshot, used before the first load
+	 */
+	public static final ServerConfigSnapshot EMPTY = new ServerConfigSnapshot(0, "", new HashMap<>(),
+			new HashMap<>(), Collections.emptyList(), 0);
+
+	/**
+	 * Local version, incremented each time the config changes
+	 */
+	private long version;
+	/**
+	 * Fingerprint of the whole config, used to detect if the config has changed
+	 */
+	private String fingerprint;
+	/**
+	 * All types (and variants)
+	 */
+	private Map<String, ServerConfig> types;
+	/**
+	 * Fingerprint of each type (with its variants)
+	 */
+	private Map<String, String> families;
+	private List<ServerVps> vps;
+	private Map<String, ServerVps> vpsById;
+	private TypeRegistry registry;
+	/**
+	 * Time (System.currentTimeMillis()) when this config has been retrieved
+	 */
+	private long loadTime;
+
+	public ServerConfigSnapshot(long version, String fingerprint, Map<String, ServerConfig> types,
+			Map<String, String> families, List<ServerVps> vps, long loadTime) {
+		this(version, fingerprint, types, families, vps, loadTime, null);
+	}
+
+	/**
+	 * @param previous The previous snapshot, or null. Its registry is kept if all
+	 *                 types are the same instances, so a reload that only changes
+	 *                 the vps doesn't change the ids of types
+	 */
+	public ServerConfigSnapshot(long version, String fingerprint, Map<String, ServerConfig> types,
+			Map<String, String> families, List<ServerVps> vps, long loadTime, ServerConfigSnapshot previous) {
+		this.version = version;
+		this.fingerprint = fingerprint;
+		this.types = Collections.unmodifiableMap(types);
+		this.families = Collections.unmodifiableMap(families);
+		this.vps = Collections.unmodifiableList(vps);
+		this.registry = previous != null && sameTypes(previous.types, types) ? previous.registry
+				: new TypeRegistry(types.values());
+		Map<String, ServerVps> vpsById = new HashMap<>();
+		for (ServerVps v : vps) {
+			v.index(registry);
+			vpsById.put(v.getId().toLowerCase(), v);
+		}
+		this.vpsById = Collections.unmodifiableMap(vpsById);
+		this.loadTime = loadTime;
+	}
+
+	private ServerConfigSnapshot(ServerConfigSnapshot snapshot, long loadTime) {
+		this.version = snapshot.version;
+		this.fingerprint = snapshot.fingerprint;
+		this.types = snapshot.types;
+		this.families = snapshot.families;
+		this.vps = snapshot.vps;
+		this.vpsById = snapshot.vpsById;
+		this.registry = snapshot.registry;
+		this.loadTime = loadTime;
+	}
+
+	/**
+	 * @return true if both maps contain the same types with the same instances
+	 */
+	private static boolean sameTypes(Map<String, ServerConfig> a, Map<String, ServerConfig> b) {
+		if (a.size() != b.size())
+			return false;
+		for (Map.Entry<String, ServerConfig> e : b.entrySet())
+			if (a.get(e.getKey()) != e.getValue())
+				return false;
+		return true;
+	}
+
+	/**
+	 * @param loadTime The new load time
+	 * @return A copy of this snapshot with another load time
+	 */
+	public ServerConfigSnapshot withLoadTime(long loadTime) {
+		return new ServerConfigSnapshot(this, loadTime);
+	}
+
+	public ServerConfig get(String type) {
+		return types.get(type);
+	}
+
+	public ServerVps getVps(String id) {
+		return id == null ? null : vpsById.get(id.toLowerCase());
+	}
+}
@@ -1,7 +1,9 @@
 package com.froxynetwork.servermanager.server.config;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -43,30 +45,82 @@ public class ServerVps {
 	private HashMap<String, Integer> min;
 	@ToString.Exclude
 	private HashMap<String, Integer> max;
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
+	private int[] minTable;
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
+	private int[] maxTable;
 
 	public ServerVps(String id, int maxServers) {
 		this.id = id;
 		this.maxServers = maxServers;
 		this.min = new HashMap<>();
 		this.max = new HashMap<>();
+		this.minTable = new int[0];
+		this.maxTable = new int[0];
 	}
 
+	/**
+	 * @return The min of this type for this VPS, or 0 if not set
+	 */
 	public int getMin(String id) {
-		return min.get(id);
+		return min.getOrDefault(id, 0);
+	}
+
+	/**
+	 * @return The min of this type for this VPS, or 0 if not set
+	 */
+	public int getMin(int typeId) {
+		return typeId < minTable.length ? minTable[typeId] : 0;
 	}
 
 	public void setMin(String id, int min) {
 		this.min.put(id, min);
 	}
 
+	/**
+	 * @return The max of this type for this VPS, or -1 if not set (no limit)
+	 */
 	public int getMax(String id) {
-		return max.get(id);
+		return max.getOrDefault(id, -1);
+	}
+
+	/**
+	 * @return The max of this type for this VPS, or -1 if not set (no limit)
+	 */
+	public int getMax(int typeId) {
+		return typeId < maxTable.length ? maxTable[typeId] : -1;
+	}
+
+	/**
+	 * Build the tables used by {@link #getMin(int)} and {@link #getMax(int)}.
+	 * Called once, when the snapshot containing this VPS is created
+	 * 
+	 * @param registry The registry of types
+	 */
+	void index(TypeRegistry registry) {
+		int[] minTable = new int[registry.size()];
+		int[] maxTable = new int[registry.size()];
+		for (int i = 0; i < registry.size(); i++) {
+			minTable[i] = getMin(registry.getName(i));
+			maxTable[i] = getMax(registry.getName(i));
+		}
+		this.minTable = minTable;
+		this.maxTable = maxTable;
 	}
 
 	public void setMax(String id, int max) {
 		this.max.put(id, max);
 	}
 
+	/**
+	 * @return All types that have a min / max for this VPS
+	 */
+	public Set<String> getTypes() {
+		return Collections.unmodifiableSet(min.keySet());
+	}
+
 	@ToString.Include(name = "min")
 	public String min() {
 		StringBuilder sb = new StringBuilder("min = [");
@@ -0,0 +1,146 @@
+package com.froxynetwork.servermanager.server.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class TypeRegistry {
+	/**
+	 * The id of the bungee type, always registered
+	 */
+	public static final int BUNGEE = 0;
+	public static final String BUNGEE_TYPE = "BUNGEE";
+
+	private HashMap<String, Integer> ids;
+	private String[] names;
+	private ServerConfig[] configs;
+	private int[] parents;
+	private int[][] childrens;
+	private int[] min;
+	private int[] max;
+
+	/**
+	 * Assign a dense id to each type. Ids are assigned in alphabetical order so
+	 * the same config always gives the same ids
+	 * 
+	 * @param types All types (and variants)
+	 */
+	public TypeRegistry(Collection<ServerConfig> types) {
+		List<ServerConfig> sorted = new ArrayList<>(types);
+		sorted.sort(Comparator.comparing(ServerConfig::getType));
+		int size = sorted.size() + 1;
+		ids = new HashMap<>(size * 2);
+		names = new String[size];
+		configs = new ServerConfig[size];
+		parents = new int[size];
+		childrens = new int[size][];
+		min = new int[size];
+		max = new int[size];
+		names[BUNGEE] = BUNGEE_TYPE;
+		parents[BUNGEE] = -1;
+		childrens[BUNGEE] = new int[0];
+		max[BUNGEE] = 1;
+		ids.put(BUNGEE_TYPE, BUNGEE);
+		for (int i = 0; i < sorted.size(); i++) {
+			ServerConfig sc = sorted.get(i);
+			int id = i + 1;
+			ids.put(sc.getType(), id);
+			names[id] = sc.getType();
+			configs[id] = sc;
+			min[id] = sc.getMin();
+			max[id] = sc.getMax();
+		}
+		// Parents and childrens
+		for (int id = 1; id < size; id++) {
+			ServerConfig sc = configs[id];
+			parents[id] = sc.getParent() == null ? -1 : id(sc.getParent().getType());
+			List<ServerConfig> c = sc.getChildrens();
+			childrens[id] = new int[c.size()];
+			for (int j = 0; j < c.size(); j++)
+				childrens[id][j] = id(c.get(j).getType());
+		}
+	}
+
+	/**
+	 * Get the id of this type. This method doesn't allocate
+	 * 
+	 * @param type The type
+	 * @return The id of this type, or -1 if it doesn't exist
+	 */
+	public int id(String type) {
+		if (type == null)
+			return -1;
+		Integer id = ids.get(type);
+		if (id != null)
+			return id;
+		return BUNGEE_TYPE.equalsIgnoreCase(type) ? BUNGEE : -1;
+	}
+
+	/**
+	 * @return The number of types (including the bungee)
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	public String getName(int id) {
+		return names[id];
+	}
+
+	/**
+	 * @return The config of this type, or null for the bungee
+	 */
+	public ServerConfig getConfig(int id) {
+		return configs[id];
+	}
+
+	/**
+	 * @return The id of the parent, or -1 if this type is not a variant
+	 */
+	public int getParent(int id) {
+		return parents[id];
+	}
+
+	/**
+	 * @return The ids of all variants of this type. The returned array MUST NOT be
+	 *         modified
+	 */
+	public int[] getChildrens(int id) {
+		return childrens[id];
+	}
+
+	public int getMin(int id) {
+		return min[id];
+	}
+
+	public int getMax(int id) {
+		return max[id];
+	}
+}
@@ -0,0 +1,180 @@
+package com.froxynetwork.servermanager.trace;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.froxynetwork.servermanager.jfr.ServerPhaseEvent;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class Trace {
+	@Getter
+	private String uuid;
+	@Getter
+	private volatile String id;
+	@Getter
+	private String type;
+	/**
+	 * Time (in ms) of the start request
+	 */
+	@Getter
+	private long start;
+	/**
+	 * Time (in ms) the server has been linked, 0 if not linked yet
+	 */
+	@Getter
+	private volatile long linked;
+	/**
+	 * The reason of the failure, or null
+	 */
+	@Getter
+	private volatile String error;
+	private List<Span> spans;
+
+	public Trace(String uuid, String type, long start) {
+		this.uuid = uuid;
+		this.type = type;
+		this.start = start;
+		this.spans = new ArrayList<>();
+	}
+
+	void setId(String id) {
+		this.id = id;
+	}
+
+	/**
+	 * Add a finished phase. Phases with an unknown start (0) are ignored
+	 * 
+	 * @param name  The name of the phase
+	 * @param start The time (in ms) of the start of this phase
+	 * @param end   The time (in ms) of the end of this phase
+	 */
+	public void span(String name, long start, long end) {
+		if (start <= 0)
+			return;
+		synchronized (spans) {
+			spans.add(new Span(name, start, Math.max(start, end)));
+		}
+		ServerPhaseEvent.commit(uuid, id, type, name, Math.max(0, end - start));
+	}
+
+	/**
+	 * Add an event without duration
+	 */
+	public void mark(String name) {
+		long now = System.currentTimeMillis();
+		span(name, now, now);
+	}
+
+	/**
+	 * The server is linked, the start is done
+	 */
+	public void linked() {
+		linked = System.currentTimeMillis();
+	}
+
+	/**
+	 * The start failed
+	 * 
+	 * @param reason The reason
+	 */
+	public void fail(String reason) {
+		error = reason;
+		mark("error");
+	}
+
+	/**
+	 * @return The time (in ms) between the start request and the link, or -1 if
+	 *         not linked
+	 */
+	public long getStartDuration() {
+		return linked == 0 ? -1 : linked - start;
+	}
+
+	public List<Span> getSpans() {
+		synchronized (spans) {
+			return new ArrayList<>(spans);
+		}
+	}
+
+	/**
+	 * @return A human readable timeline, one line per phase
+	 */
+	public List<String> toLines() {
+		SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS");
+		String state = linked != 0 ? "linked in " + getStartDuration() + " ms"
+				: error != null ? "error = " + error : "not linked";
+		List<String> lines = new ArrayList<>();
+		lines.add("Trace " + uuid + " (id = " + id + ", type = " + type + ", start = "
+				+ format.format(new Date(start)) + ", " + state + ")");
+		for (Span s : getSpans())
+			lines.add(String.format("  +%6d ms %-12s %6d ms", s.getStart() - start, s.getName(), s.getDuration()));
+		return lines;
+	}
+
+	/**
+	 * @return This trace in JSON
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"uuid\":").append(quote(uuid));
+		sb.append(",\"id\":").append(quote(id));
+		sb.append(",\"type\":").append(quote(type));
+		sb.append(",\"start\":").append(start);
+		sb.append(",\"duration\":").append(getStartDuration());
+		sb.append(",\"error\":").append(quote(error));
+		sb.append(",\"spans\":[");
+		boolean first = true;
+		for (Span s : getSpans()) {
+			if (!first)
+				sb.append(',');
+			first = false;
+			sb.append("{\"name\":").append(quote(s.getName()));
+			sb.append(",\"start\":").append(s.getStart() - start);
+			sb.append(",\"duration\":").append(s.getDuration()).append('}');
+		}
+		return sb.append("]}").toString();
+	}
+
+	private static String quote(String s) {
+		if (s == null)
+			return "null";
+		StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+		for (char c : s.toCharArray()) {
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c < 0x20)
+				sb.append(String.format("\\u%04x", (int) c));
+			else
+				sb.append(c);
+		}
+		return sb.append('"').toString();
+	}
+}
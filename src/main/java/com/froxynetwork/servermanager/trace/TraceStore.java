@@ -0,0 +1,143 @@
+package com.froxynetwork.servermanager.trace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class TraceStore {
+	@Getter
+	private int capacity;
+	/**
+	 * uuid => trace, oldest first
+	 */
+	private LinkedHashMap<String, Trace> traces;
+	/**
+	 * id => trace
+	 */
+	private HashMap<String, Trace> byId;
+
+	/**
+	 * @param capacity The maximum number of traces kept. Oldest traces are removed
+	 *                 first
+	 */
+	public TraceStore(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		this.byId = new HashMap<>();
+		this.traces = new LinkedHashMap<String, Trace>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Trace> eldest) {
+				if (size() <= TraceStore.this.capacity)
+					return false;
+				if (eldest.getValue().getId() != null)
+					byId.remove(eldest.getValue().getId());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Create the trace of a start request
+	 * 
+	 * @param uuid The uuid of the request
+	 * @param type The type of the server
+	 * @return The trace
+	 */
+	public synchronized Trace start(UUID uuid, String type) {
+		Trace trace = new Trace(uuid.toString(), type, System.currentTimeMillis());
+		traces.put(trace.getUuid(), trace);
+		return trace;
+	}
+
+	/**
+	 * Set the id of the server of this trace, the trace can then be found with this
+	 * id
+	 */
+	public synchronized void link(Trace trace, String id) {
+		trace.setId(id);
+		if (traces.get(trace.getUuid()) == trace)
+			byId.put(id, trace);
+	}
+
+	/**
+	 * @param key The uuid of the start request or the id of the server
+	 * @return The trace, or null
+	 */
+	public synchronized Trace get(String key) {
+		if (key == null)
+			return null;
+		Trace trace = byId.get(key);
+		return trace != null ? trace : traces.get(key);
+	}
+
+	/**
+	 * @param uuid The uuid of the start request, or null
+	 * @return The trace, or null
+	 */
+	public Trace get(UUID uuid) {
+		return uuid == null ? null : get(uuid.toString());
+	}
+
+	/**
+	 * @param n The maximum number of traces
+	 * @return The n slowest linked starts, slowest first
+	 */
+	public synchronized List<Trace> slowest(int n) {
+		List<Trace> list = new ArrayList<>();
+		for (Trace t : traces.values())
+			if (t.getLinked() != 0)
+				list.add(t);
+		list.sort(Comparator.comparingLong(Trace::getStartDuration).reversed());
+		return list.subList(0, Math.min(n, list.size()));
+	}
+
+	public synchronized int size() {
+		return traces.size();
+	}
+
+	/**
+	 * @param traces The traces
+	 * @return A JSON array of these traces
+	 */
+	public static String toJson(List<Trace> traces) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < traces.size(); i++) {
+			if (i != 0)
+				sb.append(",\n");
+			sb.append(traces.get(i).toJson());
+		}
+		return sb.append("]\n").toString();
+	}
+}
@@ -0,0 +1,114 @@
+package com.froxynetwork.servermanager.websocket;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.froxynetwork.servermanager.metrics.Counter;
+import com.froxynetwork.servermanager.metrics.Metrics;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class AuthCache {
+	@Getter
+	private long ttl;
+	private ConcurrentHashMap<String, Entry> entries;
+	private Counter hit;
+	private Counter miss;
+
+	/**
+	 * @param ttl The time (in ms) a validated authentication is kept
+	 */
+	public AuthCache(long ttl) {
+		this.ttl = ttl;
+		this.entries = new ConcurrentHashMap<>();
+		this.hit = Metrics.counter("websocket_auth_cache", "result=\"hit\"");
+		this.miss = Metrics.counter("websocket_auth_cache", "result=\"miss\"");
+	}
+
+	/**
+	 * Check if this server has already been validated with this token
+	 *
+	 * @param id    The id of the server
+	 * @param token The token sent by the server
+	 * @return true if a non-expired validation of this token exists
+	 */
+	public boolean isValid(String id, String token) {
+		Entry e = entries.get(id);
+		if (e == null || e.expire < System.currentTimeMillis() || !Arrays.equals(e.hash, hash(token))) {
+			miss.inc();
+			return false;
+		}
+		hit.inc();
+		return true;
+	}
+
+	/**
+	 * Save an authentication validated by the REST API
+	 *
+	 * @param id    The id of the server
+	 * @param token The token sent by the server
+	 */
+	public void put(String id, String token) {
+		entries.put(id, new Entry(hash(token), System.currentTimeMillis() + ttl));
+	}
+
+	/**
+	 * Remove the validation of this server (ex: when the server is closed)
+	 *
+	 * @param id The id of the server
+	 */
+	public void invalidate(String id) {
+		entries.remove(id);
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private static byte[] hash(String token) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException ex) {
+			// SHA-256 is always available
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static class Entry {
+		private byte[] hash;
+		private long expire;
+
+		private Entry(byte[] hash, long expire) {
+			this.hash = hash;
+			this.expire = expire;
+		}
+	}
+}
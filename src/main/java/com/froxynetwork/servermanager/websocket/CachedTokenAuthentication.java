@@ -0,0 +1,136 @@
+package com.froxynetwork.servermanager.websocket;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.java_websocket.framing.CloseFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.froxynetwork.network.NetworkManager;
+import com.froxynetwork.froxynetwork.network.websocket.WebSocketServerImpl;
+import com.froxynetwork.froxynetwork.network.websocket.auth.WebSocketTokenAuthentication;
+import com.froxynetwork.servermanager.Main;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class CachedTokenAuthentication extends WebSocketTokenAuthentication {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	private AuthCache cache;
+	private WebSocketAdmission admission;
+	/**
+	 * Connections whose token is being checked by the REST API => their token
+	 */
+	private ConcurrentHashMap<WebSocketServerImpl, String> checking;
+	/**
+	 * Connections accepted from the cache, until their authentication is done
+	 */
+	private Set<WebSocketServerImpl> hits;
+	/**
+	 * true once a connection has been authenticated without {@link #checkToken}
+	 */
+	private volatile boolean bypassed;
+
+	public CachedTokenAuthentication(NetworkManager networkManager, AuthCache cache, WebSocketAdmission admission) {
+		super(networkManager);
+		this.cache = cache;
+		this.admission = admission;
+		this.checking = new ConcurrentHashMap<>();
+		this.hits = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Check the token sent by a server ("auth &lt;id&gt; &lt;token&gt;"). A token
+	 * already validated for this id is accepted without calling the REST API.
+	 * Others wait in the admission queue before being checked by the REST API, the
+	 * bungee first
+	 */
+	@Override
+	protected void checkToken(WebSocketServerImpl webSocket, String id, String token) {
+		if (cache.isValid(id, token)) {
+			// Only the REST call is skipped, the connection is authenticated like after a
+			// successful check. onAuthenticated must follow
+			hits.add(webSocket);
+			webSocket.save(TOKEN, id);
+			webSocket.setAuthenticated(true);
+			return;
+		}
+		// The id isn't validated yet: the admission gives priority to one connection at
+		// a time, so a server claiming this id cannot take more than one slot
+		boolean bungee = Main.get().getServerManager().isWaitingBungee(id);
+		boolean queued = admission.submit(webSocket, bungee, () -> {
+			checking.put(webSocket, token);
+			super.checkToken(webSocket, id, token);
+		});
+		if (!queued) {
+			// Too many servers are authenticating (restart of the ServerManager), shed this
+			// one. It'll reconnect later
+			LOG.debug("Too many waiting authentications ({}), shedding server {}", admission.getWaiting(), id);
+			webSocket.disconnect(CloseFrame.NORMAL, "Too many connections, please retry later");
+		}
+	}
+
+	/**
+	 * Called once a connection is authenticated. If its token has been validated
+	 * by the REST API, save it in the cache
+	 * 
+	 * @param webSocket The connection
+	 * @param id        The id of the server
+	 * @return true if the token was found in the cache, false if the REST API has
+	 *         been called
+	 */
+	public boolean onAuthenticated(WebSocketServerImpl webSocket, String id) {
+		if (hits.remove(webSocket))
+			return true;
+		String token = checking.remove(webSocket);
+		if (token == null) {
+			// The token has been checked without calling checkToken: the cache and the
+			// admission queue are not used
+			if (!bypassed) {
+				bypassed = true;
+				LOG.warn("Server {} authenticated without the auth cache, check the FroxyNetwork version", id);
+			}
+			return false;
+		}
+		admission.release(webSocket);
+		cache.put(id, token);
+		return false;
+	}
+
+	/**
+	 * Forget a connection closed before the end of its authentication. A check
+	 * that failed without closing the connection releases its slot after the
+	 * timeout of the admission
+	 */
+	public void onDisconnected(WebSocketServerImpl webSocket) {
+		if (hits.remove(webSocket))
+			LOG.warn("Connection closed after an auth cache hit but before its authentication");
+		checking.remove(webSocket);
+		if (!admission.cancel(webSocket))
+			admission.release(webSocket);
+	}
+}
@@ -0,0 +1,120 @@
+package com.froxynetwork.servermanager.websocket;
+
+import java.util.concurrent.TimeUnit;
+
+import com.froxynetwork.servermanager.metrics.Histogram;
+import com.froxynetwork.servermanager.metrics.Metrics;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class Heartbeat {
+	@Getter
+	private String link;
+	@Getter
+	private int missThreshold;
+	private volatile long lastPing;
+	@Getter
+	private volatile int missed;
+	private volatile boolean enabled;
+	@Getter
+	private Histogram rtt;
+
+	/**
+	 * @param link          The name of the link (used for metrics)
+	 * @param missThreshold The number of missed pongs before declaring the link
+	 *                      dead
+	 */
+	public Heartbeat(String link, int missThreshold) {
+		this.link = link;
+		this.missThreshold = missThreshold;
+		this.rtt = Metrics.histogram("websocket_rtt_us", "link=\"" + link + "\"", "us");
+		reset();
+	}
+
+	/**
+	 * Prepare a new ping. If the previous ping has not been answered, it is
+	 * counted as missed
+	 * 
+	 * @return The message to send with the "ping" command
+	 */
+	public String ping() {
+		if (lastPing != 0)
+			missed++;
+		long now = System.nanoTime();
+		lastPing = now;
+		return Long.toString(now);
+	}
+
+	/**
+	 * Called when a "pong" is received
+	 * 
+	 * @param message The message of the pong (the message of the ping)
+	 */
+	public void onPong(String message) {
+		long sent;
+		try {
+			sent = Long.parseLong(message);
+		} catch (NumberFormatException ex) {
+			return;
+		}
+		if (sent != lastPing)
+			// Too late, this pong is for an old ping
+			return;
+		rtt.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent));
+		lastPing = 0;
+		missed = 0;
+		enabled = true;
+	}
+
+	/**
+	 * A link is dead if it already answered a ping and then missed at least
+	 * missThreshold pings.<br />
+	 * Links that never answered (old clients) are never considered as dead
+	 * 
+	 * @return true if this link doesn't respond anymore
+	 */
+	public boolean isDead() {
+		return enabled && missed >= missThreshold;
+	}
+
+	/**
+	 * Reset this heartbeat (ex: on a new connection)
+	 */
+	public void reset() {
+		lastPing = 0;
+		missed = 0;
+		enabled = false;
+	}
+
+	/**
+	 * Remove the metrics of this link
+	 */
+	public void unregister() {
+		Metrics.removeHistogram("websocket_rtt_us", "link=\"" + link + "\"");
+	}
+}
@@ -0,0 +1,286 @@
+package com.froxynetwork.servermanager.websocket;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class WebSocketAdmission {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * Maximum number of tokens being validated by the REST API at the same time
+	 */
+	@Getter
+	private int concurrency;
+	/**
+	 * Maximum number of validations started per second
+	 */
+	@Getter
+	private int rate;
+	/**
+	 * Maximum number of connections waiting for a validation slot
+	 */
+	@Getter
+	private int queueSize;
+	/**
+	 * Maximum time (in ms) of a validation. After that its slot is released, even
+	 * if the validation never ends
+	 */
+	@Getter
+	private long timeout;
+	/**
+	 * Started validations => time (System.nanoTime()) of their start
+	 */
+	private HashMap<Object, Long> running;
+	/**
+	 * The priority connection, waiting or running, or null
+	 */
+	private Object priorityKey;
+	private ArrayDeque<Waiting> queue;
+	private AtomicLong admitted;
+	private AtomicLong shed;
+	private AtomicLong expired;
+	private Thread thread;
+	private volatile boolean stop;
+
+	// Token bucket
+	private double tokens;
+	private long lastRefill;
+
+	/**
+	 * @param concurrency The maximum number of validations at the same time
+	 * @param rate        The maximum number of validations started per second
+	 * @param queueSize   The maximum number of waiting connections
+	 * @param timeout     The maximum time (in ms) of a validation
+	 */
+	public WebSocketAdmission(int concurrency, int rate, int queueSize, long timeout) {
+		this.concurrency = Math.max(1, concurrency);
+		this.rate = Math.max(1, rate);
+		this.queueSize = Math.max(0, queueSize);
+		this.timeout = Math.max(1, timeout);
+		this.running = new HashMap<>();
+		this.queue = new ArrayDeque<>();
+		this.admitted = new AtomicLong();
+		this.shed = new AtomicLong();
+		this.expired = new AtomicLong();
+		this.tokens = this.rate;
+		this.lastRefill = System.nanoTime();
+		// Start waiting connections when new tokens are available
+		long interval = Math.max(1, 1000 / this.rate);
+		thread = new Thread(() -> {
+			while (!stop) {
+				try {
+					synchronized (this) {
+						if (!queue.isEmpty())
+							wait(interval);
+						else if (!running.isEmpty())
+							wait(1000);
+						else
+							wait();
+					}
+					expire();
+					drain();
+				} catch (InterruptedException ex) {
+					return;
+				} catch (Exception ex) {
+					LOG.error("Error in WebSocketAdmission: ", ex);
+				}
+			}
+		}, "WebSocketManager-Admission");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Start the validation of a connection now, or put it in the queue until a
+	 * slot and a token are available.<br />
+	 * Once started, {@link #release(Object)} MUST be called when the validation is
+	 * done or the connection is closed. If the connection is closed while
+	 * waiting, {@link #cancel(Object)} MUST be called
+	 *
+	 * @param key      The connection
+	 * @param priority true to put this connection before all others (ex: the
+	 *                 bungee). Only one connection has the priority at a time,
+	 *                 others wait in the queue like other connections
+	 * @param start    Start the validation
+	 * @return false if the queue is full and the connection should be shed
+	 */
+	public boolean submit(Object key, boolean priority, Runnable start) {
+		synchronized (this) {
+			if (priority && priorityKey == null) {
+				priorityKey = key;
+				queue.addFirst(new Waiting(key, start));
+			} else if (queue.size() < queueSize || (queue.isEmpty() && running.size() < concurrency))
+				queue.addLast(new Waiting(key, start));
+			else {
+				shed.incrementAndGet();
+				return false;
+			}
+			notify();
+		}
+		drain();
+		return true;
+	}
+
+	/**
+	 * Start waiting connections while slots and tokens are available
+	 */
+	private void drain() {
+		while (true) {
+			Waiting w;
+			synchronized (this) {
+				if (queue.isEmpty() || running.size() >= concurrency || !takeToken())
+					return;
+				w = queue.pollFirst();
+				running.put(w.key, System.nanoTime());
+			}
+			admitted.incrementAndGet();
+			w.start.run();
+		}
+	}
+
+	private synchronized boolean takeToken() {
+		long now = System.nanoTime();
+		tokens = Math.min(rate, tokens + (now - lastRefill) * rate / 1_000_000_000D);
+		lastRefill = now;
+		if (tokens < 1)
+			return false;
+		tokens--;
+		return true;
+	}
+
+	/**
+	 * Release the slot taken by the validation of this connection. Nothing is
+	 * done if it has already been released
+	 * 
+	 * @param key The connection
+	 */
+	public void release(Object key) {
+		synchronized (this) {
+			if (running.remove(key) == null)
+				return;
+			if (priorityKey == key)
+				priorityKey = null;
+		}
+		drain();
+	}
+
+	/**
+	 * Release the slots of validations that have been running for more than
+	 * {@link #timeout} ms (ex: the REST API failed and the connection stays open)
+	 */
+	private void expire() {
+		long limit = System.nanoTime() - timeout * 1_000_000L;
+		synchronized (this) {
+			for (Iterator<Map.Entry<Object, Long>> it = running.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<Object, Long> e = it.next();
+				if (e.getValue() - limit > 0)
+					continue;
+				it.remove();
+				if (priorityKey == e.getKey())
+					priorityKey = null;
+				expired.incrementAndGet();
+				LOG.warn("Authentication of {} still running after {} ms, releasing its slot", e.getKey(), timeout);
+			}
+		}
+	}
+
+	/**
+	 * Remove a connection from the queue
+	 *
+	 * @param key The connection
+	 * @return true if the connection was waiting
+	 */
+	public synchronized boolean cancel(Object key) {
+		for (Iterator<Waiting> it = queue.iterator(); it.hasNext();)
+			if (it.next().key == key) {
+				it.remove();
+				if (priorityKey == key)
+					priorityKey = null;
+				return true;
+			}
+		return false;
+	}
+
+	/**
+	 * @return The number of validations actually running
+	 */
+	public synchronized int getPending() {
+		return running.size();
+	}
+
+	/**
+	 * @return The number of connections waiting for a slot
+	 */
+	public synchronized int getWaiting() {
+		return queue.size();
+	}
+
+	/**
+	 * @return The number of validations started since the start
+	 */
+	public long getAdmitted() {
+		return admitted.get();
+	}
+
+	/**
+	 * @return The number of connections shed since the start
+	 */
+	public long getShed() {
+		return shed.get();
+	}
+
+	/**
+	 * @return The number of slots released by the timeout since the start
+	 */
+	public long getExpired() {
+		return expired.get();
+	}
+
+	public void stop() {
+		stop = true;
+		thread.interrupt();
+	}
+
+	private static class Waiting {
+		private Object key;
+		private Runnable start;
+
+		private Waiting(Object key, Runnable start) {
+			this.key = key;
+			this.start = start;
+		}
+	}
+}
@@ -3,6 +3,8 @@ package com.froxynetwork.servermanager.websocket;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.java_websocket.framing.CloseFrame;
 import org.slf4j.Logger;
@@ -13,7 +15,10 @@ import com.froxynetwork.froxynetwork.network.websocket.WebSocketServer;
 import com.froxynetwork.froxynetwork.network.websocket.WebSocketServerImpl;
 import com.froxynetwork.froxynetwork.network.websocket.auth.WebSocketTokenAuthentication;
 import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.metrics.Histogram;
+import com.froxynetwork.servermanager.metrics.Metrics;
 import com.froxynetwork.servermanager.server.Server;
+import com.froxynetwork.servermanager.trace.Trace;
 
 import lombok.Getter;
 
@@ -51,19 +56,45 @@ public class WebSocketManager {
 	private String url;
 	@Getter
 	private int port;
+	@Getter
+	private WebSocketAdmission admission;
+	/**
+	 * Connections not authenticated yet => time (System.nanoTime()) they have been
+	 * opened
+	 */
+	private ConcurrentHashMap<WebSocketServerImpl, Long> opened;
+	@Getter
+	private AuthCache authCache;
+	private CachedTokenAuthentication authentication;
+	private Histogram authLatencyHit;
+	private Histogram authLatencyMiss;
+	private long startTime;
+	private boolean allLinked;
 
-	public WebSocketManager(String url, int port) {
+	public WebSocketManager(String url, int port, int authConcurrency, int authRate, int authQueue,
+			long authTimeout, long authCacheTtl) {
 		this.url = url;
 		this.port = port;
 		links = new HashMap<>();
-		webSocketServer = WebSocketFactory.server(new InetSocketAddress(url, port),
-				new WebSocketTokenAuthentication(Main.get().getNetworkManager()));
+		admission = new WebSocketAdmission(authConcurrency, authRate, authQueue, authTimeout);
+		opened = new ConcurrentHashMap<>();
+		authCache = new AuthCache(authCacheTtl);
+		authentication = new CachedTokenAuthentication(Main.get().getNetworkManager(), authCache, admission);
+		Metrics.gauge("websocket_auth_waiting", null, admission::getWaiting);
+		authLatencyHit = Metrics.histogram("websocket_auth_latency_ms", "cache=\"hit\"", "ms");
+		authLatencyMiss = Metrics.histogram("websocket_auth_latency_ms", "cache=\"miss\"", "ms");
+		startTime = System.currentTimeMillis();
+		allLinked = false;
+		webSocketServer = WebSocketFactory.server(new InetSocketAddress(url, port), authentication);
 		webSocketServer.registerWebSocketConnection(this::onNewConnection);
 		webSocketServer.start();
 	}
 
 	private void onNewConnection(WebSocketServerImpl wssi) {
+		// The admission of the authentication is done by CachedTokenAuthentication
+		opened.put(wssi, System.nanoTime());
 		wssi.registerWebSocketAuthentication(() -> {
+			Long openTime = opened.remove(wssi);
 			Object obj = wssi.get(WebSocketTokenAuthentication.TOKEN);
 			String id = obj == null ? null : obj.toString();
 			if (id == null || "".equalsIgnoreCase(id.trim())) {
@@ -72,6 +103,12 @@ public class WebSocketManager {
 				wssi.disconnect(CloseFrame.NORMAL, "Id doesn't exist");
 				return;
 			}
+			// The token of a server that reconnects is in the cache
+			boolean cached = authentication.onAuthenticated(wssi, id);
+			if (openTime != null) {
+				long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openTime);
+				(cached ? authLatencyHit : authLatencyMiss).record(latency);
+			}
 			Server srv = Main.get().getServerManager().getServer(id);
 			if (srv != null) {
 				// This is a server that is running but that lost his connection
@@ -96,12 +133,24 @@ public class WebSocketManager {
 					wssi.disconnect(CloseFrame.NORMAL, "This id doesn't exist");
 					return;
 				}
+				Trace trace = Main.get().getServerManager().getTraces().get(id);
+				if (trace != null) {
+					// The connection is opened once the JVM has booted
+					long now = System.currentTimeMillis();
+					long open = openTime == null ? now
+							: now - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openTime);
+					trace.span("boot", srv.getScriptTime(), open);
+					trace.span("auth", open, now);
+				}
 				// A connection should not exists so we don't have to check for it
 				Main.get().getServerManager().loadServer(srv, wssi);
 				links.put(wssi, srv);
 			}
+			checkAllLinked();
 		});
 		wssi.registerWebSocketDisconnection(remote -> {
+			opened.remove(wssi);
+			authentication.onDisconnected(wssi);
 			links.remove(wssi);
 			Object obj = wssi.get(WebSocketTokenAuthentication.TOKEN);
 			if (obj == null)
@@ -114,11 +163,25 @@ public class WebSocketManager {
 		});
 	}
 
+	/**
+	 * Log the time needed to link all servers of this VPS after a start of the
+	 * ServerManager
+	 */
+	private void checkAllLinked() {
+		if (allLinked || !Main.get().getServerManager().isAllLinked())
+			return;
+		allLinked = true;
+		LOG.info("All servers linked in {} ms (admitted = {}, shed = {}, expired = {})",
+				System.currentTimeMillis() - startTime, admission.getAdmitted(), admission.getShed(),
+				admission.getExpired());
+	}
+
 	public Server get(WebSocketServerImpl wssi) {
 		return links.get(wssi);
 	}
 
 	public void stop() {
+		admission.stop();
 		for (WebSocketServerImpl wssi : links.keySet())
 			wssi.closeAll();
 		try {
@@ -0,0 +1,70 @@
+package com.froxynetwork.servermanager.websocket.commands;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.froxynetwork.network.websocket.IWebSocketCommander;
+import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.server.Server;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class BestCommand implements IWebSocketCommander {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	private Server server;
+
+	public BestCommand(Server server) {
+		this.server = server;
+	}
+
+	@Override
+	public String name() {
+		return "best";
+	}
+
+	@Override
+	public String description() {
+		return "Get the server of a type where a player should be sent";
+	}
+
+	@Override
+	public void onReceive(String message) {
+		// best <requestId> <type>
+		if (message == null)
+			return;
+		String[] split = message.split(" ");
+		if (split.length != 2) {
+			LOG.error("Invalid message: {}", message);
+			return;
+		}
+		Server srv = Main.get().getServerManager().getPlacement().best(split[1]);
+		if (srv == null)
+			server.send("best", split[0] + " -");
+		else
+			server.send("best", split[0] + " " + srv.getId() + " " + srv.getPort());
+	}
+}
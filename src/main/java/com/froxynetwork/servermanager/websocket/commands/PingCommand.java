@@ -0,0 +1,58 @@
+package com.froxynetwork.servermanager.websocket.commands;
+
+import java.util.function.Consumer;
+
+import com.froxynetwork.froxynetwork.network.websocket.IWebSocketCommander;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class PingCommand implements IWebSocketCommander {
+
+	private Consumer<String> pong;
+
+	/**
+	 * @param pong The action that sends the "pong" command with given message
+	 */
+	public PingCommand(Consumer<String> pong) {
+		this.pong = pong;
+	}
+
+	@Override
+	public String name() {
+		return "ping";
+	}
+
+	@Override
+	public String description() {
+		return "Heartbeat request";
+	}
+
+	@Override
+	public void onReceive(String message) {
+		// ping <data>
+		pong.accept(message);
+	}
+}
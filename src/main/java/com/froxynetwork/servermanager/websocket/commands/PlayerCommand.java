@@ -0,0 +1,130 @@
+package com.froxynetwork.servermanager.websocket.commands;
+
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.froxynetwork.network.output.Callback;
+import com.froxynetwork.froxynetwork.network.output.RestException;
+import com.froxynetwork.froxynetwork.network.output.data.PlayerDataOutput;
+import com.froxynetwork.froxynetwork.network.websocket.IWebSocketCommander;
+import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.metrics.RestMetrics;
+import com.froxynetwork.servermanager.player.Player;
+import com.froxynetwork.servermanager.player.PlayerManager;
+import com.froxynetwork.servermanager.server.Server;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class PlayerCommand implements IWebSocketCommander {
+	private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+	private Server server;
+
+	public PlayerCommand(Server server) {
+		this.server = server;
+	}
+
+	@Override
+	public String name() {
+		return "player";
+	}
+
+	@Override
+	public String description() {
+		return "A player joined or left a server, or its data changed";
+	}
+
+	@Override
+	public void onReceive(String message) {
+		// player <join|quit> <uuid>
+		// player edit <uuid> <field> <value>
+		if (message == null)
+			return;
+		String[] split = message.split(" ", 4);
+		if (split.length != ("edit".equals(split[0]) ? 4 : 2)) {
+			LOG.error("Invalid message from server {}: {}", server.getId(), message);
+			return;
+		}
+		UUID uuid;
+		try {
+			uuid = UUID.fromString(split[1]);
+		} catch (IllegalArgumentException ex) {
+			LOG.error("Invalid uuid from server {}: {}", server.getId(), split[1]);
+			return;
+		}
+		PlayerManager pm = Main.get().getPlayerManager();
+		switch (split[0]) {
+		case "join":
+			if (!pm.movePlayer(uuid, server.getId()))
+				load(uuid);
+			break;
+		case "quit":
+			if (server.isBungee()) {
+				// Left the network
+				pm.removePlayer(uuid);
+				return;
+			}
+			Player p = pm.getPlayer(uuid);
+			// Only if the player didn't already join another server
+			if (p != null && server.getId().equals(p.getServerId()))
+				pm.movePlayer(uuid, null);
+			break;
+		case "edit":
+			if (!pm.editData(uuid, split[2], split[3]))
+				LOG.error("Invalid edit of player {} from server {}: {}", uuid, server.getId(), message);
+			break;
+		default:
+			LOG.error("Invalid action from server {}: {}", server.getId(), split[0]);
+		}
+	}
+
+	private void load(UUID uuid) {
+		Main.get().getNetworkManager().getNetwork().getPlayerService().asyncGetPlayer(uuid.toString(),
+				RestMetrics.wrap("player_get", new Callback<PlayerDataOutput.Player>() {
+
+					@Override
+					public void onResponse(PlayerDataOutput.Player response) {
+						Player p = Main.get().getPlayerManager().addPlayer(response);
+						// The REST server may not know yet that the player is on this server
+						Main.get().getPlayerManager().movePlayer(p.getUuid(), server.getId());
+					}
+
+					@Override
+					public void onFailure(RestException ex) {
+						LOG.error("Error while loading player {}", uuid);
+						LOG.error("", ex);
+					}
+
+					@Override
+					public void onFatalFailure(Throwable t) {
+						LOG.error("Fatal error while loading player {}", uuid);
+						LOG.error("", t);
+					}
+				}));
+	}
+}
@@ -7,7 +7,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.froxynetwork.froxynetwork.network.websocket.IWebSocketCommander;
-import com.froxynetwork.froxynetwork.network.websocket.WebSocketClientImpl;
 import com.froxynetwork.servermanager.Main;
 import com.froxynetwork.servermanager.scheduler.Scheduler;
 
@@ -41,12 +40,6 @@ public class ServerStartCommand implements IWebSocketCommander {
 
 	private static final Pattern space = Pattern.compile(" ");
 
-	private WebSocketClientImpl webSocket;
-
-	public ServerStartCommand(WebSocketClientImpl webSocket) {
-		this.webSocket = webSocket;
-	}
-
 	@Override
 	public String name() {
 		return "start";
@@ -59,45 +52,67 @@ public class ServerStartCommand implements IWebSocketCommander {
 
 	@Override
 	public void onReceive(String message) {
-		// start <uuid> <type>
-		if (message == null)
+		// start <uuid> <type> [timeout]
+		Args args = parse(message);
+		if (args == null)
 			return;
+		UUID uuid = args.uuid;
+		String type = args.type;
+		long timeout = args.timeout;
+		// Types, quotas and resources are checked by the admission control of the
+		// ServerManager
+		Main.get().getServerManager().openServer(type, uuid, timeout, reason -> {
+			LOG.error("Error while opening server {} (uuid = {}): {}", type, uuid.toString(), reason);
+			Scheduler.add(() -> {
+				return Main.get().getServerManager().sendToCore("error", uuid.toString() + " " + reason);
+			}, () -> {
+				LOG.error("Error while sending error command !");
+			});
+		});
+	}
+
+	/**
+	 * Parse a "start" command
+	 * 
+	 * @param message The message (<uuid> <type> [timeout])
+	 * @return The arguments, or null if the message is invalid
+	 */
+	Args parse(String message) {
+		if (message == null)
+			return null;
 		String[] args = space.split(message);
-		if (args.length != 2) {
+		if (args.length != 2 && args.length != 3) {
 			LOG.warn("Invalid \"start\" command ! Got {}", message);
-			return;
+			return null;
 		}
-		final UUID uuid;
+		UUID uuid;
 		try {
 			uuid = UUID.fromString(args[0]);
 		} catch (Exception ex) {
 			LOG.warn("{} is not a valid uuid", message);
-			return;
+			return null;
 		}
-		String type = args[1];
-		// Check type
-		if (!"BUNGEE".equalsIgnoreCase(type) && !Main.get().getServerConfigManager().exist(type)) {
-			LOG.error("Type {} does not exist !");
-			Scheduler.add(() -> {
-				if (!webSocket.isAuthenticated())
-					return false;
-				webSocket.sendCommand("error", uuid.toString());
-				return true;
-			}, () -> {
-				LOG.error("Error while sending error command !");
-			});
-			return;
+		long timeout = 0;
+		if (args.length == 3) {
+			try {
+				timeout = Long.parseLong(args[2]);
+			} catch (NumberFormatException ex) {
+				LOG.warn("{} is not a valid timeout", message);
+				return null;
+			}
+		}
+		return new Args(uuid, args[1], timeout);
+	}
+
+	static class Args {
+		final UUID uuid;
+		final String type;
+		final long timeout;
+
+		private Args(UUID uuid, String type, long timeout) {
+			this.uuid = uuid;
+			this.type = type;
+			this.timeout = timeout;
 		}
-		Main.get().getServerManager().openServer(type, uuid, () -> {
-			LOG.error("Error while opening server {} (uuid = {})", type, uuid.toString());
-			Scheduler.add(() -> {
-				if (!webSocket.isAuthenticated())
-					return false;
-				webSocket.sendCommand("error", uuid.toString());
-				return true;
-			}, () -> {
-				LOG.error("Error while sending error command !");
-			});
-		});
 	}
 }
@@ -54,7 +54,7 @@ public class ServerStopCommand implements IWebSocketCommander {
 			LOG.warn("Invalid \"stop\" command ! Got {}", message);
 			return;
 		}
-		Main.get().getServerManager().closeServer(message, () -> {
+		Main.get().getServerManager().drainServer(message, () -> {
 			LOG.error("Error while stoping server {}", message);
 		});
 	}
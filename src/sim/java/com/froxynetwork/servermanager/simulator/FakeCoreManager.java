@@ -0,0 +1,242 @@
+package com.froxynetwork.servermanager.simulator;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class FakeCoreManager extends WebSocketServer {
+	private static final Logger LOG = LoggerFactory.getLogger(FakeCoreManager.class);
+
+	private long lifetime;
+	private ScheduledExecutorService stopper;
+	private volatile WebSocket link;
+	@Getter
+	private CountDownLatch linked;
+	/**
+	 * uuid => time (System.nanoTime()) of the "start" request
+	 */
+	private ConcurrentHashMap<String, Long> starts;
+	/**
+	 * Start to register latencies (in ns)
+	 */
+	private List<Long> latencies;
+	@Getter
+	private LongAdder sent;
+	@Getter
+	private LongAdder stopped;
+	/**
+	 * Called with (uuid, id) for each "register"
+	 */
+	@Setter
+	private BiConsumer<String, String> onRegister;
+	/**
+	 * true to stop servers after their lifetime
+	 */
+	@Setter
+	private boolean autoStop = true;
+	/**
+	 * reason => number of errors
+	 */
+	private ConcurrentHashMap<String, LongAdder> errors;
+
+	/**
+	 * @param port     The port the ServerManager connects to
+	 * @param lifetime The time (in ms) a server runs before being stopped
+	 */
+	public FakeCoreManager(int port, long lifetime) {
+		super(new InetSocketAddress("127.0.0.1", port));
+		this.lifetime = lifetime;
+		this.stopper = Executors.newSingleThreadScheduledExecutor();
+		this.linked = new CountDownLatch(1);
+		this.starts = new ConcurrentHashMap<>();
+		this.latencies = new ArrayList<>();
+		this.sent = new LongAdder();
+		this.stopped = new LongAdder();
+		this.errors = new ConcurrentHashMap<>();
+		setReuseAddr(true);
+	}
+
+	/**
+	 * Ask the ServerManager to start a server
+	 * 
+	 * @param type    The type
+	 * @param timeout The timeout (in ms) of the request
+	 * @return false if the ServerManager is not linked
+	 */
+	public boolean start(String type, long timeout) {
+		return start(UUID.randomUUID().toString(), type + " " + timeout);
+	}
+
+	/**
+	 * Ask the ServerManager to start a server
+	 * 
+	 * @param uuid The uuid of the request
+	 * @param args The arguments after the uuid (&lt;type&gt; [timeout])
+	 * @return false if the ServerManager is not linked
+	 */
+	public boolean start(String uuid, String args) {
+		WebSocket ws = link;
+		if (ws == null || !ws.isOpen())
+			return false;
+		starts.put(uuid, System.nanoTime());
+		sent.increment();
+		ws.send("start " + uuid + " " + args);
+		return true;
+	}
+
+	/**
+	 * Send a command to the ServerManager
+	 * 
+	 * @return false if the ServerManager is not linked
+	 */
+	public boolean send(String channel, String message) {
+		WebSocket ws = link;
+		if (ws == null || !ws.isOpen())
+			return false;
+		ws.send(message == null ? channel : channel + " " + message);
+		return true;
+	}
+
+	@Override
+	public void onOpen(WebSocket conn, ClientHandshake handshake) {
+		LOG.info("ServerManager connected from {}", conn.getRemoteSocketAddress());
+	}
+
+	@Override
+	public void onMessage(WebSocket conn, String message) {
+		int i = message.indexOf(' ');
+		String channel = i == -1 ? message : message.substring(0, i);
+		String msg = i == -1 ? "" : message.substring(i + 1);
+		String[] split = msg.split(" ");
+		switch (channel) {
+		case "auth":
+			// auth <id> <token>
+			link = conn;
+			conn.send("auth");
+			linked.countDown();
+			break;
+		case "ping":
+			conn.send("pong " + msg);
+			break;
+		case "register":
+			// register <uuid> <id>
+			Long start = split.length == 2 ? starts.remove(split[0]) : null;
+			if (start == null)
+				return;
+			synchronized (latencies) {
+				latencies.add(System.nanoTime() - start);
+			}
+			String id = split[1];
+			if (onRegister != null)
+				onRegister.accept(split[0], id);
+			if (!autoStop)
+				return;
+			stopper.schedule(() -> {
+				if (conn.isOpen()) {
+					conn.send("stop " + id);
+					stopped.increment();
+				}
+			}, lifetime, TimeUnit.MILLISECONDS);
+			break;
+		case "error":
+			// error <uuid> <reason>
+			if (split.length != 2)
+				return;
+			starts.remove(split[0]);
+			errors.computeIfAbsent(split[1], r -> new LongAdder()).increment();
+			break;
+		default:
+			// sync, syncdelta, unregister, pong, ...
+		}
+	}
+
+	@Override
+	public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+		if (conn == link) {
+			LOG.warn("ServerManager disconnected ({} {})", code, reason);
+			link = null;
+		}
+	}
+
+	@Override
+	public void onError(WebSocket conn, Exception ex) {
+		LOG.error("Error in fake CoreManager: ", ex);
+	}
+
+	@Override
+	public void onStart() {
+		LOG.info("Fake CoreManager listening on {}", getAddress());
+	}
+
+	/**
+	 * @return Start to register latencies (in ns), sorted
+	 */
+	public long[] getLatencies() {
+		synchronized (latencies) {
+			return latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+		}
+	}
+
+	/**
+	 * @return The number of start requests without answer
+	 */
+	public int getPending() {
+		return starts.size();
+	}
+
+	public long getErrorCount() {
+		return errors.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+
+	public Map<String, LongAdder> getErrorsByReason() {
+		return errors;
+	}
+
+	public void shutdown() throws InterruptedException {
+		stopper.shutdownNow();
+		stop(1000);
+	}
+}
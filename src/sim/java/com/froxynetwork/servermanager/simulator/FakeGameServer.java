@@ -0,0 +1,92 @@
+package com.froxynetwork.servermanager.simulator;
+
+import java.net.URI;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class FakeGameServer extends WebSocketClient {
+	private static final Logger LOG = LoggerFactory.getLogger(FakeGameServer.class);
+
+	private String id;
+	private String token;
+	private boolean authenticated;
+	private LongAdder linked;
+	private LongAdder rejected;
+
+	/**
+	 * A game server that only authenticates and answers to the heartbeat
+	 * 
+	 * @param uri      The uri of the WebSocket of the ServerManager
+	 * @param id       The id of the server
+	 * @param token    The token of the server
+	 * @param linked   Incremented once authenticated
+	 * @param rejected Incremented if the connection is closed before being
+	 *                 authenticated
+	 */
+	public FakeGameServer(URI uri, String id, String token, LongAdder linked, LongAdder rejected) {
+		super(uri);
+		this.id = id;
+		this.token = token;
+		this.linked = linked;
+		this.rejected = rejected;
+	}
+
+	@Override
+	public void onOpen(ServerHandshake handshake) {
+		// auth <id> <token>
+		send("auth " + id + " " + token);
+	}
+
+	@Override
+	public void onMessage(String message) {
+		if (!authenticated && ("auth".equals(message) || message.startsWith("auth "))) {
+			authenticated = true;
+			linked.increment();
+		} else if (message.startsWith("ping "))
+			send("pong " + message.substring(5));
+		else if ("stop".equals(message) || message.startsWith("stop "))
+			close();
+	}
+
+	@Override
+	public void onClose(int code, String reason, boolean remote) {
+		if (!authenticated) {
+			rejected.increment();
+			LOG.debug("Server {} rejected: {} {}", id, code, reason);
+		}
+	}
+
+	@Override
+	public void onError(Exception ex) {
+		LOG.debug("Server {}: {}", id, ex.getMessage());
+	}
+}
@@ -0,0 +1,243 @@
+package com.froxynetwork.servermanager.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class FakeRestServer {
+	private static final Logger LOG = LoggerFactory.getLogger(FakeRestServer.class);
+	private static final Pattern TYPE = Pattern.compile("\"?type\"?\\s*[:=]\\s*\"?([A-Za-z0-9_]+)");
+	private static final Pattern PORT = Pattern.compile("\"?port\"?\\s*[:=]\\s*\"?([0-9]+)");
+	private static final String UUID = "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}";
+
+	private HttpServer http;
+	private String vps;
+	private List<String> types;
+	private int maxServers;
+	/**
+	 * Called with (id, token) each time a server is created
+	 */
+	private BiConsumer<String, String> onCreate;
+	private AtomicInteger ids;
+	private Map<String, String> servers;
+	/**
+	 * "METHOD /path" => number of requests
+	 */
+	private ConcurrentHashMap<String, LongAdder> requests;
+	private LongAdder unknown;
+	private Set<String> unknownRoutes;
+
+	/**
+	 * @param port       The port of the REST server
+	 * @param vps        The id of the simulated VPS
+	 * @param types      The types of servers
+	 * @param maxServers The max number of servers of the VPS
+	 * @param onCreate   Called with (id, token) each time a server is created
+	 */
+	public FakeRestServer(int port, String vps, List<String> types, int maxServers,
+			BiConsumer<String, String> onCreate) throws IOException {
+		this.vps = vps;
+		this.types = types;
+		this.maxServers = maxServers;
+		this.onCreate = onCreate;
+		this.ids = new AtomicInteger();
+		this.servers = new ConcurrentHashMap<>();
+		this.requests = new ConcurrentHashMap<>();
+		this.unknown = new LongAdder();
+		this.unknownRoutes = ConcurrentHashMap.newKeySet();
+		http = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+		http.createContext("/", this::handle);
+		http.setExecutor(Executors.newFixedThreadPool(8));
+	}
+
+	public void start() {
+		http.start();
+		LOG.info("Fake REST server listening on {}", http.getAddress());
+	}
+
+	public void stop() {
+		http.stop(0);
+	}
+
+	/**
+	 * Routes used by the NetworkManager: oauth, serverconfig, server (GET, POST,
+	 * DELETE) and player (GET, PUT). Unknown routes answer 404 and are counted so
+	 * the simulator fails when the client uses a route that isn't simulated
+	 */
+	private void handle(HttpExchange ex) throws IOException {
+		String method = ex.getRequestMethod();
+		String path = ex.getRequestURI().getPath().replaceAll("/+$", "");
+		String body = read(ex.getRequestBody());
+		String route = method + " "
+				+ path.replaceAll("/[A-Za-z]+_[0-9]+$", "/{id}").replaceAll("/" + UUID + "$", "/{uuid}");
+		requests.computeIfAbsent(route, r -> new LongAdder()).increment();
+		try {
+			if (path.startsWith("/oauth")) {
+				// Token creation and token check. The token of a simulated server is
+				// "SIM|<id>"
+				String token = query(ex, "token");
+				String clientId = token != null && token.startsWith("SIM|") ? token.substring(4) : vps;
+				send(ex, 200, "{\"access_token\":\"SIM|" + vps + "\",\"token_type\":\"Bearer\",\"expires_in\":3600,"
+						+ "\"client_id\":\"" + clientId + "\",\"error\":false,\"code\":200,\"data\":{\"client_id\":\""
+						+ clientId + "\",\"id\":\"" + clientId + "\"}}");
+			} else if (path.endsWith("/serverconfig")) {
+				ok(ex, serverConfig());
+			} else if (path.endsWith("/server") && "GET".equals(method)) {
+				// No server is running when the simulation starts
+				ok(ex, "{\"size\":0,\"servers\":[]}");
+			} else if (path.endsWith("/server") && "POST".equals(method)) {
+				ok(ex, create(body));
+			} else if (path.matches(".*/server/[A-Za-z]+_[0-9]+") && "DELETE".equals(method)) {
+				servers.remove(path.substring(path.lastIndexOf('/') + 1));
+				ok(ex, "{}");
+			} else if (path.matches(".*/player/" + UUID) && ("GET".equals(method) || "PUT".equals(method))) {
+				// Players are not stored, edits are only counted
+				ok(ex, player(path.substring(path.lastIndexOf('/') + 1)));
+			} else {
+				unknown.increment();
+				unknownRoutes.add(route);
+				LOG.debug("Unknown route {} ({})", route, body);
+				send(ex, 404, "{\"error\":true,\"code\":404,\"error_message\":\"Not found\"}");
+			}
+		} catch (Exception e) {
+			LOG.error("Error in fake REST server: ", e);
+			send(ex, 500, "{\"error\":true,\"code\":500,\"error_message\":\"" + e.getMessage() + "\"}");
+		}
+	}
+
+	private String create(String body) {
+		Matcher mType = TYPE.matcher(body);
+		Matcher mPort = PORT.matcher(body);
+		String type = mType.find() ? mType.group(1) : "UNKNOWN";
+		int port = mPort.find() ? Integer.parseInt(mPort.group(1)) : 0;
+		String id = type.toUpperCase() + "_" + ids.incrementAndGet();
+		String token = "SIM|" + id;
+		servers.put(id, type);
+		String date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+		onCreate.accept(id, token);
+		return "{\"id\":\"" + id + "\",\"name\":\"" + id + "\",\"type\":\"" + type + "\",\"port\":" + port
+				+ ",\"status\":\"WAITING\",\"creationTime\":\"" + date + "\",\"vps\":\"" + vps + "\","
+				+ "\"auth\":{\"client_id\":\"" + id + "\",\"client_secret\":\"" + token + "\"}}";
+	}
+
+	private String player(String uuid) {
+		String date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+		String nickname = "Sim_" + uuid.substring(0, 8);
+		return "{\"uuid\":\"" + uuid + "\",\"nickname\":\"" + nickname + "\",\"displayName\":\"" + nickname
+				+ "\",\"coins\":0,\"level\":1,\"exp\":0,\"firstLogin\":\"" + date + "\",\"lastLogin\":\"" + date
+				+ "\",\"ip\":\"127.0.0.1\",\"lang\":\"fr_FR\",\"server\":null}";
+	}
+
+	private String serverConfig() {
+		StringBuilder sb = new StringBuilder("{\"types\":[");
+		for (int i = 0; i < types.size(); i++)
+			sb.append(i == 0 ? "" : ",").append("{\"id\":\"").append(types.get(i)).append("\",\"database\":[\"")
+					.append(types.get(i).toLowerCase()).append("\"],\"variants\":[],\"min\":0,\"max\":")
+					.append(maxServers).append("}");
+		sb.append("],\"vps\":[{\"id\":\"").append(vps).append("\",\"maxServers\":").append(maxServers)
+				.append(",\"config\":[");
+		for (int i = 0; i < types.size(); i++)
+			sb.append(i == 0 ? "" : ",").append("{\"type\":\"").append(types.get(i)).append("\",\"min\":0,\"max\":")
+					.append(maxServers).append("}");
+		return sb.append("]}]}").toString();
+	}
+
+	private void ok(HttpExchange ex, String data) throws IOException {
+		send(ex, 200, "{\"error\":false,\"code\":200,\"data\":" + data + "}");
+	}
+
+	private void send(HttpExchange ex, int code, String json) throws IOException {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		ex.getResponseHeaders().add("Content-Type", "application/json");
+		ex.sendResponseHeaders(code, bytes.length);
+		try (OutputStream os = ex.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+
+	private static String query(HttpExchange ex, String key) throws IOException {
+		String q = ex.getRequestURI().getRawQuery();
+		if (q == null)
+			return null;
+		for (String kv : q.split("&")) {
+			int i = kv.indexOf('=');
+			if (i != -1 && kv.substring(0, i).equals(key))
+				return URLDecoder.decode(kv.substring(i + 1), "UTF-8");
+		}
+		return null;
+	}
+
+	private static String read(InputStream is) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int n;
+		while ((n = is.read(buf)) != -1)
+			out.write(buf, 0, n);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return "METHOD /path" => number of requests
+	 */
+	public Map<String, LongAdder> getRequests() {
+		return requests;
+	}
+
+	public long getUnknown() {
+		return unknown.sum();
+	}
+
+	/**
+	 * @return The routes that answered 404 ("METHOD /path")
+	 */
+	public Set<String> getUnknownRoutes() {
+		return unknownRoutes;
+	}
+}
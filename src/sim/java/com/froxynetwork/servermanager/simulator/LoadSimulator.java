@@ -0,0 +1,249 @@
+package com.froxynetwork.servermanager.simulator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.servermanager.Main;
+import com.froxynetwork.servermanager.metrics.Histogram;
+import com.froxynetwork.servermanager.metrics.Metrics;
+
+import lombok.Getter;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class LoadSimulator {
+	private static final Logger LOG = LoggerFactory.getLogger(LoadSimulator.class);
+
+	private static final String VPS = "VPS_SIM";
+	private static final int REST_PORT = 38080;
+	private static final int CORE_PORT = 35566;
+	private static final int WEBSOCKET_PORT = 45566;
+	private static final int LOW_PORT = 30000;
+	private static final int HIGH_PORT = 30999;
+
+	private int rate;
+	private int duration;
+	private List<String> types;
+	private long lifetime;
+	private long boot;
+	@Getter
+	private FakeRestServer rest;
+	@Getter
+	private FakeCoreManager core;
+	/**
+	 * id => fake game server
+	 */
+	private ConcurrentHashMap<String, FakeGameServer> gameServers;
+	private ScheduledExecutorService scheduler;
+	private LongAdder linked;
+	private LongAdder rejected;
+
+	/**
+	 * @param rate     Number of start requests per second
+	 * @param duration Duration (in seconds) of the load
+	 * @param types    Types of servers (requests are spread over them)
+	 * @param lifetime Time (in ms) a server runs before being stopped
+	 * @param boot     Time (in ms) a fake game server takes to boot
+	 */
+	public LoadSimulator(int rate, int duration, List<String> types, long lifetime, long boot) {
+		this.rate = rate;
+		this.duration = duration;
+		this.types = types;
+		this.lifetime = lifetime;
+		this.boot = boot;
+		this.scheduler = Executors.newScheduledThreadPool(4);
+		this.linked = new LongAdder();
+		this.rejected = new LongAdder();
+		this.gameServers = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Start the fake REST server, the fake CoreManager and the ServerManager, and
+	 * wait until the ServerManager is linked with the fake CoreManager
+	 * 
+	 * @return false if the ServerManager didn't connect after 60 seconds
+	 */
+	public boolean boot() throws Exception {
+		URI uri = new URI("ws://127.0.0.1:" + WEBSOCKET_PORT);
+		rest = new FakeRestServer(REST_PORT, VPS, types, Math.max(1, HIGH_PORT - LOW_PORT + 1), (id, token) -> {
+			// The start script is "true", the fake game server "boots" here
+			scheduler.schedule(() -> {
+				FakeGameServer srv = new FakeGameServer(uri, id, token, linked, rejected);
+				gameServers.put(id, srv);
+				srv.connect();
+			}, boot, TimeUnit.MILLISECONDS);
+		});
+		rest.start();
+		core = new FakeCoreManager(CORE_PORT, lifetime);
+		core.start();
+
+		new Main(new String[] { writeConfig().getAbsolutePath() });
+		if (!core.getLinked().await(60, TimeUnit.SECONDS)) {
+			LOG.error("The ServerManager didn't connect to the fake CoreManager after 60 seconds");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param id The id of the server
+	 * @return The fake game server, or null
+	 */
+	public FakeGameServer getGameServer(String id) {
+		return gameServers.get(id);
+	}
+
+	public void run() throws Exception {
+		if (!boot())
+			return;
+		LOG.info("Sending {} start requests per second during {} seconds", rate, duration);
+		long start = System.nanoTime();
+		long total = (long) rate * duration;
+		long[] i = { 0 };
+		long period = Math.max(1, 1_000_000_000L / Math.max(1, rate));
+		scheduler.scheduleAtFixedRate(() -> {
+			if (i[0] < total && core.start(types.get((int) (i[0] % types.size())), 60000))
+				i[0]++;
+		}, 0, period, TimeUnit.NANOSECONDS);
+
+		// Wait for the load, then for pending requests
+		Thread.sleep(duration * 1000L);
+		long deadline = System.currentTimeMillis() + 60000;
+		while (core.getPending() > 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(500);
+		long elapsed = System.nanoTime() - start;
+		report(elapsed);
+	}
+
+	private File writeConfig() throws IOException {
+		File dir = new File(System.getProperty("java.io.tmpdir"), "servermanager-sim");
+		dir.mkdirs();
+		Properties p = new Properties();
+		p.setProperty("id", VPS);
+		p.setProperty("ip", "127.0.0.1");
+		p.setProperty("url", "http://127.0.0.1:" + REST_PORT + "/");
+		p.setProperty("client_secret", "SIM_SECRET");
+		p.setProperty("low_port", Integer.toString(LOW_PORT));
+		p.setProperty("high_port", Integer.toString(HIGH_PORT));
+		p.setProperty("bungee_port", "29999");
+		p.setProperty("script_start", "true {type} {id} {secret} {port}");
+		p.setProperty("script_stop", "true {id}");
+		p.setProperty("start_min_memory", "0");
+		p.setProperty("start_min_disk", "0");
+		p.setProperty("start_disk_path", dir.getAbsolutePath());
+		p.setProperty("start_lobby_types", "");
+		p.setProperty("autoscale_interval", "0");
+		p.setProperty("drain_timeout", "0");
+		// Fake game servers have no process
+		p.setProperty("sampler_interval", "0");
+		p.setProperty("websocket_port", Integer.toString(WEBSOCKET_PORT));
+		p.setProperty("websocket_core", "ws://127.0.0.1:" + CORE_PORT);
+		File file = new File(dir, "config.properties");
+		try (OutputStream os = new FileOutputStream(file)) {
+			p.store(os, "Generated by LoadSimulator");
+		}
+		return file;
+	}
+
+	public void report(long elapsed) {
+		long[] latencies = core.getLatencies();
+		long sent = core.getSent().sum();
+		long errors = core.getErrorCount();
+		double seconds = elapsed / 1_000_000_000D;
+		LOG.info("===== Report =====");
+		LOG.info("Duration: {} s", String.format("%.1f", seconds));
+		LOG.info("Start requests: {}, registered: {}, errors: {} ({}%), no answer: {}", sent, latencies.length,
+				errors, sent == 0 ? 0 : String.format("%.2f", errors * 100D / sent), core.getPending());
+		for (Map.Entry<String, LongAdder> e : new TreeMap<>(core.getErrorsByReason()).entrySet())
+			LOG.info("- error {}: {}", e.getKey(), e.getValue().sum());
+		LOG.info("Throughput: {} registered/s", String.format("%.2f", latencies.length / seconds));
+		if (latencies.length > 0)
+			LOG.info("Start to register: p50 = {} ms, p90 = {} ms, p99 = {} ms, max = {} ms",
+					percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+					percentile(latencies, 1));
+		LOG.info("Game servers linked: {}, rejected: {}, stopped: {}", linked.sum(), rejected.sum(),
+				core.getStopped().sum());
+		LOG.info("REST requests:");
+		for (Map.Entry<String, LongAdder> e : new TreeMap<>(rest.getRequests()).entrySet())
+			LOG.info("- {}: {}", e.getKey(), e.getValue().sum());
+		if (rest.getUnknown() > 0)
+			LOG.warn("{} requests on unknown REST routes: {}", rest.getUnknown(), rest.getUnknownRoutes());
+		LOG.info("ServerManager histograms:");
+		for (Histogram h : Metrics.getHistograms())
+			if (h.getCount() > 0)
+				LOG.info("- {}", h);
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+	}
+
+	/**
+	 * Run a ServerManager against a fake REST API, a fake CoreManager and fake
+	 * game servers, all on this machine.<br />
+	 * Usage: LoadSimulator &lt;rate&gt; &lt;durationSec&gt; [types] [lifetimeMs]
+	 * [bootMs]<br />
+	 * types is a list of types separated by a comma (default: Koth)
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			LOG.error("Usage: LoadSimulator <rate> <durationSec> [types] [lifetimeMs] [bootMs]");
+			System.exit(1);
+			return;
+		}
+		int rate = Integer.parseInt(args[0]);
+		int duration = Integer.parseInt(args[1]);
+		List<String> types = Arrays.asList((args.length >= 3 ? args[2] : "Koth").split(","));
+		long lifetime = args.length >= 4 ? Long.parseLong(args[3]) : 30000;
+		long boot = args.length >= 5 ? Long.parseLong(args[4]) : 2000;
+		int status = 1;
+		try {
+			LoadSimulator sim = new LoadSimulator(rate, duration, types, lifetime, boot);
+			sim.run();
+			// The client used a route the fake REST server doesn't know
+			status = sim.rest.getUnknown() > 0 ? 2 : 0;
+		} finally {
+			System.exit(status);
+		}
+	}
+}
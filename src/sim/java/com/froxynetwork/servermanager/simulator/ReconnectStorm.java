@@ -0,0 +1,182 @@
+package com.froxynetwork.servermanager.simulator;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class ReconnectStorm {
+	private static final Logger LOG = LoggerFactory.getLogger(ReconnectStorm.class);
+
+	private URI uri;
+	private List<String[]> credentials;
+	private long timeout;
+	private Timer timer;
+	private CountDownLatch linked;
+	private AtomicLong shed;
+	private AtomicLong rejected;
+	private long start;
+	/**
+	 * Client => time (System.nanoTime()) it has been linked, written by the
+	 * threads of the clients
+	 */
+	private AtomicLongArray linkTimes;
+
+	public ReconnectStorm(URI uri, List<String[]> credentials, long timeout) {
+		this.uri = uri;
+		this.credentials = credentials;
+		this.timeout = timeout;
+		this.timer = new Timer("ReconnectStorm-Retry", true);
+		this.linked = new CountDownLatch(credentials.size());
+		this.shed = new AtomicLong();
+		this.rejected = new AtomicLong();
+		this.linkTimes = new AtomicLongArray(credentials.size());
+	}
+
+	/**
+	 * Connect all clients at the same moment and wait until all are linked or
+	 * timeout is reached
+	 */
+	public void run() throws InterruptedException {
+		LOG.info("Starting reconnect storm with {} clients on {}", credentials.size(), uri);
+		start = System.nanoTime();
+		for (int i = 0; i < credentials.size(); i++)
+			connect(i);
+		boolean all = linked.await(timeout, TimeUnit.MILLISECONDS);
+		long end = System.nanoTime();
+		timer.cancel();
+
+		long[] times = new long[linkTimes.length()];
+		for (int i = 0; i < times.length; i++)
+			times[i] = linkTimes.get(i);
+		times = Arrays.stream(times).filter(t -> t > 0).sorted().toArray();
+		LOG.info("Linked: {} / {}, shed: {}, rejected: {}", times.length, credentials.size(), shed.get(),
+				rejected.get());
+		if (all)
+			LOG.info("Time to all linked: {} ms", TimeUnit.NANOSECONDS.toMillis(end - start));
+		else
+			LOG.info("Timeout reached after {} ms", TimeUnit.NANOSECONDS.toMillis(end - start));
+		if (times.length > 0)
+			LOG.info("Time to link: p50 = {} ms, p90 = {} ms, p99 = {} ms, max = {} ms", percentile(times, 0.5),
+					percentile(times, 0.9), percentile(times, 0.99), percentile(times, 1));
+	}
+
+	private long percentile(long[] sorted, double p) {
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)] - start);
+	}
+
+	private void connect(int i) {
+		String[] cred = credentials.get(i);
+		new WebSocketClient(uri) {
+
+			@Override
+			public void onOpen(ServerHandshake handshake) {
+				// auth <id> <token>
+				send("auth " + cred[0] + " " + cred[1]);
+			}
+
+			@Override
+			public void onMessage(String message) {
+				if (("auth".equals(message) || message.startsWith("auth "))
+						&& linkTimes.compareAndSet(i, 0, System.nanoTime()))
+					linked.countDown();
+			}
+
+			@Override
+			public void onClose(int code, String reason, boolean remote) {
+				if (linkTimes.get(i) != 0)
+					return;
+				if (reason != null && reason.contains("retry later"))
+					shed.incrementAndGet();
+				else
+					rejected.incrementAndGet();
+				// Retry like WebSocketAutoReconnectModule, with a bit of jitter
+				timer.schedule(new TimerTask() {
+
+					@Override
+					public void run() {
+						connect(i);
+					}
+				}, 1000 + (long) (Math.random() * 1000));
+			}
+
+			@Override
+			public void onError(Exception ex) {
+				LOG.debug("Client {}: {}", cred[0], ex.getMessage());
+			}
+		}.connect();
+	}
+
+	/**
+	 * Simulate a reconnect storm on the WebSocket server of a ServerManager.<br />
+	 * Usage: ReconnectStorm &lt;uri&gt; &lt;clients&gt; [credentialsFile]
+	 * [timeoutMs]<br />
+	 * credentialsFile contains one "&lt;id&gt; &lt;token&gt;" per line. If it is
+	 * not set, fake credentials are generated (they will be rejected by the token
+	 * authentication but still measure the admission layer)
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			LOG.error("Usage: ReconnectStorm <uri> <clients> [credentialsFile] [timeoutMs]");
+			System.exit(1);
+			return;
+		}
+		URI uri = new URI(args[0]);
+		int clients = Integer.parseInt(args[1]);
+		List<String[]> credentials = new ArrayList<>();
+		if (args.length >= 3 && !"-".equals(args[2])) {
+			for (String line : Files.readAllLines(new File(args[2]).toPath(), StandardCharsets.UTF_8)) {
+				String[] split = line.trim().split(" ");
+				if (split.length == 2)
+					credentials.add(split);
+				if (credentials.size() == clients)
+					break;
+			}
+		} else
+			for (int i = 0; i < clients; i++)
+				credentials.add(new String[] { "SIM_" + i, "SIM_TOKEN_" + i });
+		long timeout = args.length >= 4 ? Long.parseLong(args[3]) : 120000;
+		new ReconnectStorm(uri, credentials, timeout).run();
+		System.exit(0);
+	}
+}
@@ -0,0 +1,204 @@
+package com.froxynetwork.servermanager.simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.froxynetwork.servermanager.record.TrafficReader;
+import com.froxynetwork.servermanager.record.TrafficRecord;
+import com.froxynetwork.servermanager.record.TrafficRecorder;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class TrafficReplay {
+	private static final Logger LOG = LoggerFactory.getLogger(TrafficReplay.class);
+
+	private List<TrafficRecord> records;
+	private int speed;
+	/**
+	 * uuid of the start request => id of the server in the recording
+	 */
+	private Map<String, String> recordedIds;
+	/**
+	 * id of the server in the recording => id of the server in this replay
+	 */
+	private ConcurrentHashMap<String, String> ids;
+	/**
+	 * channel => number of replayed commands
+	 */
+	private ConcurrentHashMap<String, LongAdder> replayed;
+	/**
+	 * channel => number of skipped commands (unknown server)
+	 */
+	private ConcurrentHashMap<String, LongAdder> skipped;
+
+	/**
+	 * @param records The recorded commands, ordered by time
+	 * @param speed   The acceleration (2 = two times faster)
+	 */
+	public TrafficReplay(List<TrafficRecord> records, int speed) {
+		this.records = records;
+		this.speed = Math.max(1, speed);
+		this.recordedIds = new ConcurrentHashMap<>();
+		this.ids = new ConcurrentHashMap<>();
+		this.replayed = new ConcurrentHashMap<>();
+		this.skipped = new ConcurrentHashMap<>();
+		// The ServerManager answers "register <uuid> <id>" to "start <uuid> ..."
+		for (TrafficRecord r : records)
+			if (r.isOutbound() && TrafficRecorder.CORE.equals(r.getLink()) && "register".equals(r.getChannel())
+					&& r.getMessage() != null) {
+				String[] split = r.getMessage().split(" ");
+				if (split.length == 2)
+					recordedIds.put(split[0], split[1]);
+			}
+	}
+
+	public void run() throws Exception {
+		LoadSimulator sim = new LoadSimulator(0, 0, types(), 0, Math.max(1, 2000 / speed));
+		sim.getCore().setAutoStop(false);
+		if (!sim.boot())
+			return;
+		sim.getCore().setOnRegister((uuid, id) -> {
+			String old = recordedIds.get(uuid);
+			if (old != null)
+				ids.put(old, id);
+		});
+		LOG.info("Replaying {} commands at x{}", records.size(), speed);
+
+		long start = System.nanoTime();
+		for (TrafficRecord r : records) {
+			// Only replay what the ServerManager received, it sends the rest itself
+			if (r.isOutbound() || "ping".equals(r.getChannel()) || "pong".equals(r.getChannel()))
+				continue;
+			long wait = start + r.getNanos() / speed - System.nanoTime();
+			if (wait > 0)
+				TimeUnit.NANOSECONDS.sleep(wait);
+			if (replay(sim, r))
+				replayed.computeIfAbsent(r.getChannel(), c -> new LongAdder()).increment();
+			else
+				skipped.computeIfAbsent(r.getChannel(), c -> new LongAdder()).increment();
+		}
+
+		// Wait for pending requests
+		long deadline = System.currentTimeMillis() + 60000;
+		while (sim.getCore().getPending() > 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(500);
+		sim.report(System.nanoTime() - start);
+		LOG.info("Replayed commands:");
+		for (Map.Entry<String, LongAdder> e : new TreeMap<>(replayed).entrySet())
+			LOG.info("- {}: {}", e.getKey(), e.getValue().sum());
+		if (!skipped.isEmpty()) {
+			LOG.warn("Skipped commands (server not started in this replay):");
+			for (Map.Entry<String, LongAdder> e : new TreeMap<>(skipped).entrySet())
+				LOG.warn("- {}: {}", e.getKey(), e.getValue().sum());
+		}
+	}
+
+	private boolean replay(LoadSimulator sim, TrafficRecord r) {
+		String channel = r.getChannel();
+		String msg = r.getMessage();
+		if (TrafficRecorder.CORE.equals(r.getLink())) {
+			switch (channel) {
+			case "start":
+				// start <uuid> <type> [timeout]
+				int space = msg == null ? -1 : msg.indexOf(' ');
+				return space != -1 && sim.getCore().start(msg.substring(0, space), msg.substring(space + 1));
+			case "stop":
+				// stop <id>, the ids of this replay are not the recorded ones
+				String id = msg == null ? null : ids.get(msg.split(" ")[0]);
+				if (id == null)
+					return false;
+				int idx = msg.indexOf(' ');
+				return sim.getCore().send(channel, idx == -1 ? id : id + msg.substring(idx));
+			default:
+				return sim.getCore().send(channel, msg);
+			}
+		}
+		String id = ids.get(r.getLink());
+		FakeGameServer srv = id == null ? null : sim.getGameServer(id);
+		if (srv == null || !srv.isOpen())
+			return false;
+		srv.send(msg == null ? channel : channel + " " + msg);
+		return true;
+	}
+
+	/**
+	 * @return The types of servers requested in the recording
+	 */
+	private List<String> types() {
+		LinkedHashSet<String> types = new LinkedHashSet<>();
+		for (TrafficRecord r : records)
+			if (!r.isOutbound() && TrafficRecorder.CORE.equals(r.getLink()) && "start".equals(r.getChannel())
+					&& r.getMessage() != null) {
+				String[] split = r.getMessage().split(" ");
+				if (split.length >= 2)
+					types.add(split[1]);
+			}
+		if (types.isEmpty())
+			types.add("Koth");
+		return new ArrayList<>(types);
+	}
+
+	/**
+	 * Replay a recording (see record_file) against a ServerManager, a fake REST
+	 * API, a fake CoreManager and fake game servers, all on this machine.<br />
+	 * Usage: TrafficReplay &lt;recording&gt; [speed]<br />
+	 * speed is between 1 and 100 (default: 1)
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			LOG.error("Usage: TrafficReplay <recording> [speed]");
+			System.exit(1);
+			return;
+		}
+		int speed = args.length >= 2 ? Math.min(100, Math.max(1, Integer.parseInt(args[1]))) : 1;
+		List<TrafficRecord> records = new ArrayList<>();
+		try (TrafficReader reader = new TrafficReader(new File(args[0]))) {
+			TrafficRecord r;
+			while ((r = reader.next()) != null)
+				records.add(r);
+		} catch (IOException ex) {
+			LOG.error("Cannot read {}: {}", args[0], ex.getMessage());
+			System.exit(1);
+			return;
+		}
+		try {
+			new TrafficReplay(records, speed).run();
+		} finally {
+			System.exit(0);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.froxynetwork.servermanager.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class PlayerTableTest {
+
+	private static Player player(UUID uuid) {
+		Player p = mock(Player.class);
+		when(p.getUuid()).thenReturn(uuid);
+		return p;
+	}
+
+	@Test
+	public void putGetRemove() {
+		PlayerTable table = new PlayerTable();
+		UUID uuid = UUID.randomUUID();
+		Player p = player(uuid);
+		assertNull(table.put(p));
+		assertSame(p, table.get(uuid));
+		assertSame(p, table.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+
+		Player replaced = player(uuid);
+		assertSame(p, table.put(replaced));
+		assertEquals(1, table.size());
+		assertSame(replaced, table.get(uuid));
+
+		assertSame(replaced, table.remove(uuid));
+		assertNull(table.remove(uuid));
+		assertNull(table.get(uuid));
+		assertEquals(0, table.size());
+	}
+
+	@Test
+	public void removeInCluster() {
+		// Enough players to have entries that are not in their home slot
+		PlayerTable table = new PlayerTable();
+		Map<UUID, Player> players = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 5000; i++) {
+			UUID uuid = new UUID(random.nextLong(), random.nextLong());
+			Player p = player(uuid);
+			players.put(uuid, p);
+			table.put(p);
+		}
+		// Remove one player out of two, the others must still be found
+		int i = 0;
+		for (UUID uuid : players.keySet())
+			if (i++ % 2 == 0)
+				assertSame(players.get(uuid), table.remove(uuid));
+		i = 0;
+		for (Map.Entry<UUID, Player> e : players.entrySet())
+			if (i++ % 2 == 0)
+				assertNull(table.get(e.getKey()));
+			else
+				assertSame(e.getValue(), table.get(e.getKey()));
+		assertEquals(2500, table.size());
+	}
+
+	@Test
+	public void sameAsHashMap() {
+		// Few keys and many operations: lots of removals and insertions in the same
+		// clusters, and resizes
+		PlayerTable table = new PlayerTable();
+		Map<UUID, Player> expected = new HashMap<>();
+		Random random = new Random(1);
+		UUID[] uuids = new UUID[2000];
+		// Two players per uuid to check replacements
+		Player[][] players = new Player[uuids.length][2];
+		for (int i = 0; i < uuids.length; i++) {
+			uuids[i] = new UUID(random.nextLong(), random.nextLong());
+			players[i][0] = player(uuids[i]);
+			players[i][1] = player(uuids[i]);
+		}
+		for (int op = 0; op < 50000; op++) {
+			int i = random.nextInt(uuids.length);
+			UUID uuid = uuids[i];
+			if (random.nextInt(3) == 0)
+				assertSame(expected.remove(uuid), table.remove(uuid));
+			else {
+				Player p = players[i][op & 1];
+				assertSame(expected.put(uuid, p), table.put(p));
+			}
+		}
+		assertEquals(expected.size(), table.size());
+		for (UUID uuid : uuids)
+			assertSame(expected.get(uuid), table.get(uuid));
+		AtomicInteger count = new AtomicInteger();
+		table.forEach(p -> {
+			count.incrementAndGet();
+			assertSame(expected.get(p.getUuid()), p);
+		});
+		assertEquals(expected.size(), count.get());
+	}
+}
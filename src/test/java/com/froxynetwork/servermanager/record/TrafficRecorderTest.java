@@ -0,0 +1,148 @@
+package com.froxynetwork.servermanager.record;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.froxynetwork.froxynetwork.network.websocket.IWebSocketCommander;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class TrafficRecorderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@After
+	public void stop() {
+		TrafficRecorder.stop();
+	}
+
+	private static List<TrafficRecord> read(File file) throws IOException {
+		List<TrafficRecord> records = new ArrayList<>();
+		try (TrafficReader reader = new TrafficReader(file)) {
+			TrafficRecord r;
+			while ((r = reader.next()) != null)
+				records.add(r);
+		}
+		return records;
+	}
+
+	private static void assertRecord(TrafficRecord r, boolean outbound, String link, String channel,
+			String message) {
+		assertEquals(outbound, r.isOutbound());
+		assertEquals(link, r.getLink());
+		assertEquals(channel, r.getChannel());
+		assertEquals(message, r.getMessage());
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		File file = new File(folder.getRoot(), "traffic.rec");
+		long before = System.currentTimeMillis();
+		TrafficRecorder.start(file);
+		assertTrue(TrafficRecorder.isEnabled());
+		char[] chars = new char[300];
+		Arrays.fill(chars, 'x');
+		String big = new String(chars);
+		TrafficRecorder.record(true, TrafficRecorder.CORE, "register", "uuid KOTH_1");
+		TrafficRecorder.record(false, "KOTH_1", "player", null);
+		TrafficRecorder.record(false, "KOTH_1", "player", "\u00e9 \u2713");
+		TrafficRecorder.record(true, TrafficRecorder.CORE, "register", big);
+		TrafficRecorder.stop();
+		assertFalse(TrafficRecorder.isEnabled());
+
+		try (TrafficReader reader = new TrafficReader(file)) {
+			assertTrue(reader.getStartTime() >= before);
+		}
+		List<TrafficRecord> records = read(file);
+		assertEquals(4, records.size());
+		assertRecord(records.get(0), true, "core", "register", "uuid KOTH_1");
+		assertRecord(records.get(1), false, "KOTH_1", "player", null);
+		assertRecord(records.get(2), false, "KOTH_1", "player", "\u00e9 \u2713");
+		// Links and channels written once, message length on two bytes
+		assertRecord(records.get(3), true, "core", "register", big);
+		for (int i = 1; i < records.size(); i++)
+			assertTrue(records.get(i).getNanos() >= records.get(i - 1).getNanos());
+	}
+
+	@Test
+	public void disabled() throws IOException {
+		// Nothing is recorded, nothing fails
+		TrafficRecorder.record(true, TrafficRecorder.CORE, "register", "uuid KOTH_1");
+		assertFalse(TrafficRecorder.isEnabled());
+	}
+
+	@Test
+	public void wrap() throws IOException {
+		File file = new File(folder.getRoot(), "traffic.rec");
+		TrafficRecorder.start(file);
+		List<String> received = new ArrayList<>();
+		IWebSocketCommander command = TrafficRecorder.wrap("KOTH_1", new IWebSocketCommander() {
+
+			@Override
+			public String name() {
+				return "ping";
+			}
+
+			@Override
+			public String description() {
+				return "Ping";
+			}
+
+			@Override
+			public void onReceive(String message) {
+				received.add(message);
+			}
+		});
+		assertEquals("ping", command.name());
+		command.onReceive("42");
+		TrafficRecorder.stop();
+		assertEquals(Arrays.asList("42"), received);
+		List<TrafficRecord> records = read(file);
+		assertEquals(1, records.size());
+		assertRecord(records.get(0), false, "KOTH_1", "ping", "42");
+	}
+
+	@Test(expected = IOException.class)
+	public void notARecording() throws IOException {
+		File file = folder.newFile("other");
+		Files.write(file.toPath(), new byte[] { 0, 0, 0, 0, 0, 0, 0, 1 });
+		new TrafficReader(file).close();
+	}
+}
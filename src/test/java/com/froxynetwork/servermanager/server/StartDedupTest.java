@@ -0,0 +1,95 @@
+package com.froxynetwork.servermanager.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class StartDedupTest {
+
+	@Test
+	public void duplicate() {
+		StartDedup dedup = new StartDedup(100, 60000);
+		UUID uuid = UUID.randomUUID();
+		assertNull(dedup.begin(uuid));
+		StartDedup.Entry e = dedup.begin(uuid);
+		assertNotNull(e);
+		assertEquals(StartDedup.State.IN_FLIGHT, e.getState());
+		assertNull(e.getServerId());
+
+		dedup.created(uuid, "koth_1");
+		assertEquals("koth_1", dedup.begin(uuid).getServerId());
+		dedup.done(uuid, "koth_1");
+		assertEquals(StartDedup.State.RUNNING, dedup.begin(uuid).getState());
+		dedup.stopped(uuid);
+		assertEquals(StartDedup.State.STOPPED, dedup.begin(uuid).getState());
+		assertEquals(1, dedup.size());
+	}
+
+	@Test
+	public void failed() {
+		StartDedup dedup = new StartDedup(100, 60000);
+		UUID uuid = UUID.randomUUID();
+		dedup.begin(uuid);
+		dedup.failed(uuid);
+		// Resent after the error, started again
+		assertNull(dedup.begin(uuid));
+	}
+
+	@Test
+	public void ttl() throws InterruptedException {
+		StartDedup dedup = new StartDedup(100, 50);
+		UUID old = UUID.randomUUID();
+		dedup.begin(old);
+		Thread.sleep(100);
+		UUID recent = UUID.randomUUID();
+		dedup.begin(recent);
+		// Purged by the last begin
+		assertEquals(1, dedup.size());
+		assertNotNull(dedup.begin(recent));
+		assertNull(dedup.begin(old));
+	}
+
+	@Test
+	public void capacity() {
+		StartDedup dedup = new StartDedup(3, 60000);
+		UUID[] uuids = new UUID[4];
+		for (int i = 0; i < uuids.length; i++) {
+			uuids[i] = UUID.randomUUID();
+			dedup.begin(uuids[i]);
+		}
+		assertEquals(3, dedup.size());
+		// The oldest one is dropped
+		assertNotNull(dedup.begin(uuids[3]));
+		assertNotNull(dedup.begin(uuids[1]));
+		assertNull(dedup.begin(uuids[0]));
+	}
+}
@@ -0,0 +1,150 @@
+package com.froxynetwork.servermanager.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.froxynetwork.servermanager.server.config.TypeRegistry;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class StartQueueTest {
+
+	private FakeAdmission admission;
+	private StartQueue queue;
+	private List<String> started = Collections.synchronizedList(new ArrayList<>());
+	private List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+	@Before
+	public void setUp() {
+		admission = new FakeAdmission();
+		Map<String, Integer> weights = new HashMap<>();
+		weights.put("a", 2);
+		// Lobby types, the type of a game server is looked up in the config
+		queue = new StartQueue(admission, r -> started.add(r.getType()), 60000,
+				new HashSet<>(Arrays.asList("a", "b")), weights);
+	}
+
+	@After
+	public void tearDown() {
+		queue.stop();
+	}
+
+	private void add(String type, long timeout) {
+		queue.add(type, UUID.randomUUID(), timeout, reason -> errors.add(type + ":" + reason));
+	}
+
+	/**
+	 * Accept all waiting requests and wait until they are started
+	 */
+	private void accept(int count) throws InterruptedException {
+		admission.decision = StartDecision.ACCEPT;
+		queue.signal();
+		long end = System.currentTimeMillis() + 3000;
+		while (started.size() < count && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals(count, started.size());
+	}
+
+	@Test
+	public void weightedRoundRobin() throws InterruptedException {
+		for (int i = 0; i < 4; i++)
+			add("a", 0);
+		for (int i = 0; i < 4; i++)
+			add("b", 0);
+		assertEquals(8, queue.size());
+		accept(8);
+		// a has a weight of 2, b of 1
+		assertEquals(Arrays.asList("a", "a", "b", "a", "a", "b", "b", "b"), started);
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void bungeeFirst() throws InterruptedException {
+		add("a", 0);
+		add("b", 0);
+		add(TypeRegistry.BUNGEE_TYPE, 0);
+		accept(3);
+		assertEquals(TypeRegistry.BUNGEE_TYPE, started.get(0));
+	}
+
+	@Test
+	public void rejected() {
+		admission.decision = StartDecision.TYPE_MAX;
+		add("a", 0);
+		assertEquals(Arrays.asList("a:type_max"), errors);
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void expired() throws InterruptedException {
+		add("a", 50);
+		add("b", 0);
+		Thread.sleep(100);
+		accept(1);
+		assertEquals(Arrays.asList("b"), started);
+		assertEquals(Arrays.asList("a:" + StartDecision.TIMEOUT.getReason()), errors);
+		assertEquals(0, queue.size("a"));
+	}
+
+	@Test
+	public void stop() {
+		add("a", 0);
+		add("b", 0);
+		queue.stop();
+		assertEquals(2, errors.size());
+		assertTrue(errors.contains("a:" + StartDecision.STOPPING.getReason()));
+		assertEquals(0, queue.size());
+	}
+
+	/**
+	 * Admission whose decision is given by the test
+	 */
+	private static class FakeAdmission extends StartAdmission {
+		private volatile StartDecision decision = StartDecision.NO_MEMORY;
+
+		private FakeAdmission() {
+			super(null, 0, 0, null);
+		}
+
+		@Override
+		public StartDecision check(String type) {
+			return decision;
+		}
+	}
+}
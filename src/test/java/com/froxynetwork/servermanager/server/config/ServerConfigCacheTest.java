@@ -0,0 +1,120 @@
+package com.froxynetwork.servermanager.server.config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class ServerConfigCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ServerConfigSnapshot snapshot() {
+		ServerConfig koth = new ServerConfig("KOTH", new String[] { "koth" }, 1, 10);
+		ServerConfig variant = new ServerConfig("KOTH_2", new String[] { "koth", "koth_2" }, 0, 5);
+		variant.setParent(koth);
+		koth.addChildren(variant);
+		// No database
+		ServerConfig lobby = new ServerConfig("LOBBY", null, 1, 3);
+		Map<String, ServerConfig> types = new HashMap<>();
+		types.put("KOTH", koth);
+		types.put("KOTH_2", variant);
+		types.put("LOBBY", lobby);
+		Map<String, String> families = new HashMap<>();
+		families.put("KOTH", "KOTH|1|10");
+		families.put("LOBBY", "LOBBY|1|3");
+		ServerVps vps = new ServerVps("VPS01", 50);
+		vps.setMin("KOTH", 1);
+		vps.setMax("KOTH", 5);
+		return new ServerConfigSnapshot(7, "fingerprint", types, families, Arrays.asList(vps), 1234);
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		File file = new File(folder.getRoot(), "config.cache");
+		ServerConfigCache cache = new ServerConfigCache(file);
+		cache.save(snapshot());
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+
+		ServerConfigSnapshot loaded = cache.load();
+		assertEquals(7, loaded.getVersion());
+		assertEquals(1234, loaded.getLoadTime());
+		assertEquals("fingerprint", loaded.getFingerprint());
+		assertEquals(snapshot().getFamilies(), loaded.getFamilies());
+		assertEquals(3, loaded.getTypes().size());
+		ServerConfig variant = loaded.get("KOTH_2");
+		assertSame(loaded.get("KOTH"), variant.getParent());
+		assertEquals(Arrays.asList(variant), loaded.get("KOTH").getChildrens());
+		assertArrayEquals(new String[] { "koth", "koth_2" }, variant.getDatabase());
+		assertEquals(0, variant.getMin());
+		assertEquals(5, variant.getMax());
+		assertNull(loaded.get("LOBBY").getDatabase());
+		ServerVps vps = loaded.getVps("vps01");
+		assertEquals(50, vps.getMaxServers());
+		assertEquals(1, vps.getMin("KOTH"));
+		assertEquals(5, vps.getMax("KOTH"));
+		// Indexed on the registry of the loaded snapshot
+		assertEquals(5, vps.getMax(loaded.getRegistry().id("KOTH")));
+	}
+
+	@Test
+	public void noCache() throws IOException {
+		assertNull(new ServerConfigCache(new File(folder.getRoot(), "none")).load());
+	}
+
+	@Test(expected = IOException.class)
+	public void corrupted() throws IOException {
+		File file = folder.newFile("config.cache");
+		Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		new ServerConfigCache(file).load();
+	}
+
+	@Test
+	public void loadedByManager() throws IOException {
+		File file = new File(folder.getRoot(), "config.cache");
+		new ServerConfigCache(file).save(snapshot());
+		ServerConfigManager manager = new ServerConfigManager(new ServerConfigCache(file));
+		assertTrue(manager.loadCache());
+		assertEquals(7, manager.getSnapshot().getVersion());
+		assertTrue(manager.exist("KOTH_2"));
+	}
+}
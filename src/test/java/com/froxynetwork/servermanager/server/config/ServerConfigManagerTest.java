@@ -0,0 +1,193 @@
+package com.froxynetwork.servermanager.server.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+
+import com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput;
+import com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.ServersConfig;
+import com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.VpsConfig;
+import com.froxynetwork.froxynetwork.network.output.data.server.config.ServerConfigDataOutput.VpsConfigConfig;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class ServerConfigManagerTest {
+
+	private ServerConfigManager manager;
+	private List<String> changes = Collections.synchronizedList(new ArrayList<>());
+
+	@Before
+	public void setUp() {
+		manager = new ServerConfigManager(null);
+		manager.addListener((type, oldConfig, newConfig) -> changes
+				.add(type + ":" + (oldConfig == null ? "added" : newConfig == null ? "removed" : "changed")));
+	}
+
+	/**
+	 * Answer with these items, as an array or a list like the getter
+	 */
+	private static Answer<Object> items(Object... items) {
+		return invocation -> {
+			Class<?> type = invocation.getMethod().getReturnType();
+			if (!type.isArray())
+				return Arrays.asList(items);
+			Object array = Array.newInstance(type.getComponentType(), items.length);
+			for (int i = 0; i < items.length; i++)
+				Array.set(array, i, items[i]);
+			return array;
+		};
+	}
+
+	private static ServerConfigDataOutput.ServerConfig type(String id, int min, int max,
+			ServerConfigDataOutput.ServerConfig... variants) {
+		ServerConfigDataOutput.ServerConfig sc = mock(ServerConfigDataOutput.ServerConfig.class);
+		when(sc.getId()).thenReturn(id);
+		when(sc.getDatabase()).thenReturn(new String[] { id.toLowerCase() });
+		when(sc.getMin()).thenReturn(min);
+		when(sc.getMax()).thenReturn(max);
+		when(sc.getVariants()).thenReturn(variants.length == 0 ? null : variants);
+		return sc;
+	}
+
+	private static VpsConfig vps(String id, int maxServers, String type, int min, int max) {
+		VpsConfigConfig c = mock(VpsConfigConfig.class);
+		when(c.getType()).thenReturn(type);
+		when(c.getMin()).thenReturn(min);
+		when(c.getMax()).thenReturn(max);
+		VpsConfig vc = mock(VpsConfig.class);
+		when(vc.getId()).thenReturn(id);
+		when(vc.getMaxServers()).thenReturn(maxServers);
+		when(vc.getConfig()).thenAnswer(items(c));
+		return vc;
+	}
+
+	private static ServersConfig config(ServerConfigDataOutput.ServerConfig[] types, VpsConfig... vps) {
+		ServersConfig response = mock(ServersConfig.class);
+		when(response.getTypes()).thenAnswer(items((Object[]) types));
+		when(response.getVps()).thenAnswer(items((Object[]) vps));
+		return response;
+	}
+
+	private static ServerConfigDataOutput.ServerConfig[] types(ServerConfigDataOutput.ServerConfig... types) {
+		return types;
+	}
+
+	@Test
+	public void firstLoad() {
+		manager.apply(config(types(type("KOTH", 1, 10, type("KOTH_2", 0, 5)), type("LOBBY", 1, 3)),
+				vps("VPS01", 50, "KOTH", 1, 5)));
+		ServerConfigSnapshot snapshot = manager.getSnapshot();
+		assertEquals(1, snapshot.getVersion());
+		assertEquals(3, snapshot.getTypes().size());
+		ServerConfig variant = snapshot.get("KOTH_2");
+		assertSame(snapshot.get("KOTH"), variant.getParent());
+		// The database of the parent is given to its variants
+		assertEquals(Arrays.asList("koth", "koth_2"), Arrays.asList(variant.getDatabase()));
+		assertEquals(5, manager.getVps("vps01").getMax("KOTH"));
+		assertEquals(3, changes.size());
+	}
+
+	@Test
+	public void unchanged() {
+		manager.apply(config(types(type("KOTH", 1, 10), type("LOBBY", 1, 3)), vps("VPS01", 50, "KOTH", 1, 5)));
+		ServerConfigSnapshot first = manager.getSnapshot();
+		changes.clear();
+		// New instances from the REST API, same content
+		manager.apply(config(types(type("KOTH", 1, 10), type("LOBBY", 1, 3)), vps("VPS01", 50, "KOTH", 1, 5)));
+		ServerConfigSnapshot second = manager.getSnapshot();
+		assertEquals(first.getVersion(), second.getVersion());
+		assertSame(first.getTypes(), second.getTypes());
+		assertSame(first.getRegistry(), second.getRegistry());
+		assertEquals(Collections.emptyList(), changes);
+	}
+
+	@Test
+	public void changedType() {
+		manager.apply(config(types(type("KOTH", 1, 10, type("KOTH_2", 0, 5)), type("LOBBY", 1, 3))));
+		ServerConfigSnapshot first = manager.getSnapshot();
+		changes.clear();
+		manager.apply(config(types(type("KOTH", 1, 10, type("KOTH_2", 0, 5)), type("LOBBY", 1, 4))));
+		ServerConfigSnapshot second = manager.getSnapshot();
+		assertEquals(first.getVersion() + 1, second.getVersion());
+		// Same definition, same instances
+		assertSame(first.get("KOTH"), second.get("KOTH"));
+		assertSame(first.get("KOTH_2"), second.get("KOTH_2"));
+		assertNotSame(first.get("LOBBY"), second.get("LOBBY"));
+		assertEquals(4, second.get("LOBBY").getMax());
+		assertEquals(Arrays.asList("LOBBY:changed"), changes);
+	}
+
+	@Test
+	public void changedVariant() {
+		manager.apply(config(types(type("KOTH", 1, 10, type("KOTH_2", 0, 5)), type("LOBBY", 1, 3))));
+		ServerConfigSnapshot first = manager.getSnapshot();
+		changes.clear();
+		manager.apply(config(types(type("KOTH", 1, 10, type("KOTH_2", 0, 6)), type("LOBBY", 1, 3))));
+		ServerConfigSnapshot second = manager.getSnapshot();
+		// The whole family is rebuilt
+		assertNotSame(first.get("KOTH"), second.get("KOTH"));
+		assertSame(first.get("LOBBY"), second.get("LOBBY"));
+		changes.sort(null);
+		assertEquals(Arrays.asList("KOTH:changed", "KOTH_2:changed"), changes);
+	}
+
+	@Test
+	public void vpsOnly() {
+		manager.apply(config(types(type("KOTH", 1, 10), type("LOBBY", 1, 3)), vps("VPS01", 50, "KOTH", 1, 5)));
+		ServerConfigSnapshot first = manager.getSnapshot();
+		changes.clear();
+		manager.apply(config(types(type("KOTH", 1, 10), type("LOBBY", 1, 3)), vps("VPS01", 50, "KOTH", 1, 8)));
+		ServerConfigSnapshot second = manager.getSnapshot();
+		assertEquals(first.getVersion() + 1, second.getVersion());
+		// Same types: same ids, the counters of servers stay valid
+		assertSame(first.getRegistry(), second.getRegistry());
+		assertEquals(8, second.getVps("VPS01").getMax(second.getRegistry().id("KOTH")));
+		assertEquals(5, first.getVps("VPS01").getMax("KOTH"));
+		assertEquals(Collections.emptyList(), changes);
+	}
+
+	@Test
+	public void removedType() {
+		manager.apply(config(types(type("KOTH", 1, 10), type("LOBBY", 1, 3))));
+		changes.clear();
+		manager.apply(config(types(type("LOBBY", 1, 3))));
+		assertNull(manager.get("KOTH"));
+		assertEquals(Arrays.asList("KOTH:removed"), changes);
+	}
+}
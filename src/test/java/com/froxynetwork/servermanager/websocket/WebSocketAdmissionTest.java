@@ -0,0 +1,158 @@
+package com.froxynetwork.servermanager.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * MIT License
+ *
+ * Copyright (c) 2020 FroxyNetwork
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ * @author 0ddlyoko
+ */
+public class WebSocketAdmissionTest {
+
+	private WebSocketAdmission admission;
+	private List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+	@After
+	public void stop() {
+		if (admission != null)
+			admission.stop();
+	}
+
+	private boolean submit(String key, boolean priority) {
+		return admission.submit(key, priority, () -> started.add(key));
+	}
+
+	/**
+	 * Wait until this number of validations have been started
+	 */
+	private void await(int count, long timeout) throws InterruptedException {
+		long end = System.currentTimeMillis() + timeout;
+		while (started.size() < count && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals(count, started.size());
+	}
+
+	@Test
+	public void concurrency() {
+		admission = new WebSocketAdmission(2, 1000, 10, 60000);
+		assertTrue(submit("a", false));
+		assertTrue(submit("b", false));
+		assertTrue(submit("c", false));
+		assertEquals(Arrays.asList("a", "b"), started);
+		assertEquals(2, admission.getPending());
+		assertEquals(1, admission.getWaiting());
+
+		admission.release("a");
+		assertEquals(Arrays.asList("a", "b", "c"), started);
+		assertEquals(0, admission.getWaiting());
+		assertEquals(3, admission.getAdmitted());
+	}
+
+	@Test
+	public void releaseTwice() {
+		admission = new WebSocketAdmission(1, 1000, 10, 60000);
+		submit("a", false);
+		submit("b", false);
+		submit("c", false);
+		admission.release("a");
+		// a is not running anymore, b keeps its slot
+		admission.release("a");
+		assertEquals(Arrays.asList("a", "b"), started);
+		assertEquals(1, admission.getPending());
+	}
+
+	@Test
+	public void tokenBucket() throws InterruptedException {
+		// The bucket starts full: 5 validations now, then 5 per second
+		admission = new WebSocketAdmission(100, 5, 100, 60000);
+		for (int i = 0; i < 10; i++)
+			assertTrue(submit("s" + i, false));
+		assertEquals(5, started.size());
+		assertEquals(5, admission.getWaiting());
+		await(10, 3000);
+		assertEquals(0, admission.getWaiting());
+	}
+
+	@Test
+	public void shed() {
+		admission = new WebSocketAdmission(1, 1000, 1, 60000);
+		assertTrue(submit("a", false));
+		assertTrue(submit("b", false));
+		assertFalse(submit("c", false));
+		assertEquals(1, admission.getShed());
+		assertEquals(Arrays.asList("a"), started);
+	}
+
+	@Test
+	public void priority() {
+		admission = new WebSocketAdmission(1, 1000, 10, 60000);
+		submit("a", false);
+		submit("b", false);
+		submit("bungee", true);
+		// Only one priority connection at a time, this one waits like others
+		submit("other", true);
+		admission.release("a");
+		assertEquals(Arrays.asList("a", "bungee"), started);
+		admission.release("bungee");
+		admission.release("b");
+		assertEquals(Arrays.asList("a", "bungee", "b", "other"), started);
+	}
+
+	@Test
+	public void cancel() {
+		admission = new WebSocketAdmission(1, 1000, 10, 60000);
+		submit("a", false);
+		submit("bungee", true);
+		assertTrue(admission.cancel("bungee"));
+		assertFalse(admission.cancel("bungee"));
+		assertEquals(0, admission.getWaiting());
+		// The priority is given back
+		submit("b", false);
+		submit("bungee2", true);
+		admission.release("a");
+		assertEquals(Arrays.asList("a", "bungee2"), started);
+	}
+
+	@Test
+	public void timeout() throws InterruptedException {
+		admission = new WebSocketAdmission(1, 1000, 10, 100);
+		submit("a", false);
+		submit("b", false);
+		// a never releases its slot
+		await(2, 3000);
+		assertEquals(1, admission.getExpired());
+		// Released by the timeout, nothing is released twice
+		admission.release("a");
+		assertEquals(1, admission.getPending());
+	}
+}